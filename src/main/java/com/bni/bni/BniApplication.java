@@ -2,6 +2,7 @@ package com.bni.bni;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Kelas utama yang menjadi entry point untuk aplikasi Spring Boot.
@@ -11,6 +12,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * 3. @ComponentScan - Memungkinkan scanning komponen dalam package ini dan sub-packages
  */
 @SpringBootApplication
+@EnableScheduling // Untuk job berkala seperti reload JWT key ring
 public class BniApplication {
 
     /**
@@ -0,0 +1,163 @@
+package com.bni.bni.config;
+
+import com.bni.bni.sharding.ShardDataSources;
+import com.bni.bni.sharding.ShardMap;
+import com.bni.bni.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Konfigurasi DataSource: sharding user/profil ke beberapa database, dengan routing ke read replica per shard.
+ * Shard dipilih dari {@link com.bni.bni.sharding.ShardContext} (diset oleh {@code @ShardKey}).
+ * Di dalam satu shard, transaksi {@code @Transactional(readOnly = true)} dilayani oleh replica (jika dikonfigurasi
+ * dan lag-nya masih di bawah batas), semua transaksi lain dan akses JDBC langsung tetap ke primary.
+ * Routing read-only dilakukan oleh {@link LazyConnectionDataSourceProxy}: koneksi fisik baru diambil saat statement
+ * pertama, setelah flag read-only transaksi sudah diketahui.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class DataSourceConfig {
+
+    private final Environment environment;
+    private final DataSourceProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.datasource.replica.maximum-pool-size:10}")
+    private int replicaMaxPoolSize;
+
+    @Value("${spring.datasource.replica.max-lag:2s}")
+    private Duration replicaMaxLag;
+
+    public DataSourceConfig(Environment environment, DataSourceProperties properties, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Semua shard: shard 0 dari spring.datasource.* (replica dari spring.datasource.replica.url),
+     * shard berikutnya dari sharding.shards.N.*
+     * @param sharding properti shard tambahan
+     * @return DataSource per shard
+     */
+    @Bean
+    public ShardDataSources shardDataSources(ShardingProperties sharding,
+                                             @Value("${spring.datasource.replica.url:}") String replicaUrl,
+                                             @Value("${spring.datasource.replica.username:${spring.datasource.username}}") String replicaUsername,
+                                             @Value("${spring.datasource.replica.password:${spring.datasource.password}}") String replicaPassword) {
+        List<ShardDataSources.Shard> shards = new ArrayList<>();
+        shards.add(buildShard(0, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), replicaUrl, replicaUsername, replicaPassword));
+
+        for (int index = 1; index <= sharding.shards().size(); index++) {
+            ShardingProperties.Shard shard = sharding.shards().get(index);
+            if (shard == null || shard.url() == null) {
+                throw new IllegalStateException("sharding.shards." + index + ".url belum diisi (nomor shard harus berurutan mulai 1)");
+            }
+            String username = shard.username() != null ? shard.username() : properties.determineUsername();
+            String password = shard.password() != null ? shard.password() : properties.determinePassword();
+            shards.add(buildShard(index, shard.url(), username, password, shard.replicaUrl(), username, password));
+        }
+        return new ShardDataSources(shards);
+    }
+
+    /**
+     * Pemetaan bucket ke shard dari file sharding.bucket-map (tanpa file: semua bucket di shard 0)
+     * @param shards DataSource per shard
+     * @param sharding properti sharding
+     * @return pemetaan bucket ke shard
+     */
+    @Bean
+    public ShardMap shardMap(ShardDataSources shards, ShardingProperties sharding) throws IOException {
+        Path file = sharding.bucketMap() == null || sharding.bucketMap().isBlank() ? null : Path.of(sharding.bucketMap());
+        return ShardMap.load(file, shards.size());
+    }
+
+    /**
+     * DataSource utama yang dipakai JPA dan JdbcTemplate, diteruskan ke shard aktif
+     * @param shards DataSource per shard
+     * @return DataSource dengan routing shard dan read/write
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shards) {
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Menjalankan migrasi Flyway di setiap shard (bawaan Spring Boot hanya memigrasi DataSource utama)
+     * @param shards DataSource per shard
+     * @return strategi migrasi
+     */
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardDataSources shards) {
+        return flyway -> {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shards.primary(shard))
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+
+    private ShardDataSources.Shard buildShard(int index, String url, String username, String password,
+                                              String replicaUrl, String replicaUsername, String replicaPassword) {
+        HikariDataSource primary = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        // Setting pool (spring.datasource.hikari.*) berlaku untuk pool primary semua shard
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("shard-" + index);
+
+        ReplicaDataSource replica = null;
+        if (replicaUrl != null && !replicaUrl.isBlank()) {
+            HikariDataSource replicaPool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(replicaUrl)
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            replicaPool.setPoolName("shard-" + index + "-replica");
+            replicaPool.setMaximumPoolSize(replicaMaxPoolSize);
+            replicaPool.setReadOnly(true);
+            replica = new ReplicaDataSource("shard-" + index, replicaPool, primary, replicaMaxLag, meterRegistry);
+        }
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        // Default diset eksplisit agar proxy tidak perlu membuka koneksi saat startup
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        if (replica != null) {
+            proxy.setReadOnlyDataSource(replica);
+        }
+        return new ShardDataSources.Shard(primary, replica, proxy);
+    }
+}
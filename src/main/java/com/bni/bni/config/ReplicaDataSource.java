@@ -0,0 +1,148 @@
+package com.bni.bni.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * DataSource untuk pekerjaan read-only (transaksi {@code @Transactional(readOnly = true)}).
+ * Koneksi diambil dari pool replica selama replica sehat dan lag-nya di bawah batas;
+ * jika replica tertinggal terlalu jauh atau tidak bisa dihubungi, koneksi diambil dari primary.
+ * Lag diukur berkala oleh {@link #checkLag()} (dipanggil oleh ShardDataSources), bukan di setiap pengambilan koneksi.
+ */
+public class ReplicaDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    // Lag replay replica dalam detik; 0 jika semua WAL yang diterima sudah di-replay
+    // (atau jika "replica" bukan standby, misal Postgres lokal kedua untuk test)
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    // Memaksa pembacaan di thread ini ke primary (read-your-writes setelah update)
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final String shard;
+    private final HikariDataSource replica;
+    private final DataSource primary;
+    private final long maxLagMillis;
+    private final Counter fallbacks;
+
+    // Hasil pengecekan lag terakhir, dibaca di setiap pengambilan koneksi
+    private volatile boolean usable = false;
+    private volatile long lagMillis = -1;
+
+    /**
+     * @param shard nama shard pemilik replica (tag metrics dan log)
+     * @param replica pool koneksi ke replica
+     * @param primary DataSource primary sebagai fallback
+     * @param maxLag lag maksimum yang masih boleh dilayani dari replica
+     * @param meterRegistry registry metrics (lag replica dan jumlah fallback ke primary)
+     */
+    public ReplicaDataSource(String shard, HikariDataSource replica, DataSource primary, Duration maxLag,
+                             MeterRegistry meterRegistry) {
+        super(replica);
+        this.shard = shard;
+        this.replica = replica;
+        this.primary = primary;
+        this.maxLagMillis = maxLag.toMillis();
+
+        Gauge.builder("datasource.replica.lag", this, r -> r.lagMillis < 0 ? -1 : r.lagMillis / 1000.0)
+                .tag("shard", shard)
+                .description("Lag replay replica dalam detik (-1 jika replica tidak bisa dihubungi)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("datasource.replica.fallback")
+                .tag("shard", shard)
+                .description("Jumlah koneksi read-only yang dialihkan ke primary karena replica tertinggal atau down")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Menjalankan pembacaan di primary walaupun transaksinya read-only,
+     * untuk data yang baru saja ditulis dan mungkin belum sampai di replica
+     * @param action pembacaan yang dijalankan
+     * @return hasil pembacaan
+     */
+    public static <T> T usePrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (FORCE_PRIMARY.get() != null) {
+            // Dipilih sengaja oleh pemanggil (read-your-writes), bukan fallback
+            return primary.getConnection();
+        }
+        if (usable) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                usable = false;
+                log.warn("Replica {} tidak bisa dihubungi, pembacaan dialihkan ke primary: {}", shard, e.getMessage());
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Kredensial eksplisit tidak dipakai untuk routing, ikuti jalur yang sama
+        return getConnection();
+    }
+
+    /**
+     * Mengukur lag replica secara berkala dan menentukan apakah replica boleh dipakai
+     */
+    public void checkLag() {
+        try (Connection conn = replica.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(LAG_QUERY)) {
+            rs.next();
+            long lag = Math.round(rs.getDouble(1) * 1000);
+            boolean healthy = lag <= maxLagMillis;
+            if (healthy != usable) {
+                log.info("Replica {} {} (lag {} ms, batas {} ms)",
+                        shard, healthy ? "dipakai untuk pembacaan" : "dilewati", lag, maxLagMillis);
+            }
+            lagMillis = lag;
+            usable = healthy;
+        } catch (SQLException e) {
+            if (usable) {
+                log.warn("Pengecekan lag replica {} gagal, pembacaan dialihkan ke primary: {}", shard, e.getMessage());
+            }
+            lagMillis = -1;
+            usable = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+    }
+}
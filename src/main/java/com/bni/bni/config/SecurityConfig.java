@@ -1,13 +1,23 @@
 package com.bni.bni.config;
 
+import com.bni.bni.security.CalibratedPasswordEncoder;
+import com.bni.bni.security.JwtAuthenticationFilter;
+import com.bni.bni.throttle.TransferThrottle;
+import com.bni.bni.throttle.TransferThrottleFilter;
+import com.bni.bni.util.JwtUtil;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 /**
  * Konfigurasi keamanan untuk aplikasi Spring.
  * Menggunakan Spring Security untuk mengatur autentikasi dan otorisasi.
@@ -18,23 +28,47 @@ public class SecurityConfig {
 
     /**
      * Mendefinisikan filter chain untuk keamanan HTTP.
-     * Konfigurasi ini menonaktifkan beberapa fitur keamanan default
-     * dan mengizinkan semua request tanpa autentikasi.
+     * Autentikasi bersifat stateless: JWT diverifikasi sekali oleh {@link JwtAuthenticationFilter}
+     * dan hasilnya (user_id, role) disimpan di SecurityContext tanpa query ke database.
+     * Endpoint publik (register, login, JWKS, file, actuator) tetap bisa diakses tanpa token.
      * 
      * @param http Objek HttpSecurity untuk konfigurasi
+     * @param jwtUtil utility untuk verifikasi token
+     * @param transferThrottle pembatas transfer untuk endpoint file
      * @return SecurityFilterChain yang dikonfigurasi
      * @throws Exception jika terjadi kesalahan selama konfigurasi
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtUtil jwtUtil,
+                                                   TransferThrottle transferThrottle) throws Exception {
         http
             // Menonaktifkan CSRF protection (Cross-Site Request Forgery)
             .csrf(csrf -> csrf.disable())
+
+            // Tidak ada HTTP session, setiap request membawa token sendiri
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             
-            // Mengatur autorisasi request - mengizinkan semua request tanpa autentikasi
+            // Mengatur autorisasi request - endpoint admin butuh role ADMIN,
+            // endpoint milik user yang login wajib membawa token
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/api/auth/me", "/api/me/**").authenticated()
                 .anyRequest().permitAll()
             )
+
+            // Verifikasi JWT sebelum filter autentikasi bawaan Spring
+            .addFilterBefore(new JwtAuthenticationFilter(jwtUtil), UsernamePasswordAuthenticationFilter.class)
+
+            // Batas transfer bersamaan dan laju byte untuk /api/files/**, setelah JWT agar kuota per pengguna
+            .addFilterAfter(new TransferThrottleFilter(transferThrottle), JwtAuthenticationFilter.class)
+
+            // Response JSON untuk request tanpa token / tanpa hak akses
+            .exceptionHandling(ex -> ex
+                .authenticationEntryPoint((request, response, e) -> JwtAuthenticationFilter.writeError(
+                    response, HttpServletResponse.SC_UNAUTHORIZED, "Authorization header missing or invalid"))
+                .accessDeniedHandler((request, response, e) -> JwtAuthenticationFilter.writeError(
+                    response, HttpServletResponse.SC_FORBIDDEN, "Access denied"))
+            )
             
             // Menonaktifkan autentikasi HTTP Basic
             .httpBasic(httpBasic -> httpBasic.disable())
@@ -47,12 +81,19 @@ public class SecurityConfig {
 
     /**
      * Mendefinisikan password encoder yang akan digunakan aplikasi.
-     * Menggunakan BCrypt hashing algorithm untuk keamanan password.
+     * Parameter hashing (BCrypt strength / iterasi Argon2) dikalibrasi saat startup
+     * terhadap budget latency per hash, sehingga mengikuti ukuran node tempat aplikasi berjalan.
      * 
-     * @return instance BCryptPasswordEncoder
+     * @param algorithm algoritma untuk hash baru (bcrypt atau argon2)
+     * @param targetLatency budget waktu per hash
+     * @param minBcryptStrength batas bawah strength BCrypt
+     * @return instance CalibratedPasswordEncoder
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${security.password.algorithm:bcrypt}") String algorithm,
+            @Value("${security.password.target-latency:80ms}") Duration targetLatency,
+            @Value("${security.password.min-bcrypt-strength:10}") int minBcryptStrength) {
+        return new CalibratedPasswordEncoder(algorithm, targetLatency, minBcryptStrength);
     }
 }
\ No newline at end of file
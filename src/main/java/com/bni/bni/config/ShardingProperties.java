@@ -0,0 +1,31 @@
+package com.bni.bni.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Properti sharding (prefix {@code sharding}).
+ * Shard 0 selalu database dari spring.datasource.*, shard tambahan didaftarkan
+ * dengan nomor berurutan mulai dari 1: sharding.shards.1.url, sharding.shards.2.url, dst.
+ *
+ * @param bucketMap lokasi file pemetaan bucket ke shard (ditulis oleh ShardRebalancer)
+ * @param shards shard tambahan, key-nya nomor shard
+ */
+@ConfigurationProperties("sharding")
+public record ShardingProperties(String bucketMap, Map<Integer, Shard> shards) {
+
+    /**
+     * Koneksi ke satu shard tambahan
+     * @param url JDBC URL primary shard
+     * @param username username (default sama dengan spring.datasource.username)
+     * @param password password (default sama dengan spring.datasource.password)
+     * @param replicaUrl JDBC URL replica shard (opsional)
+     */
+    public record Shard(String url, String username, String password, String replicaUrl) {
+    }
+
+    public ShardingProperties {
+        shards = shards == null ? Map.of() : shards;
+    }
+}
@@ -0,0 +1,59 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.service.FileStorageService;
+import com.bni.bni.service.FileStorageService.FileInfo;
+import com.bni.bni.service.FileStorageService.FilePage;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller admin untuk melihat daftar file yang sudah diupload.
+ * Hanya bisa diakses oleh role ADMIN (diatur di SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/files")
+public class AdminFileController {
+
+    private final FileStorageService fileStorageService;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param fileStorageService service penyimpanan file
+     */
+    public AdminFileController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * Endpoint daftar file dari katalog metadata, upload terbaru dulu.
+     * Memakai keyset pagination: kirim next_cursor dari response sebelumnya sebagai parameter cursor.
+     * @param cursor cursor halaman berikutnya (opsional)
+     * @param limit ukuran halaman (opsional)
+     * @return ResponseEntity berisi data halaman dan next_cursor
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> list(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        FilePage page;
+        try {
+            page = fileStorageService.list(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            response.put("status", 400);
+            response.put("message", "Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("status", 200);
+        response.put("data", page.files().stream().map(FileInfo::toResponse).toList());
+        response.put("next_cursor", page.nextCursor());
+        return ResponseEntity.ok(response);
+    }
+}
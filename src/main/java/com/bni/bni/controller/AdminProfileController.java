@@ -0,0 +1,93 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.dto.ProfileView;
+import com.bni.bni.service.ProfileService;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller admin untuk lookup profil banyak user sekaligus (dashboard back-office).
+ * Hanya bisa diakses oleh role ADMIN (diatur di SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/profiles")
+public class AdminProfileController {
+
+    private final ProfileService profileService;
+    private final ObjectMapper objectMapper;
+
+    // Batas jumlah id dalam satu request batch
+    private final int maxIds;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param profileService service untuk operasi profil
+     * @param objectMapper mapper JSON untuk menulis response secara streaming
+     * @param maxIds batas jumlah id per request
+     */
+    public AdminProfileController(ProfileService profileService, ObjectMapper objectMapper,
+                                  @Value("${profile.batch.max-ids:10000}") int maxIds) {
+        this.profileService = profileService;
+        this.objectMapper = objectMapper;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Endpoint untuk mengambil profil banyak user dalam satu request.
+     * Body: {"user_ids": [1, 2, 3]}. Profil diambil per chunk dengan query IN dan ditulis
+     * ke response satu per satu, tanpa membangun seluruh array di memory.
+     * User yang tidak memiliki profil tidak muncul di hasil.
+     * @param body request body berisi daftar user_ids
+     * @return ResponseEntity berisi stream {"status": 200, "data": [...]}
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> getProfiles(@RequestBody Map<String, List<Long>> body) {
+        List<Long> userIds = body.get("user_ids");
+        if (userIds == null || userIds.isEmpty() || userIds.size() > maxIds || userIds.contains(null)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", 400);
+            response.put("message", "user_ids wajib diisi (maksimal " + maxIds + " id)");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        StreamingResponseBody stream = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeNumberField("status", 200);
+                json.writeArrayFieldStart("data");
+                profileService.forEachProfile(userIds, view -> writeProfile(json, view));
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
+    private static void writeProfile(JsonGenerator json, ProfileView view) {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("user_id", view.userId());
+            for (Map.Entry<String, Object> field : view.toResponse().entrySet()) {
+                json.writeObjectField(field.getKey(), field.getValue());
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.service.BulkUserService;
+import com.bni.bni.service.BulkUserService.Format;
+import com.bni.bni.service.BulkUserService.ImportResult;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller admin untuk import/export user secara massal.
+ * Hanya bisa diakses oleh role ADMIN (diatur di SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/users")
+public class AdminUserController {
+
+    private final BulkUserService bulkUserService;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param bulkUserService service untuk import/export massal
+     */
+    public AdminUserController(BulkUserService bulkUserService) {
+        this.bulkUserService = bulkUserService;
+    }
+
+    /**
+     * Endpoint untuk import user massal. Body dibaca secara streaming, tidak dimuat utuh ke memory.
+     * Content-Type text/csv (header: username,email_address,password[,role])
+     * atau application/x-ndjson (satu objek JSON per baris).
+     * @param contentType header Content-Type request
+     * @param body stream request body
+     * @return ResponseEntity berisi ringkasan hasil import
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException, SQLException {
+
+        Map<String, Object> response = new HashMap<>();
+
+        Format format = resolveFormat(contentType);
+        if (format == null) {
+            response.put("status", 415);
+            response.put("message", "Content-Type harus text/csv atau application/x-ndjson");
+            return ResponseEntity.status(415).body(response);
+        }
+
+        ImportResult result;
+        try {
+            result = bulkUserService.importUsers(body, format);
+        } catch (IllegalArgumentException e) {
+            response.put("status", 400);
+            response.put("message", "Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("status", 200);
+        response.put("message", "Import selesai");
+        response.put("received", result.received());
+        response.put("inserted", result.inserted());
+        response.put("duplicates", result.duplicates());
+        response.put("invalid", result.invalid());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Endpoint untuk export semua user sebagai CSV (tanpa password hash), di-stream langsung dari database
+     * @return ResponseEntity berisi stream CSV
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody stream = out -> {
+            try {
+                bulkUserService.exportUsers(out);
+            } catch (SQLException e) {
+                throw new IOException("Export user gagal", e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"")
+                .body(stream);
+    }
+
+    /**
+     * Format import dari header Content-Type, null jika tidak didukung atau tidak valid (dijawab 415)
+     */
+    private static Format resolveFormat(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (mediaType.isCompatibleWith(new MediaType("text", "csv"))) {
+            return Format.CSV;
+        }
+        if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                || mediaType.isCompatibleWith(new MediaType("application", "x-ndjson"))) {
+            return Format.NDJSON;
+        }
+        return null;
+    }
+}
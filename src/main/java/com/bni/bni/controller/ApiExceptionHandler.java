@@ -0,0 +1,78 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.exception.PayloadTooLargeException;
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.exception.UploadSessionNotFoundException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Penanganan exception global agar error dikembalikan dengan format response yang sama
+ * seperti controller ({"status", "message"})
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    /**
+     * Server sedang penuh: kembalikan 429 dengan Retry-After agar client mundur sebentar
+     * @param e exception berisi saran jeda retry
+     * @return ResponseEntity 429
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 429);
+        response.put("message", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(response);
+    }
+
+    /**
+     * Body request melebihi batas ukuran (misal upload file streaming)
+     * @param e exception berisi batas ukuran
+     * @return ResponseEntity 413
+     */
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handlePayloadTooLarge(PayloadTooLargeException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 413);
+        response.put("message", e.getMessage());
+        response.put("max_size", e.getMaxSize());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    /**
+     * Sesi upload bertahap tidak ada (sudah selesai, dibatalkan atau kadaluarsa)
+     * @param e exception sesi upload
+     * @return ResponseEntity 404
+     */
+    @ExceptionHandler(UploadSessionNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleUploadSessionNotFound(UploadSessionNotFoundException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 404);
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * Profil diubah request lain di antara pembacaan dan penulisan (optimistic locking)
+     * @param e exception dari pengecekan kolom version
+     * @return ResponseEntity 412
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLock(ObjectOptimisticLockingFailureException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 412);
+        response.put("message", "Profile has been modified");
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+    }
+}
@@ -1,10 +1,10 @@
 package com.bni.bni.controller;
 
+import com.bni.bni.security.AuthenticatedUser;
 import com.bni.bni.service.AuthService;
-import com.bni.bni.util.JwtUtil;
-import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -28,9 +28,6 @@ public class AuthController {
     @Autowired
     private AuthService authService; // Service untuk logika bisnis autentikasi
 
-    @Autowired
-    private JwtUtil jwtUtil; // Utility untuk operasi JWT (generasi, validasi, parsing)
-
     /**
      * Endpoint untuk registrasi pengguna baru.
      * 
@@ -81,51 +78,25 @@ public class AuthController {
 
     /**
      * Endpoint untuk mendapatkan informasi pengguna yang sedang login.
-     * Memvalidasi token JWT dari header Authorization.
+     * Token sudah diverifikasi oleh JwtAuthenticationFilter, request tanpa token valid
+     * ditolak dengan 401 sebelum mencapai method ini.
      * 
-     * @param authHeader Header Authorization yang berisi token JWT
-     * @return ResponseEntity dengan informasi pengguna jika token valid,
-     *         atau pesan error jika token tidak valid/tidak ada
+     * @param user Principal hasil verifikasi token JWT
+     * @return ResponseEntity dengan informasi pengguna dari token
      */
     @GetMapping("/me")
-    public ResponseEntity<Map<String, Object>> me(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<Map<String, Object>> me(@AuthenticationPrincipal AuthenticatedUser user) {
         Map<String, Object> response = new HashMap<>();
 
-        // Validasi format header Authorization
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            response.put("status", 400);
-            response.put("message", "Authorization header missing or invalid");
-            return ResponseEntity.status(400).body(response);
-        }
-
-        try {
-            String token = authHeader.replace("Bearer ", "").trim();
-
-            // Validasi token JWT
-            if (!jwtUtil.validateToken(token)) {
-                response.put("status", 401);
-                response.put("message", "Token tidak valid atau expired");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            // Ekstrak claims dari token JWT
-            Claims claims = jwtUtil.getAllClaimsFromToken(token);
-
-            // Membuat response dengan informasi dari token
-            response.put("status", 200);
-            response.put("username", claims.getSubject()); // Subjek token biasanya berisi username
-            response.put("role", claims.get("role")); // Role pengguna
-            response.put("issuedAt", claims.getIssuedAt()); // Waktu pembuatan token
-            response.put("expiration", claims.getExpiration()); // Waktu kadaluarsa token
-            response.put("config_map", configMapValue); // Nilai dari config map
-            response.put("secret", secretValue); // Nilai dari secret
-
-            return ResponseEntity.ok(response);
+        // Membuat response dengan informasi dari token
+        response.put("status", 200);
+        response.put("username", user.username()); // Subjek token biasanya berisi username
+        response.put("role", user.role()); // Role pengguna
+        response.put("issuedAt", user.issuedAt()); // Waktu pembuatan token
+        response.put("expiration", user.expiration()); // Waktu kadaluarsa token
+        response.put("config_map", configMapValue); // Nilai dari config map
+        response.put("secret", secretValue); // Nilai dari secret
 
-        } catch (Exception e) {
-            response.put("status", 401);
-            response.put("message", "Token tidak valid");
-            return ResponseEntity.status(401).body(response);
-        }
+        return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.security.AuthenticatedUser;
+import com.bni.bni.service.ChunkedUploadService;
+import com.bni.bni.service.ChunkedUploadService.UploadSession;
+import com.bni.bni.service.FileStorageService.StoredFile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller upload bertahap (resumable) untuk file besar:
+ * buka sesi, kirim chunk (paralel, urutan bebas), lalu selesaikan.
+ * Jika koneksi terputus, GET status sesi menunjukkan chunk mana yang perlu dikirim ulang.
+ */
+@RestController
+@RequestMapping("/api/files/uploads")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param chunkedUploadService service upload bertahap
+     */
+    public ChunkedUploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    /**
+     * Endpoint membuka sesi upload
+     * @param request body JSON berisi file_name, size dan chunk_size (opsional)
+     * @param user pengguna dari token JWT, null jika upload tanpa token
+     * @return ResponseEntity berisi upload_id, chunk_size dan chunk_count
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> open(@RequestBody Map<String, Object> request,
+                                                    @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        UploadSession session;
+        try {
+            Object fileName = request.get("file_name");
+            Long size = asLong(request.get("size"), "size");
+            Long chunkSize = asLong(request.get("chunk_size"), "chunk_size");
+            if (size == null) {
+                throw new IllegalArgumentException("size wajib diisi");
+            }
+            session = chunkedUploadService.open(fileName == null ? null : fileName.toString(), size,
+                    chunkSize == null ? null : (int) Math.min(chunkSize, Integer.MAX_VALUE),
+                    request.get("content_type") == null ? null : request.get("content_type").toString(),
+                    user == null ? null : user.username());
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
+
+        Map<String, Object> response = toResponse(session);
+        response.put("status", 201);
+        response.put("message", "Upload session created");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Endpoint status sesi upload
+     * @param uploadId id sesi
+     * @return ResponseEntity berisi data sesi dan daftar chunk yang sudah diterima
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String uploadId) throws IOException {
+        Map<String, Object> response = toResponse(chunkedUploadService.status(uploadId));
+        response.put("status", 200);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Endpoint mengirim satu chunk, body = isi chunk.
+     * Contoh: curl -T part0 -H "X-Chunk-Sha256: ..." http://localhost:8080/api/files/uploads/{upload_id}/chunks/0
+     * @param uploadId id sesi
+     * @param index nomor chunk (mulai 0)
+     * @param sha256 header X-Chunk-Sha256, hash SHA-256 (hex) isi chunk (opsional, tetapi disarankan)
+     * @param body stream body request
+     * @return ResponseEntity berisi nomor chunk dan hash SHA-256 yang diterima
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<Map<String, Object>> putChunk(@PathVariable String uploadId,
+                                                        @PathVariable int index,
+                                                        @RequestHeader(value = "X-Chunk-Sha256", required = false) String sha256,
+                                                        InputStream body) throws IOException {
+        String received;
+        try {
+            received = chunkedUploadService.writeChunk(uploadId, index, body, sha256);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
+        return ResponseEntity.ok(Map.of(
+                "status", 200,
+                "message", "Chunk received",
+                "index", index,
+                "sha256", received));
+    }
+
+    /**
+     * Endpoint menyelesaikan sesi upload setelah semua chunk diterima
+     * @param uploadId id sesi
+     * @param sha256 header X-Content-Sha256, hash SHA-256 (hex) seluruh file (opsional)
+     * @return ResponseEntity dengan isi yang sama seperti upload streaming (PUT /api/files/{nama_file})
+     */
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> complete(@PathVariable String uploadId,
+                                                        @RequestHeader(value = "X-Content-Sha256", required = false) String sha256)
+            throws IOException {
+        StoredFile stored;
+        try {
+            stored = chunkedUploadService.complete(uploadId, sha256);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
+
+        String fileUrl = "/api/files/" + stored.fileName();
+        return ResponseEntity.ok(Map.of(
+                "status", 200,
+                "message", "File uploaded successfully",
+                "fileName", stored.fileName(),
+                "size", stored.size(),
+                "sha256", stored.hash(),
+                "fileUrl", fileUrl,
+                "versionedUrl", fileUrl + "?v=" + stored.hash()));
+    }
+
+    /**
+     * Endpoint membatalkan sesi upload
+     * @param uploadId id sesi
+     * @return ResponseEntity berisi status dan pesan
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abort(@PathVariable String uploadId) throws IOException {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.ok(Map.of(
+                "status", 200,
+                "message", "Upload session aborted"));
+    }
+
+    private static Map<String, Object> toResponse(UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("upload_id", session.uploadId());
+        response.put("file_name", session.fileName());
+        response.put("size", session.size());
+        response.put("chunk_size", session.chunkSize());
+        response.put("chunk_count", session.chunkCount());
+        response.put("received_chunks", session.receivedChunks());
+        return response;
+    }
+
+    private static Long asLong(Object value, String field) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " harus berupa angka");
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "status", 400,
+                "message", "Error: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.dto.DirectoryEntry;
+import com.bni.bni.service.DirectoryService;
+import com.bni.bni.service.DirectoryService.DirectoryPage;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller admin untuk pencarian direktori user/profil.
+ * Hanya bisa diakses oleh role ADMIN (diatur di SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/directory")
+public class DirectoryController {
+
+    private final DirectoryService directoryService;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param directoryService service pencarian direktori
+     */
+    public DirectoryController(DirectoryService directoryService) {
+        this.directoryService = directoryService;
+    }
+
+    /**
+     * Endpoint pencarian direktori berdasarkan prefix username, email, nama depan atau nama belakang.
+     * Memakai keyset pagination: kirim next_cursor dari response sebelumnya sebagai parameter cursor.
+     * @param q prefix pencarian (opsional)
+     * @param cursor cursor halaman berikutnya (opsional)
+     * @param limit ukuran halaman (opsional)
+     * @return ResponseEntity berisi data halaman dan next_cursor
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> search(@RequestParam(required = false) String q,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        DirectoryPage page;
+        try {
+            page = directoryService.search(q, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            response.put("status", 400);
+            response.put("message", "Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("status", 200);
+        response.put("data", page.entries().stream().map(DirectoryEntry::toResponse).toList());
+        response.put("next_cursor", page.nextCursor());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,27 +1,51 @@
 package com.bni.bni.controller;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Map;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.security.AuthenticatedUser;
+import com.bni.bni.service.ContentEncodingService;
+import com.bni.bni.service.ContentEncodingService.EncodedFile;
+import com.bni.bni.service.FileStorageService;
+import com.bni.bni.service.FileStorageService.FileInfo;
+import com.bni.bni.service.FileStorageService.StoredFile;
+import com.bni.bni.service.ImageDerivativeService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
 
 /**
  * Controller untuk menangani operasi file seperti upload dan download
@@ -29,42 +53,67 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
+
+    // Atribut request Tomcat untuk sendfile (lihat org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
     
-    // Direktori tempat file akan disimpan, diambil dari application.properties
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    // Service penyimpanan file (blob store content-addressed)
+    private final FileStorageService fileStorageService;
+
+    // Service turunan gambar (thumbnail) untuk parameter w/fmt
+    private final ImageDerivativeService imageDerivativeService;
+
+    // Service varian terkompresi (zstd/gzip) untuk file teks
+    private final ContentEncodingService contentEncodingService;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param fileStorageService service penyimpanan file
+     * @param imageDerivativeService service turunan gambar
+     * @param contentEncodingService service varian terkompresi
+     */
+    public FileController(FileStorageService fileStorageService, ImageDerivativeService imageDerivativeService,
+                          ContentEncodingService contentEncodingService) {
+        this.fileStorageService = fileStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.contentEncodingService = contentEncodingService;
+    }
 
     /**
      * Endpoint untuk mengupload file
      * @param file File yang akan diupload (dikirim sebagai multipart/form-data)
+     * @param user pengguna dari token JWT, null jika upload tanpa token
      * @return ResponseEntity yang berisi status, pesan, nama file, dan URL file
      */
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file,
+                                        @AuthenticationPrincipal AuthenticatedUser user) {
         try{
-            // Membuat direktori upload jika belum ada
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)){
-                Files.createDirectories(uploadPath);
-            }
-
-            // Membersihkan nama file dan menyimpannya ke direktori upload
-            String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            // Menyimpan file ke blob store (temp file multipart dipindahkan, bukan disalin ulang)
+            StoredFile stored = fileStorageService.store(file.getOriginalFilename(), file, uploaderOf(user));
 
             // Membuat URL untuk mengakses file yang diupload
-            String fileUrl = "/api/files/" + fileName;
+            String fileUrl = "/api/files/" + stored.fileName();
 
             // Mengembalikan response sukses
             return ResponseEntity.ok().body(
                 Map.of(
                     "status", 200,
                     "message", "File uploaded successfully",
-                    "fileName", fileName,
+                    "fileName", stored.fileName(),
                     "fileUrl", fileUrl
                 )
             );
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(
+                Map.of(
+                    "status", 400,
+                    "message", "Error: " + e.getMessage()
+                )
+            );
         } catch(IOException e){
             // Mengembalikan response error jika terjadi exception
             return ResponseEntity.status(500).body(
@@ -77,39 +126,266 @@ public class FileController {
     }
 
     /**
-     * Endpoint untuk mendownload/melihat file
+     * Endpoint upload streaming: body request (bukan multipart) langsung ditulis ke blob store
+     * dalam satu kali jalan sambil di-hash, tanpa temp file multipart. Cocok untuk file besar.
+     * Contoh: curl -T scan.pdf http://localhost:8080/api/files/scan.pdf
+     * @param filename nama file tujuan
+     * @param contentLength header Content-Length (opsional, untuk menolak file terlalu besar sebelum dibaca)
+     * @param contentType header Content-Type (opsional, dipakai jika ekstensi file tidak dikenal)
+     * @param user pengguna dari token JWT, null jika upload tanpa token
+     * @param body stream body request
+     * @return ResponseEntity yang berisi status, pesan, nama file, ukuran, hash SHA-256, URL file dan URL berversi
+     */
+    @PutMapping("/{filename:.+}")
+    public ResponseEntity<Map<String, Object>> uploadStream(
+            @PathVariable String filename,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            InputStream body) throws IOException {
+        StoredFile stored;
+        try {
+            stored = fileStorageService.store(filename, body, contentLength == null ? -1 : contentLength,
+                    contentType, uploaderOf(user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", 400,
+                    "message", "Error: " + e.getMessage()));
+        }
+
+        // URL berversi (versi = hash isi file) bisa di-cache selamanya oleh client/proxy (lihat getFile)
+        String fileUrl = "/api/files/" + stored.fileName();
+
+        return ResponseEntity.ok(Map.of(
+                "status", 200,
+                "message", "File uploaded successfully",
+                "fileName", stored.fileName(),
+                "size", stored.size(),
+                "sha256", stored.hash(),
+                "fileUrl", fileUrl,
+                "versionedUrl", fileUrl + "?v=" + stored.hash()));
+    }
+
+    /**
+     * Endpoint untuk mendownload/melihat file.
+     * Mendukung request kondisional (If-None-Match / If-Modified-Since -> 304), byte range (206, termasuk
+     * multi-range multipart/byteranges, dengan If-Range), dan transfer zero-copy lewat sendfile Tomcat
+     * jika connector mendukungnya (tanpa sendfile, isi file disalin lewat buffer stream response).
+     * HEAD hanya mengirim header, tanpa membaca isi file. URL dengan ?v={etag} di-cache sebagai immutable.
+     * Dengan blob store S3, file yang tidak sering diminta diarahkan (302) ke presigned URL.
+     * File teks dikirim sebagai varian zstd/gzip yang sudah dikompresi sebelumnya sesuai Accept-Encoding.
      * @param filename Nama file yang akan didownload/dilihat
+     * @param version versi file (nilai ETag tanpa tanda kutip) jika URL berversi
+     * @param width lebar turunan gambar (opsional, gambar tidak pernah diperbesar)
+     * @param format format turunan gambar, jpg atau png (opsional)
+     * @param requestHeaders header request (Range, If-Range)
+     * @param webRequest request untuk pengecekan kondisional
+     * @param request request servlet untuk atribut sendfile
+     * @param response response servlet untuk transfer tanpa sendfile
      * @return ResponseEntity yang berisi file yang diminta
      */
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String filename) {
-        try{
-            // Mendapatkan path file dan membuat Resource dari file tersebut
-            Path filePath = Paths.get(uploadDir).resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            // Memeriksa apakah file ada
-            if (!resource.exists()){
+    public ResponseEntity<?> getFile(@PathVariable String filename,
+                                     @RequestParam(value = "v", required = false) String version,
+                                     @RequestParam(value = "w", required = false) Integer width,
+                                     @RequestParam(value = "fmt", required = false) String format,
+                                     @RequestHeader HttpHeaders requestHeaders,
+                                     ServletWebRequest webRequest,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) {
+        try {
+            FileInfo file = findFile(filename);
+            if (file == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            // Mendeteksi content type file
-            String contentType = Files.probeContentType(filePath);
+            // URL berversi isinya tidak pernah berubah, selain itu client wajib revalidasi (murah lewat 304)
+            CacheControl cacheControl = file.version().equals(version)
+                    ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                    : CacheControl.noCache().cachePublic();
+
+            // Turunan gambar (?w=128&fmt=jpg) disajikan persis seperti file biasa dari cache turunan
+            URI redirect = null;
+            boolean negotiated = false;
+            EncodedFile encoded = null;
+            if (width != null || format != null) {
+                try {
+                    file = imageDerivativeService.derivative(file, width, format);
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(Map.of(
+                        "status", 400,
+                        "message", "Error: " + e.getMessage()));
+                }
+            } else {
+                // Varian terkompresi yang sudah ada disajikan seperti file biasa, dengan ETag milik varian itu
+                negotiated = contentEncodingService.isCompressible(file);
+                if (negotiated) {
+                    String acceptEncoding = String.join(",", requestHeaders.getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+                    encoded = contentEncodingService.variant(file, acceptEncoding).orElse(null);
+                }
+                if (encoded != null) {
+                    file = encoded.file();
+                } else {
+                    // Blob store S3: file yang tidak sering diminta diunduh client langsung dari storage
+                    redirect = fileStorageService.downloadUrl(file).orElse(null);
+                }
+            }
+            // Response file teks berbeda per Accept-Encoding, termasuk 304 dan redirect
+            HttpHeaders varyHeaders = new HttpHeaders();
+            if (negotiated) {
+                varyHeaders.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            }
+
+            if (webRequest.checkNotModified(file.etag(), file.lastModified())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(file.etag())
+                    .cacheControl(cacheControl)
+                    .headers(varyHeaders)
+                    .build();
+            }
+
+            if (redirect != null) {
+                // Presigned URL punya masa berlaku, jadi redirect-nya tidak boleh di-cache
+                return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(redirect)
+                    .eTag(file.etag())
+                    .cacheControl(CacheControl.noStore())
+                    .headers(varyHeaders)
+                    .build();
+            }
+            boolean head = HttpMethod.HEAD.matches(request.getMethod());
+            if (encoded == null && !head) {
+                file = fileStorageService.fetch(file);
+                if (negotiated) {
+                    // Dikompresi sekali di background, request berikutnya mendapat varian terkompresi
+                    contentEncodingService.compressLater(file);
+                }
+            }
 
-            // Jika content type tidak terdeteksi, gunakan default binary type
-            if (contentType == null){
-                contentType = "application/octet-stream";
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(file.etag());
+            headers.setLastModified(file.lastModified());
+            headers.setCacheControl(cacheControl);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.addAll(varyHeaders);
+            if (encoded != null) {
+                // Range berlaku pada isi terkompresi (representasi yang dikirim), sesuai RFC 9110
+                headers.set(HttpHeaders.CONTENT_ENCODING, encoded.encoding().token());
             }
+            headers.setContentType(file.mediaType());
+            headers.setContentDisposition(ContentDisposition.inline()
+                .filename(file.fileName(), StandardCharsets.UTF_8)
+                .build());
 
-            // Mengembalikan file dengan header yang sesuai
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                "inline; filename=\""+ resource.getFilename()+"\"")
-                .body(resource);
+            // Range hanya berlaku untuk GET (RFC 9110), HEAD selalu mendapat header response 200
+            List<HttpRange> ranges;
+            try {
+                ranges = !head && ifRangeMatches(requestHeaders, file) ? requestHeaders.getRange() : List.of();
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(file);
+            }
+
+            // Multi-range: dikirim sebagai multipart/byteranges oleh converter ResourceRegion bawaan Spring
+            if (ranges.size() > 1) {
+                return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file.path()));
+            }
+
+            HttpStatus status = HttpStatus.OK;
+            long start = 0;
+            long end = file.size() - 1;
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(file.size());
+                    end = ranges.get(0).getRangeEnd(file.size());
+                } catch (IllegalArgumentException e) {
+                    return rangeNotSatisfiable(file);
+                }
+                if (start >= file.size() || start > end) {
+                    return rangeNotSatisfiable(file); // HttpRange tidak menolak awal range di luar ukuran file
+                }
+                status = HttpStatus.PARTIAL_CONTENT;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+            }
+            long length = end - start + 1;
+            headers.setContentLength(length);
+
+            if (head) {
+                return ResponseEntity.status(status).headers(headers).build();
+            }
+
+            // Zero-copy: Tomcat mengirim file langsung dari page cache ke socket (sendfile) setelah header ditulis
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.path().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, end + 1);
+                return ResponseEntity.status(status).headers(headers).build();
+            }
+
+            // Connector tanpa sendfile (misal TLS): header ditulis langsung lalu FileChannel.transferTo
+            // ke stream response. Bukan zero-copy: channel dari OutputStream menyalin isi file lewat buffer heap
+            // per potongan (tanpa memuat seluruh file). Body sudah ditulis sehingga tidak ada yang dikembalikan ke Spring
+            response.setStatus(status.value());
+            headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                long sent = 0;
+                while (sent < length) {
+                    sent += channel.transferTo(start + sent, length - sent, target);
+                }
+            }
+            return null;
+        } catch(TooManyRequestsException e){
+            // Antrian render turunan gambar penuh: 429 dari ApiExceptionHandler
+            throw e;
         } catch(Exception e){
             // Mengembalikan error 500 jika terjadi exception
             return ResponseEntity.status(500).build();
         }
-    }    
-}
\ No newline at end of file
+    }
+
+    private static String uploaderOf(AuthenticatedUser user) {
+        return user == null ? null : user.username();
+    }
+
+    /**
+     * Metadata file dari katalog, atau null jika file tidak ada / nama file tidak valid
+     */
+    private FileInfo findFile(String filename) {
+        try {
+            return fileStorageService.describe(filename).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null; // Nama file tidak valid diperlakukan sama seperti file tidak ada
+        }
+    }
+
+    /**
+     * If-Range: range hanya dipakai jika file belum berubah sejak client menyimpan bagian sebelumnya,
+     * jika sudah berubah seluruh file dikirim ulang (200).
+     * If-Range memakai perbandingan kuat (RFC 9110 13.1.5), sehingga ETag weak (W/"...") tidak pernah cocok.
+     */
+    private static boolean ifRangeMatches(HttpHeaders requestHeaders, FileInfo file) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return !file.etag().startsWith("W/") && ifRange.equals(file.etag());
+        }
+        try {
+            // Tanggal HTTP berpresisi detik
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() / 1000
+                    == file.lastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static ResponseEntity<?> rangeNotSatisfiable(FileInfo file) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size())
+            .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.security.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller untuk mempublikasikan public key JWT dalam format JWKS (RFC 7517),
+ * sehingga gateway dan service lain bisa memverifikasi token secara lokal
+ * tanpa memanggil /api/auth/me
+ */
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    // Lama response JWKS boleh di-cache oleh client/proxy
+    private final Duration maxAge;
+
+    /**
+     * Constructor untuk dependency injection
+     * @param keyRing key ring yang menyimpan public key aktif dan sebelumnya
+     * @param maxAge durasi cache response (sebaiknya lebih pendek dari jeda rotasi key)
+     */
+    public JwksController(JwtKeyRing keyRing, @Value("${jwt.jwks.max-age:5m}") Duration maxAge) {
+        this.keyRing = keyRing;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Endpoint JWKS. Dalam mode HS256 daftar key kosong karena secret tidak boleh dipublikasikan.
+     * @return ResponseEntity berisi {"keys": [...]} dengan header Cache-Control
+     */
+    @GetMapping(value = "/.well-known/jwks.json", produces = "application/jwk-set+json")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(Map.of("keys", keyRing.getPublicJwks()));
+    }
+}
@@ -1,124 +1,207 @@
 package com.bni.bni.controller;
 
+import com.bni.bni.dto.ProfileView;
+import com.bni.bni.security.AuthenticatedUser;
 import com.bni.bni.service.ProfileService;
-import com.bni.bni.util.JwtUtil;
-import io.jsonwebtoken.Claims;
+import com.bni.bni.service.ProfileService.PatchResult;
+import com.bni.bni.service.ProfileService.VersionPrecondition;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
- * Controller untuk mengelola operasi terkait profil pengguna
+ * Controller untuk mengelola operasi terkait profil pengguna.
+ * Token JWT sudah diverifikasi oleh JwtAuthenticationFilter, user yang login diterima sebagai principal.
  */
 @RestController
 @RequestMapping("/api")
 public class ProfileController {
 
-    // Dependency injection untuk ProfileService dan JwtUtil
+    // Dependency injection untuk ProfileService
     private final ProfileService profileService;
-    private final JwtUtil jwtUtil;
 
     /**
      * Constructor untuk dependency injection
      * @param profileService service untuk operasi profil
-     * @param jwtUtil utility untuk operasi JWT
      */
-    public ProfileController(ProfileService profileService, JwtUtil jwtUtil) {
+    public ProfileController(ProfileService profileService) {
         this.profileService = profileService;
-        this.jwtUtil = jwtUtil;
     }
 
     /**
      * Endpoint untuk memperbarui data profil pengguna
-     * @param authHeader Header Authorization yang berisi token JWT
+     * @param user Principal hasil verifikasi token JWT
      * @param requestBody Request body yang berisi data profil yang akan diupdate
      * @return ResponseEntity yang berisi status dan pesan response
      */
     @PostMapping("/me/update")
     public ResponseEntity<Map<String, Object>> updateProfile(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestBody Map<String, String> requestBody) {
         
         // Map untuk menyimpan response
         Map<String, Object> response = new HashMap<>();
 
-        try {
-            // Validasi token
-            String token = authHeader.replace("Bearer ", "").trim();
-            if (!jwtUtil.validateToken(token)) {
-                response.put("status", 401);
-                response.put("message", "Invalid or expired token");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            // Ekstrak user_id dari token
-            Claims claims = jwtUtil.getAllClaimsFromToken(token);
-            Long userId = claims.get("user_id", Long.class);
-
-            // Parse data dari request body
-            String firstName = requestBody.get("first_name");
-            String lastName = requestBody.get("last_name");
-            String placeOfBirth = requestBody.get("place_of_birth");
-            LocalDate dateOfBirth = LocalDate.parse(requestBody.get("date_of_birth"));
-
-            // Panggil service untuk update profil
-            String result = profileService.updateProfile(
-                userId, firstName, lastName, placeOfBirth, dateOfBirth);
+        // Parse data dari request body
+        String firstName = requestBody.get("first_name");
+        String lastName = requestBody.get("last_name");
+        String placeOfBirth = requestBody.get("place_of_birth");
+        String dateOfBirthValue = requestBody.get("date_of_birth");
 
-            // Response sukses
-            response.put("status", 200);
-            response.put("message", result);
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            // Handle error dan return response error
+        LocalDate dateOfBirth = parseDate(dateOfBirthValue);
+        if (dateOfBirth == null) {
             response.put("status", 400);
-            response.put("message", "Error: " + e.getMessage());
+            response.put("message", "Error: date_of_birth harus berformat yyyy-MM-dd");
             return ResponseEntity.badRequest().body(response);
         }
+
+        // Panggil service untuk update profil
+        String result = profileService.updateProfile(
+            user.userId(), firstName, lastName, placeOfBirth, dateOfBirth);
+
+        // Response sukses
+        response.put("status", 200);
+        response.put("message", result);
+        return ResponseEntity.ok(response);
     }
 
     /**
-     * Endpoint untuk mendapatkan data profil pengguna
-     * @param authHeader Header Authorization yang berisi token JWT
-     * @return ResponseEntity yang berisi status dan data profil
+     * Endpoint untuk mendapatkan data profil pengguna.
+     * Response membawa ETag (user dan versi profil); jika If-None-Match masih sama, dikembalikan 304
+     * tanpa body sehingga client tidak perlu mengunduh ulang data yang tidak berubah.
+     * Response berbeda per token, sehingga ditandai Vary: Authorization.
+     * @param user Principal hasil verifikasi token JWT
+     * @param request request web untuk pengecekan If-None-Match
+     * @return ResponseEntity yang berisi status dan data profil, atau 304
      */
     @GetMapping("/me/profile")
-    public ResponseEntity<Map<String, Object>> getProfile(
-            @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<Map<String, Object>> getProfile(@AuthenticationPrincipal AuthenticatedUser user,
+                                                          WebRequest request) {
         
         // Map untuk menyimpan response
         Map<String, Object> response = new HashMap<>();
 
-        try {
-            // Validasi token
-            String token = authHeader.replace("Bearer ", "").trim();
-            if (!jwtUtil.validateToken(token)) {
-                response.put("status", 401);
-                response.put("message", "Invalid or expired token");
-                return ResponseEntity.status(401).body(response);
-            }
+        // Panggil service untuk mendapatkan data profil (dari cache jika ada)
+        Optional<ProfileView> profile = profileService.getProfileView(user.userId());
 
-            // Ekstrak user_id dari token
-            Claims claims = jwtUtil.getAllClaimsFromToken(token);
-            Long userId = claims.get("user_id", Long.class);
+        // Profil tidak berubah sejak request sebelumnya: 304 tanpa serialisasi ulang
+        if (profile.isPresent() && request.checkNotModified(profile.get().etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(profile.get().etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .build();
+        }
 
-            // Panggil service untuk mendapatkan data profil
-            Map<String, Object> profileData = profileService.getProfileData(userId);
+        // Response sukses
+        response.put("status", 200);
+        response.put("data", profile.map(ProfileView::toResponse).orElse(Collections.emptyMap()));
 
-            // Response sukses
-            response.put("status", 200);
-            response.put("data", profileData);
-            return ResponseEntity.ok(response);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .varyBy(HttpHeaders.AUTHORIZATION);
+        profile.ifPresent(view -> builder.eTag(view.etag()));
+        return builder.body(response);
+    }
 
-        } catch (Exception e) {
-            // Handle error dan return response error
+    /**
+     * Endpoint untuk memperbarui sebagian data profil (PATCH).
+     * Hanya field yang dikirim yang diubah. Header If-Match (ETag dari GET, boleh berupa daftar) bersifat
+     * opsional; jika dikirim dan tidak ada ETag yang cocok dengan versi saat ini, update ditolak dengan 412.
+     * "If-Match: *" hanya terpenuhi jika profil sudah ada.
+     * @param user Principal hasil verifikasi token JWT
+     * @param ifMatch header If-Match berisi ETag versi profil
+     * @param requestBody field profil yang akan diubah
+     * @return ResponseEntity berisi data profil terbaru beserta ETag barunya
+     */
+    @PatchMapping("/me/profile")
+    public ResponseEntity<Map<String, Object>> patchProfile(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, String> requestBody) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        if (requestBody.containsKey("date_of_birth") && requestBody.get("date_of_birth") != null
+                && parseDate(requestBody.get("date_of_birth")) == null) {
             response.put("status", 400);
-            response.put("message", "Error: " + e.getMessage());
+            response.put("message", "Error: date_of_birth harus berformat yyyy-MM-dd");
             return ResponseEntity.badRequest().body(response);
         }
+
+        VersionPrecondition precondition = ifMatch == null ? null : parseIfMatch(user.userId(), ifMatch);
+
+        PatchResult result = profileService.patchProfile(user.userId(), precondition, requestBody);
+        switch (result.status()) {
+            case USER_NOT_FOUND -> {
+                response.put("status", 404);
+                response.put("message", "User not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            case PRECONDITION_FAILED -> {
+                response.put("status", 412);
+                response.put("message", "Profile has been modified");
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+            }
+            default -> {
+                response.put("status", 200);
+                response.put("message", "Profile updated successfully");
+                response.put("data", result.profile().toResponse());
+                return ResponseEntity.ok().eTag(result.profile().etag()).body(response);
+            }
+        }
+    }
+
+    /**
+     * Parse header If-Match ("*" atau daftar ETag dipisah koma).
+     * If-Match memakai perbandingan kuat, jadi ETag weak (W/"...") tidak pernah cocok,
+     * begitu juga ETag milik user lain atau yang formatnya tidak dikenali.
+     * @param userId ID pengguna yang login
+     * @param ifMatch nilai header If-Match
+     * @return precondition (versi yang diterima bisa kosong, artinya tidak ada yang cocok)
+     */
+    static VersionPrecondition parseIfMatch(Long userId, String ifMatch) {
+        List<ETag> tags = ETag.parse(ifMatch);
+        Set<Long> versions = new HashSet<>();
+        for (ETag tag : tags) {
+            if (tag.isWildcard()) {
+                return new VersionPrecondition(true, Set.of());
+            }
+            Long version = tag.weak() ? null : ProfileView.versionOf(userId, tag.tag());
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        return new VersionPrecondition(false, versions);
+    }
+
+    /**
+     * Parse tanggal berformat ISO (yyyy-MM-dd)
+     * @return tanggal hasil parse, atau null jika kosong / formatnya salah
+     */
+    private static LocalDate parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
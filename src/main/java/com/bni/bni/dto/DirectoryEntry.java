@@ -0,0 +1,35 @@
+package com.bni.bni.dto;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Satu baris hasil pencarian direktori user (data user + nama dari profil, tanpa password hash)
+ *
+ * @param id ID pengguna
+ * @param username username pengguna
+ * @param emailAddress email pengguna
+ * @param role role pengguna
+ * @param createdAt waktu pembuatan akun (bagian dari kunci keyset)
+ * @param firstName nama depan dari profil (null jika belum ada profil)
+ * @param lastName nama belakang dari profil (null jika belum ada profil)
+ */
+public record DirectoryEntry(Long id, String username, String emailAddress, String role,
+                             OffsetDateTime createdAt, String firstName, String lastName) {
+
+    /**
+     * @return data user dengan key snake_case seperti response API
+     */
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("user_id", id);
+        response.put("username", username);
+        response.put("email_address", emailAddress);
+        response.put("role", role);
+        response.put("created_at", createdAt.toString());
+        response.put("first_name", firstName);
+        response.put("last_name", lastName);
+        return response;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bni.bni.dto;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Projection read-only dari kolom profil, diisi langsung oleh query JPQL
+ * tanpa memuat entitas Profile/User (tidak ada managed entity maupun dirty-checking)
+ *
+ * @param userId ID pengguna pemilik profil
+ * @param firstName nama depan
+ * @param lastName nama belakang
+ * @param placeOfBirth tempat lahir
+ * @param dateOfBirth tanggal lahir
+ * @param updatedAt waktu terakhir profil diupdate
+ * @param version versi record (optimistic locking), bersama userId dipakai sebagai ETag
+ */
+public record ProfileView(Long userId, String firstName, String lastName, String placeOfBirth,
+                          LocalDate dateOfBirth, OffsetDateTime updatedAt, Long version) {
+
+    /**
+     * ETag kuat berbentuk "userId-versi". Versi saja tidak cukup: dua user dengan versi sama akan punya ETag sama,
+     * sehingga di browser bersama If-None-Match user B bisa cocok dengan salinan cache milik user A.
+     * @return ETag (dengan tanda kutip)
+     */
+    public String etag() {
+        return "\"" + userId + "-" + version + "\"";
+    }
+
+    /**
+     * Mengambil versi dari ETag yang dibuat oleh {@link #etag()}
+     * @param userId ID pengguna yang seharusnya memiliki ETag tersebut
+     * @param tag nilai ETag tanpa tanda kutip
+     * @return versi, atau null jika ETag milik user lain / formatnya tidak dikenali
+     */
+    public static Long versionOf(Long userId, String tag) {
+        String prefix = userId + "-";
+        if (!tag.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(tag.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return data profil dengan key snake_case seperti response API
+     */
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("first_name", firstName);
+        response.put("last_name", lastName);
+        response.put("place_of_birth", placeOfBirth);
+        response.put("date_of_birth", dateOfBirth == null ? null : dateOfBirth.toString());
+        response.put("updated_at", updatedAt == null ? null : updatedAt.toString());
+        return Collections.unmodifiableMap(response);
+    }
+}
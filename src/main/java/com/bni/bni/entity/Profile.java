@@ -1,30 +1,34 @@
 package com.bni.bni.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 
 /**
  * Entitas yang merepresentasikan data profil pengguna dalam sistem
  * Terhubung dengan tabel 'profiles' di database
+ * UPDATE hanya menulis kolom yang berubah (@DynamicUpdate)
  */
 @Entity
 @Table(name = "profiles")
+@DynamicUpdate
 public class Profile {
 
     /**
      * ID unik sebagai primary key
-     * Dibangkitkan secara otomatis oleh database
+     * Diisi oleh ShardedIdGenerator (sequence shard << 10 | bucket user), sehingga tetap unik
+     * saat bucket dipindah ke shard lain. Entity baru dikenali dari version yang masih null.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     /**
      * Relasi one-to-one dengan entitas User
-     * Menggunakan user_id sebagai foreign key
+     * Menggunakan user_id sebagai foreign key, dimuat secara lazy
+     * (operasi profil hanya butuh referensi foreign key, bukan seluruh data User)
      */
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
@@ -66,6 +70,13 @@ public class Profile {
     @Column(name = "updated_at", nullable = false)
     private OffsetDateTime updatedAt = OffsetDateTime.now();
 
+    /**
+     * Dipakai juga (bersama user_id) sebagai ETag di endpoint /api/me/profile
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     // ============== CONSTRUCTORS ==============
     
     /**
@@ -102,6 +113,11 @@ public class Profile {
     public OffsetDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
 
+    /**
+     * @return Versi record profil (null untuk profil yang belum disimpan)
+     */
+    public Long getVersion() { return version; }
+
     /**
      * @return Waktu terakhir update record profil
      */
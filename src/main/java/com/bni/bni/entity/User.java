@@ -1,6 +1,7 @@
 package com.bni.bni.entity;
 
 import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
 import java.time.OffsetDateTime;
 
 /**
@@ -9,13 +10,16 @@ import java.time.OffsetDateTime;
  */
 @Entity
 @Table(name = "users") // Menentukan nama tabel di database
-public class User {
+public class User implements Persistable<Long> {
 
     /************* KOLOM : id **************/
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Auto-increment primary key
+    @Id // Diisi oleh ShardedIdGenerator sebelum disimpan (sequence shard << 10 | bucket username)
     private Long id;
 
+    // Penanda entity baru, agar save() dengan id yang sudah diisi langsung INSERT tanpa SELECT (merge)
+    @Transient
+    private boolean newEntity = true;
+
     /************* KOLOM : username **************/
     @Column(nullable = false, unique = true) // Tidak boleh null dan harus unik
     private String username; // Nama pengguna untuk login
@@ -136,4 +140,15 @@ public class User {
     public boolean getIsActive() {
         return isActive;
     }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
 }
\ No newline at end of file
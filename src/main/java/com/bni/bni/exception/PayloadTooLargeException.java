@@ -0,0 +1,20 @@
+package com.bni.bni.exception;
+
+/**
+ * Exception ketika body request melebihi batas ukuran yang diizinkan.
+ * Diterjemahkan menjadi HTTP 413 oleh ApiExceptionHandler.
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    // Batas ukuran dalam byte
+    private final long maxSize;
+
+    public PayloadTooLargeException(String message, long maxSize) {
+        super(message);
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
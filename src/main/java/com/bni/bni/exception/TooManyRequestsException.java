@@ -0,0 +1,22 @@
+package com.bni.bni.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception ketika server sedang penuh dan request harus dicoba ulang nanti.
+ * Diterjemahkan menjadi HTTP 429 dengan header Retry-After oleh ApiExceptionHandler.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    // Saran jeda sebelum client mencoba lagi
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bni.bni.exception;
+
+/**
+ * Exception ketika sesi upload bertahap tidak ditemukan (id salah, sudah selesai, dibatalkan atau kadaluarsa).
+ * Diterjemahkan menjadi HTTP 404 oleh ApiExceptionHandler.
+ */
+public class UploadSessionNotFoundException extends RuntimeException {
+
+    public UploadSessionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,205 @@
+package com.bni.bni.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Index penyimpanan file: nama file -> hash SHA-256 isinya (stored_files) dan jumlah referensi per blob (file_blobs).
+ * Method yang mengubah index harus dipanggil di dalam transaksi yang dibuka pemanggil (lihat FileStorageService),
+ * karena urutan lock antar method yang menjaga ref_count tetap konsisten.
+ */
+@Repository
+public class FileIndexRepository {
+
+    /**
+     * Satu entry index
+     * @param name nama file
+     * @param hash hash SHA-256 isi file (hex)
+     * @param size ukuran file dalam byte
+     * @param contentType content type yang dicatat saat upload, null untuk file lama (tentukan dari ekstensi)
+     * @param uploadedBy username pengupload terakhir, null jika upload tanpa token
+     * @param createdAt waktu nama file pertama kali disimpan
+     * @param updatedAt waktu isi file terakhir diganti (waktu upload terakhir, bagian dari kunci keyset)
+     */
+    public record IndexedFile(String name, String hash, long size, String contentType, String uploadedBy,
+                              OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+    }
+
+    private static final String COLUMNS = "name, hash, size, content_type, uploaded_by, created_at, updated_at";
+
+    private static final RowMapper<IndexedFile> ROW_MAPPER = (rs, rowNum) -> new IndexedFile(
+            rs.getString("name"),
+            rs.getString("hash"),
+            rs.getLong("size"),
+            rs.getString("content_type"),
+            rs.getString("uploaded_by"),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("updated_at", OffsetDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public FileIndexRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Mencari entry index berdasarkan nama file
+     * @param name nama file
+     * @return Optional berisi entry jika nama file terdaftar
+     */
+    public Optional<IndexedFile> findByName(String name) {
+        return jdbc.query("SELECT " + COLUMNS + " FROM stored_files WHERE name = :name",
+                new MapSqlParameterSource("name", name), ROW_MAPPER)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Satu halaman daftar file, upload terbaru dulu, dengan seek pada index (updated_at, name)
+     * @param afterUpdatedAt updated_at baris terakhir halaman sebelumnya, null untuk halaman pertama
+     * @param afterName nama file baris terakhir halaman sebelumnya, null untuk halaman pertama
+     * @param limit jumlah baris maksimum
+     * @return daftar entry index
+     */
+    public List<IndexedFile> findPage(OffsetDateTime afterUpdatedAt, String afterName, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM stored_files ");
+        if (afterUpdatedAt != null && afterName != null) {
+            sql.append("WHERE (updated_at, name) < (:afterUpdatedAt, :afterName) ");
+            params.addValue("afterUpdatedAt", afterUpdatedAt);
+            params.addValue("afterName", afterName);
+        }
+        sql.append("ORDER BY updated_at DESC, name DESC LIMIT :limit");
+        return jdbc.query(sql.toString(), params, ROW_MAPPER);
+    }
+
+    /**
+     * Menambah satu referensi ke blob (baris blob dibuat jika belum ada).
+     * Baris blob tetap ter-lock sampai transaksi selesai, sehingga GC tidak bisa menghapus blob ini di tengah jalan.
+     * @param hash hash SHA-256 blob
+     * @param size ukuran blob dalam byte
+     */
+    public void acquireBlob(String hash, long size) {
+        jdbc.update("INSERT INTO file_blobs (hash, size, ref_count, created_at) VALUES (:hash, :size, 1, now()) "
+                        + "ON CONFLICT (hash) DO UPDATE SET ref_count = file_blobs.ref_count + 1, unreferenced_at = NULL",
+                new MapSqlParameterSource("hash", hash).addValue("size", size));
+    }
+
+    /**
+     * Mengurangi satu referensi dari blob. Blob yang referensinya habis dicatat waktunya untuk GC.
+     * @param hash hash SHA-256 blob
+     */
+    public void releaseBlob(String hash) {
+        jdbc.update("UPDATE file_blobs SET ref_count = ref_count - 1, "
+                        + "unreferenced_at = CASE WHEN ref_count = 1 THEN now() ELSE unreferenced_at END "
+                        + "WHERE hash = :hash",
+                new MapSqlParameterSource("hash", hash));
+    }
+
+    /**
+     * Menunda GC blob yang sedang tanpa referensi (unreferenced_at diperbarui ke sekarang). Dipanggil di luar
+     * transaksi sebelum upload memeriksa atau menaruh blob di storage, sehingga blob yang dianggap sudah ada
+     * tidak dihapus GC sebelum referensinya tercatat. Jika GC sedang menghapus blob ini, method ini menunggu
+     * sampai GC selesai (baris blob ter-lock), sehingga pemeriksaan setelahnya melihat blob sudah tidak ada.
+     * @param hash hash SHA-256 blob
+     */
+    public void deferCollection(String hash) {
+        jdbc.update("UPDATE file_blobs SET unreferenced_at = now() WHERE hash = :hash AND ref_count = 0",
+                new MapSqlParameterSource("hash", hash));
+    }
+
+    /**
+     * Mengarahkan nama file ke blob baru. Nama file di-lock (advisory lock transaksi) sebelum hash lamanya dibaca,
+     * sehingga dua upload bersamaan dengan nama yang sama tidak sama-sama lupa melepas referensi blob lama.
+     * @param name nama file
+     * @param hash hash SHA-256 blob baru
+     * @param size ukuran blob dalam byte
+     * @param contentType content type file
+     * @param uploadedBy username pengupload, null jika upload tanpa token
+     * @return hash blob yang sebelumnya dirujuk nama ini, atau empty jika nama baru
+     */
+    public Optional<String> link(String name, String hash, long size, String contentType, String uploadedBy) {
+        MapSqlParameterSource params = new MapSqlParameterSource("name", name)
+                .addValue("hash", hash)
+                .addValue("size", size)
+                .addValue("contentType", contentType)
+                .addValue("uploadedBy", uploadedBy);
+        jdbc.query("SELECT pg_advisory_xact_lock(hashtextextended(:name, 0))", params, rs -> null);
+
+        Optional<String> previous = jdbc.queryForList("SELECT hash FROM stored_files WHERE name = :name", params, String.class)
+                .stream()
+                .findFirst();
+        jdbc.update("INSERT INTO stored_files (" + COLUMNS + ") "
+                        + "VALUES (:name, :hash, :size, :contentType, :uploadedBy, now(), now()) "
+                        + "ON CONFLICT (name) DO UPDATE SET hash = EXCLUDED.hash, size = EXCLUDED.size, "
+                        + "content_type = EXCLUDED.content_type, uploaded_by = EXCLUDED.uploaded_by, updated_at = now()",
+                params);
+        return previous;
+    }
+
+    /**
+     * Mengambil dan me-lock blob tanpa referensi yang sudah melewati masa tenggang.
+     * Blob yang sedang di-lock transaksi lain (misal upload yang baru saja menambah referensinya) dilewati.
+     * @param gracePeriod lama blob harus tanpa referensi sebelum boleh dihapus
+     * @param limit jumlah maksimum blob
+     * @return daftar hash blob yang boleh dihapus
+     */
+    public List<String> lockGarbage(Duration gracePeriod, int limit) {
+        return jdbc.queryForList("SELECT hash FROM file_blobs "
+                        + "WHERE ref_count = 0 AND unreferenced_at < now() - make_interval(secs => :graceSeconds) "
+                        + "ORDER BY unreferenced_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("graceSeconds", gracePeriod.toSeconds()).addValue("limit", limit),
+                String.class);
+    }
+
+    /**
+     * Menghapus baris blob (setelah file-nya dihapus dari disk)
+     * @param hash hash SHA-256 blob
+     */
+    public void deleteBlob(String hash) {
+        jdbc.update("DELETE FROM file_blobs WHERE hash = :hash AND ref_count = 0", new MapSqlParameterSource("hash", hash));
+    }
+
+    /**
+     * Menjalankan aksi sambil memegang advisory lock level sesi dengan nama tertentu, tanpa menunggu lock.
+     * Koneksi pemegang lock ditahan selama aksi berjalan (aksi sendiri memakai koneksi lain dari pool);
+     * lock dilepas saat aksi selesai, atau otomatis jika pod mati dan koneksinya putus.
+     * @param lockName nama lock
+     * @param action aksi yang dijalankan
+     * @return true jika aksi dijalankan, false jika lock sedang dipegang pod lain
+     */
+    public boolean runExclusively(String lockName, Runnable action) {
+        return Boolean.TRUE.equals(jdbc.getJdbcTemplate().execute((ConnectionCallback<Boolean>) connection -> {
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(hashtextextended(?, 0))", lockName)) {
+                return false;
+            }
+            try {
+                action.run();
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(hashtextextended(?, 0))", lockName);
+            }
+            return true;
+        }));
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
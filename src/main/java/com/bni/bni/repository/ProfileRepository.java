@@ -1,11 +1,47 @@
 package com.bni.bni.repository;
 
+import com.bni.bni.dto.ProfileView;
 import com.bni.bni.entity.Profile;
 import com.bni.bni.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProfileRepository extends JpaRepository<Profile, Long> {
     Optional<Profile> findByUser(User user);
-}
\ No newline at end of file
+
+    /**
+     * Mencari profil berdasarkan foreign key user_id tanpa memuat entitas User
+     * @param userId ID pengguna
+     * @return Optional berisi Profile jika ada
+     */
+    Optional<Profile> findByUserId(Long userId);
+
+    /**
+     * Mengambil kolom profil saja berdasarkan user_id dalam satu query terindeks
+     * @param userId ID pengguna
+     * @return Optional berisi ProfileView jika profil ada
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.bni.bni.dto.ProfileView("
+            + "p.user.id, p.firstName, p.lastName, p.placeOfBirth, p.dateOfBirth, p.updatedAt, p.version) "
+            + "from Profile p where p.user.id = :userId")
+    Optional<ProfileView> findViewByUserId(@Param("userId") Long userId);
+
+    /**
+     * Mengambil projection profil untuk banyak user sekaligus dengan satu query IN
+     * (pemanggil bertanggung jawab membatasi jumlah id per query dan memastikan semua id ada di shard aktif)
+     * @param userIds daftar ID pengguna
+     * @return daftar ProfileView untuk user yang memiliki profil
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.bni.bni.dto.ProfileView("
+            + "p.user.id, p.firstName, p.lastName, p.placeOfBirth, p.dateOfBirth, p.updatedAt, p.version) "
+            + "from Profile p where p.user.id in :userIds")
+    List<ProfileView> findViewsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,25 @@
+package com.bni.bni.repository;
+
+import com.bni.bni.dto.DirectoryEntry;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Fragment repository untuk pencarian direktori user dengan keyset (seek) pagination.
+ * Diimplementasikan dengan SQL native karena butuh perbandingan row-value (created_at, id)
+ * dan index ekspresi prefix yang tidak bisa diekspresikan lewat derived query.
+ */
+public interface UserDirectoryRepository {
+
+    /**
+     * Mencari user yang username, email, nama depan, atau nama belakangnya diawali prefix tertentu,
+     * di shard aktif, diurutkan dari yang terbaru (created_at desc, id desc)
+     * @param prefix prefix pencarian (case-insensitive), null/kosong untuk semua user
+     * @param afterCreatedAt created_at baris terakhir halaman sebelumnya, null untuk halaman pertama
+     * @param afterId id baris terakhir halaman sebelumnya, null untuk halaman pertama
+     * @param limit jumlah baris maksimum
+     * @return daftar hasil pencarian
+     */
+    List<DirectoryEntry> searchDirectory(String prefix, OffsetDateTime afterCreatedAt, Long afterId, int limit);
+}
@@ -0,0 +1,63 @@
+package com.bni.bni.repository;
+
+import com.bni.bni.dto.DirectoryEntry;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Implementasi pencarian direktori user.
+ * Setiap kolom prefix dicari lewat index-nya sendiri (lower(kolom) text_pattern_ops) lalu digabung dengan UNION,
+ * dan halaman diambil dengan seek pada index (created_at, id) sehingga halaman ke-N sama murahnya dengan halaman pertama.
+ */
+public class UserDirectoryRepositoryImpl implements UserDirectoryRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public UserDirectoryRepositoryImpl(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    @Transactional(readOnly = true) // Dilayani oleh read replica shard aktif (jika ada)
+    public List<DirectoryEntry> searchDirectory(String prefix, OffsetDateTime afterCreatedAt, Long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder(
+                "SELECT u.id, u.username, u.email_address, u.role, u.created_at, p.first_name, p.last_name "
+                + "FROM users u LEFT JOIN profiles p ON p.user_id = u.id WHERE TRUE ");
+
+        if (prefix != null && !prefix.isBlank()) {
+            sql.append("AND u.id IN ("
+                    + "SELECT id FROM users WHERE lower(username) LIKE :prefix "
+                    + "UNION SELECT id FROM users WHERE lower(email_address) LIKE :prefix "
+                    + "UNION SELECT user_id FROM profiles WHERE lower(first_name) LIKE :prefix "
+                    + "UNION SELECT user_id FROM profiles WHERE lower(last_name) LIKE :prefix) ");
+            params.addValue("prefix", escapeLike(prefix.trim().toLowerCase()) + "%");
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            sql.append("AND (u.created_at, u.id) < (:afterCreatedAt, :afterId) ");
+            params.addValue("afterCreatedAt", afterCreatedAt);
+            params.addValue("afterId", afterId);
+        }
+        sql.append("ORDER BY u.created_at DESC, u.id DESC LIMIT :limit");
+
+        return jdbc.query(sql.toString(), params, (rs, rowNum) -> new DirectoryEntry(
+                rs.getLong("id"),
+                rs.getString("username"),
+                rs.getString("email_address"),
+                rs.getString("role"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getString("first_name"),
+                rs.getString("last_name")));
+    }
+
+    /**
+     * Escape karakter wildcard LIKE agar input pengguna diperlakukan sebagai teks biasa
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
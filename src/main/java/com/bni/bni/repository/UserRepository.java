@@ -3,23 +3,27 @@ package com.bni.bni.repository;
 import com.bni.bni.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 /**
  * Repository interface untuk mengakses data User dari database.
- * Menyediakan operasi CRUD dasar melalui JpaRepository dan query khusus untuk entitas User.
+ * Menyediakan operasi CRUD dasar melalui JpaRepository dan query khusus untuk entitas User,
+ * termasuk pencarian direktori dengan keyset pagination (UserDirectoryRepository).
  */
 @Repository // Menandai interface ini sebagai Spring Data Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserDirectoryRepository {
     
     /**
      * Mencari user berdasarkan username.
      * Menggunakan Optional untuk menghindari NullPointerException.
+     * Dijalankan sebagai transaksi read-only sehingga dilayani oleh read replica (jika ada).
      * 
      * @param username Nama pengguna yang dicari
      * @return Optional yang berisi User jika ditemukan, atau empty jika tidak
      */
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
 
     /**
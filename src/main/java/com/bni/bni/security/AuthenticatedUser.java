@@ -0,0 +1,16 @@
+package com.bni.bni.security;
+
+import java.util.Date;
+
+/**
+ * Principal ringan hasil verifikasi JWT, disimpan di SecurityContext.
+ * Dibangun langsung dari claims token tanpa query ke database.
+ *
+ * @param userId id pengguna (claim user_id)
+ * @param username username pengguna (subject token)
+ * @param role role pengguna (claim role)
+ * @param issuedAt waktu token dibuat
+ * @param expiration waktu token kadaluarsa
+ */
+public record AuthenticatedUser(Long userId, String username, String role, Date issuedAt, Date expiration) {
+}
@@ -0,0 +1,186 @@
+package com.bni.bni.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password encoder yang mengkalibrasi parameter hashing saat startup terhadap budget latency
+ * (misal 80 ms per hash), sehingga biaya login mengikuti ukuran node, bukan konstanta hardcoded.
+ *
+ * Hash disimpan dengan prefix algoritma ({bcrypt} atau {argon2}). Hash lama tanpa prefix dianggap BCrypt.
+ * {@link #upgradeEncoding(String)} bernilai true jika algoritma berbeda, atau parameter hash tersimpan berselisih
+ * lebih dari satu langkah dari hasil kalibrasi (lebih murah maupun lebih mahal, misal setelah pindah ke node yang
+ * lebih kecil), agar hash di-rehash saat login berhasil. Selisih satu langkah tidak di-rehash: replica yang
+ * kalibrasinya berbeda satu langkah (noise pengukuran) tidak saling menulis ulang hash akun yang sama di setiap login.
+ */
+public class CalibratedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibratedPasswordEncoder.class);
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    // Parameter Argon2id yang tidak dikalibrasi (rekomendasi OWASP: 19 MiB, paralelisme 1)
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final int ARGON2_PARALLELISM = 1;
+    private static final int ARGON2_MEMORY_KIB = 19 * 1024;
+    private static final int ARGON2_MIN_ITERATIONS = 2;
+    private static final int ARGON2_MAX_ITERATIONS = 32;
+
+    private static final int BCRYPT_MAX_STRENGTH = 31;
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d{2})\\$");
+    private static final Pattern ARGON2_PARAMS = Pattern.compile("\\$m=(\\d+),t=(\\d+),p=(\\d+)\\$");
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    // Jumlah sampel per pengukuran, diambil mediannya agar satu sampel yang terganggu GC/noisy neighbour tidak
+    // menentukan hasil kalibrasi
+    private static final int SAMPLES = 5;
+
+    // Selisih parameter (strength BCrypt / iterasi Argon2) yang masih diterima tanpa rehash
+    private static final int UPGRADE_TOLERANCE = 1;
+
+    private final String algorithm;
+    private final DelegatingPasswordEncoder delegate;
+
+    // Parameter hasil kalibrasi: strength BCrypt, atau jumlah iterasi Argon2
+    private final int bcryptStrength;
+    private final int argon2Iterations;
+
+    /**
+     * @param algorithm algoritma untuk hash baru (bcrypt atau argon2)
+     * @param targetLatency budget waktu per hash
+     * @param minBcryptStrength batas bawah strength BCrypt, walaupun node lambat
+     */
+    public CalibratedPasswordEncoder(String algorithm, Duration targetLatency, int minBcryptStrength) {
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalArgumentException("Algoritma password tidak didukung: " + algorithm);
+        }
+        this.algorithm = algorithm;
+
+        if (BCRYPT.equals(algorithm)) {
+            this.bcryptStrength = calibrateBcrypt(targetLatency, minBcryptStrength);
+            this.argon2Iterations = ARGON2_MIN_ITERATIONS;
+            log.info("Password hashing dikalibrasi: bcrypt strength={} (target {} ms)",
+                    bcryptStrength, targetLatency.toMillis());
+        } else {
+            this.bcryptStrength = minBcryptStrength;
+            this.argon2Iterations = calibrateArgon2(targetLatency);
+            log.info("Password hashing dikalibrasi: argon2id m={}KiB t={} p={} (target {} ms)",
+                    ARGON2_MEMORY_KIB, argon2Iterations, ARGON2_PARALLELISM, targetLatency.toMillis());
+        }
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        this.delegate = new DelegatingPasswordEncoder(algorithm, Map.of(
+                BCRYPT, bcrypt,
+                ARGON2, argon2(argon2Iterations)));
+        // Hash lama (sebelum ada prefix) semuanya BCrypt
+        this.delegate.setDefaultPasswordEncoderForMatches(bcrypt);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    /**
+     * @return true jika hash tersimpan perlu dibuat ulang dengan algoritma/parameter saat ini
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        String prefix = "{" + algorithm + "}";
+        if (!encodedPassword.startsWith(prefix)) {
+            return true; // Tanpa prefix atau algoritma berbeda
+        }
+        String hash = encodedPassword.substring(prefix.length());
+
+        if (BCRYPT.equals(algorithm)) {
+            Matcher matcher = BCRYPT_COST.matcher(hash);
+            return !matcher.find() || outsideTolerance(Integer.parseInt(matcher.group(1)), bcryptStrength);
+        }
+        Matcher matcher = ARGON2_PARAMS.matcher(hash);
+        return !matcher.find()
+                || Integer.parseInt(matcher.group(1)) != ARGON2_MEMORY_KIB
+                || outsideTolerance(Integer.parseInt(matcher.group(2)), argon2Iterations)
+                || Integer.parseInt(matcher.group(3)) != ARGON2_PARALLELISM;
+    }
+
+    /**
+     * Parameter tersimpan perlu disesuaikan (naik atau turun) jika selisihnya dari hasil kalibrasi
+     * melebihi toleransi
+     */
+    private static boolean outsideTolerance(int stored, int calibrated) {
+        return Math.abs(stored - calibrated) > UPGRADE_TOLERANCE;
+    }
+
+    /**
+     * Menaikkan strength BCrypt (setiap kenaikan = 2x lebih lambat) sampai mencapai budget,
+     * lalu memilih strength yang waktunya paling dekat dengan budget
+     */
+    private static int calibrateBcrypt(Duration target, int minStrength) {
+        long targetNanos = target.toNanos();
+        int strength = minStrength;
+        long elapsed = measure(new BCryptPasswordEncoder(strength));
+        while (elapsed < targetNanos && strength < BCRYPT_MAX_STRENGTH) {
+            long next = elapsed * 2;
+            // Berhenti jika strength berikutnya lebih jauh dari budget dibanding strength sekarang
+            if (next - targetNanos > targetNanos - elapsed) {
+                break;
+            }
+            strength++;
+            elapsed = measure(new BCryptPasswordEncoder(strength));
+        }
+        return strength;
+    }
+
+    /**
+     * Mengestimasi jumlah iterasi Argon2 dari waktu per iterasi (biaya naik linear terhadap iterasi)
+     */
+    private static int calibrateArgon2(Duration target) {
+        long targetNanos = target.toNanos();
+        long elapsed = measure(argon2(ARGON2_MIN_ITERATIONS));
+        long perIteration = Math.max(1, elapsed / ARGON2_MIN_ITERATIONS);
+        return (int) Math.min(ARGON2_MAX_ITERATIONS, Math.max(ARGON2_MIN_ITERATIONS, targetNanos / perIteration));
+    }
+
+    private static Argon2PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH,
+                ARGON2_PARALLELISM, ARGON2_MEMORY_KIB, iterations);
+    }
+
+    /**
+     * Mengukur waktu satu hash: median dari beberapa sampel, setelah satu kali warm-up agar JIT tidak
+     * mempengaruhi hasil
+     */
+    private static long measure(PasswordEncoder encoder) {
+        encoder.encode(SAMPLE_PASSWORD);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
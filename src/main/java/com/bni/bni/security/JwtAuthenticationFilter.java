@@ -0,0 +1,81 @@
+package com.bni.bni.security;
+
+import com.bni.bni.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Filter yang memverifikasi JWT dari header Authorization satu kali per request
+ * dan mengisi SecurityContext dengan {@link AuthenticatedUser}.
+ * Token yang tidak valid langsung ditolak dengan 401 sebelum mencapai controller.
+ * Request tanpa token diteruskan sebagai anonymous, aturan akses ditentukan di SecurityConfig.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Optional<Claims> verified = jwtUtil.verifyToken(header.substring(BEARER_PREFIX.length()).trim());
+        if (verified.isEmpty()) {
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "Token tidak valid atau expired");
+            return;
+        }
+
+        Claims claims = verified.get();
+        AuthenticatedUser principal = new AuthenticatedUser(
+                claims.get("user_id", Long.class),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.getIssuedAt(),
+                claims.getExpiration());
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + principal.role())));
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Menulis response error JSON dengan format yang sama seperti controller ({"status", "message"})
+     * @param response response HTTP
+     * @param status kode status HTTP
+     * @param message pesan error
+     */
+    public static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"status\":" + status + ",\"message\":\"" + message + "\"}");
+    }
+}
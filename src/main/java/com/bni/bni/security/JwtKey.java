@@ -0,0 +1,81 @@
+package com.bni.bni.security;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Satu entry di JWT key ring.
+ * Untuk HS256 key signing dan verifikasi adalah secret yang sama,
+ * untuk ES256 signing memakai private key dan verifikasi memakai public key.
+ * Key yang sudah pensiun boleh hanya memiliki key verifikasi (signingKey null).
+ *
+ * @param kid id key yang ditulis di header token
+ * @param signingKey key untuk signing token baru, null jika key hanya untuk verifikasi
+ * @param verificationKey key untuk verifikasi signature
+ */
+public record JwtKey(String kid, Key signingKey, Key verificationKey) {
+
+    /**
+     * @return true jika key verifikasi boleh dipublikasikan (public key EC untuk ES256)
+     */
+    public boolean isPublishable() {
+        return verificationKey instanceof ECPublicKey;
+    }
+
+    /**
+     * Representasi JWK (RFC 7517) dari public key, untuk endpoint JWKS
+     * @return map JWK, atau null jika key tidak boleh dipublikasikan
+     */
+    public Map<String, Object> toJwk() {
+        if (!(verificationKey instanceof ECPublicKey ec)) {
+            return null;
+        }
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("x", coordinate(ec.getW().getAffineX()));
+        jwk.put("y", coordinate(ec.getW().getAffineY()));
+        return jwk;
+    }
+
+    /**
+     * Koordinat kurva P-256 di-encode sebagai 32 byte unsigned big-endian (base64url tanpa padding)
+     */
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof JwtKey other)) {
+            return false;
+        }
+        return kid.equals(other.kid)
+                && encodedEquals(signingKey, other.signingKey)
+                && encodedEquals(verificationKey, other.verificationKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return kid.hashCode();
+    }
+
+    private static boolean encodedEquals(Key a, Key b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Arrays.equals(a.getEncoded(), b.getEncoded());
+    }
+}
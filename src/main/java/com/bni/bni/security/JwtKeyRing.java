@@ -0,0 +1,322 @@
+package com.bni.bni.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Key ring untuk signing dan verifikasi JWT.
+ * Key dibaca dari Secret yang di-mount sebagai direktori atau dari keystore PKCS12 (alias = kid),
+ * lalu dimuat ulang secara berkala tanpa restart.
+ * Token baru di-sign dengan key aktif, sedangkan verifikasi menerima semua key yang masih ada di ring,
+ * sehingga token dari replica mana pun tetap valid selama masa rotasi.
+ *
+ * Mode signing diatur lewat jwt.signing.algorithm:
+ * - HS256: satu file per key (nama file = kid, isi base64 secret)
+ * - ES256: file kid.key (private key PKCS#8 PEM) dan kid.pub (public key X.509 PEM);
+ *   key yang sudah pensiun cukup menyisakan kid.pub untuk verifikasi.
+ *   Public key dipublikasikan di /.well-known/jwks.json.
+ */
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    // Nama file opsional di direktori key yang berisi kid aktif
+    private static final String ACTIVE_KID_FILE = "active-kid";
+
+    private final SignatureAlgorithm algorithm;
+    private final String keysDir;
+    private final String keystorePath;
+    private final String keystorePassword;
+    private final String keystoreType;
+    private final String configuredActiveKid;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Snapshot immutable, diganti secara atomik saat rotasi (request path hanya membaca)
+    private volatile Snapshot snapshot;
+
+    public JwtKeyRing(@Value("${jwt.signing.algorithm:HS256}") SignatureAlgorithm algorithm,
+                      @Value("${jwt.keys.dir:}") String keysDir,
+                      @Value("${jwt.keystore.path:}") String keystorePath,
+                      @Value("${jwt.keystore.password:}") String keystorePassword,
+                      @Value("${jwt.keystore.type:PKCS12}") String keystoreType,
+                      @Value("${jwt.keys.active-kid:}") String configuredActiveKid,
+                      ApplicationEventPublisher eventPublisher) {
+        if (algorithm != SignatureAlgorithm.HS256 && algorithm != SignatureAlgorithm.ES256) {
+            throw new IllegalArgumentException("jwt.signing.algorithm hanya mendukung HS256 atau ES256");
+        }
+        this.algorithm = algorithm;
+        this.keysDir = keysDir;
+        this.keystorePath = keystorePath;
+        this.keystorePassword = keystorePassword;
+        this.keystoreType = keystoreType;
+        this.configuredActiveKid = configuredActiveKid;
+        this.eventPublisher = eventPublisher;
+        this.snapshot = load();
+    }
+
+    /**
+     * @return kid dari key yang dipakai untuk signing token baru
+     */
+    public String getActiveKid() {
+        return snapshot.activeKid();
+    }
+
+    /**
+     * @return key yang dipakai untuk signing token baru
+     */
+    public Key getActiveKey() {
+        Snapshot current = snapshot;
+        return current.keys().get(current.activeKid()).signingKey();
+    }
+
+    /**
+     * @return daftar JWK public key yang masih diterima untuk verifikasi (kosong untuk mode HS256)
+     */
+    public List<Map<String, Object>> getPublicJwks() {
+        return snapshot.publicJwks();
+    }
+
+    /**
+     * Dipanggil oleh JwtParser untuk memilih key verifikasi berdasarkan header kid
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        JwtKey key = kid == null ? null : snapshot.keys().get(kid);
+        if (key == null) {
+            throw new SignatureException("Key id tidak dikenal: " + kid);
+        }
+        return key.verificationKey();
+    }
+
+    /**
+     * Memuat ulang key secara berkala (di luar request path).
+     * Jika isi ring berubah, event rotasi dipublikasikan agar cache claims dikosongkan.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.reload-interval:30s}",
+               initialDelayString = "${jwt.keys.reload-interval:30s}")
+    public void reload() {
+        if (keysDir.isBlank() && keystorePath.isBlank()) {
+            return; // Key ephemeral tidak pernah dirotasi
+        }
+        try {
+            Snapshot loaded = load();
+            if (!loaded.equals(snapshot)) {
+                snapshot = loaded;
+                log.info("JWT key ring dirotasi: aktif={}, kids={}", loaded.activeKid(), loaded.keys().keySet());
+                eventPublisher.publishEvent(new JwtKeysRotatedEvent(loaded.activeKid()));
+            }
+        } catch (RuntimeException e) {
+            // Key lama tetap dipakai jika Secret sedang di-update / tidak terbaca
+            log.error("Gagal memuat ulang JWT key ring, key lama tetap dipakai", e);
+        }
+    }
+
+    private Snapshot load() {
+        TreeMap<String, JwtKey> keys = new TreeMap<>();
+        if (!keysDir.isBlank()) {
+            keys.putAll(loadFromDirectory(Paths.get(keysDir)));
+        }
+        if (!keystorePath.isBlank()) {
+            keys.putAll(loadFromKeystore(Paths.get(keystorePath)));
+        }
+
+        if (keys.isEmpty()) {
+            if (!keysDir.isBlank() || !keystorePath.isBlank()) {
+                throw new IllegalStateException("Tidak ada JWT key yang ditemukan di jwt.keys.dir / jwt.keystore.path");
+            }
+            // Fallback untuk development: key acak per instance (token tidak bisa diverifikasi replica lain)
+            log.warn("jwt.keys.dir dan jwt.keystore.path tidak diset, memakai key ephemeral per instance");
+            String kid = "ephemeral-" + UUID.randomUUID();
+            keys.put(kid, generateEphemeral(kid));
+        }
+
+        String activeKid = resolveActiveKid(keys);
+        List<Map<String, Object>> jwks = keys.values().stream()
+                .filter(JwtKey::isPublishable)
+                .map(JwtKey::toJwk)
+                .toList();
+        return new Snapshot(activeKid, Collections.unmodifiableMap(keys), jwks);
+    }
+
+    private JwtKey generateEphemeral(String kid) {
+        if (algorithm == SignatureAlgorithm.ES256) {
+            KeyPair pair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+            return new JwtKey(kid, pair.getPrivate(), pair.getPublic());
+        }
+        SecretKey secret = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        return new JwtKey(kid, secret, secret);
+    }
+
+    /**
+     * Kid aktif diambil dari property jwt.keys.active-kid, lalu file active-kid di direktori key,
+     * dan terakhir kid dengan urutan leksikografis terbesar yang bisa dipakai signing
+     */
+    private String resolveActiveKid(TreeMap<String, JwtKey> keys) {
+        String activeKid = configuredActiveKid;
+        if (activeKid.isBlank() && !keysDir.isBlank()) {
+            Path activeFile = Paths.get(keysDir).resolve(ACTIVE_KID_FILE);
+            if (Files.isRegularFile(activeFile)) {
+                try {
+                    activeKid = Files.readString(activeFile, StandardCharsets.UTF_8).trim();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Gagal membaca " + activeFile, e);
+                }
+            }
+        }
+        if (activeKid.isBlank()) {
+            activeKid = keys.descendingMap().values().stream()
+                    .filter(key -> key.signingKey() != null)
+                    .map(JwtKey::kid)
+                    .findFirst()
+                    .orElse("");
+        }
+        JwtKey active = keys.get(activeKid);
+        if (active == null || active.signingKey() == null) {
+            throw new IllegalStateException("Kid aktif '" + activeKid + "' tidak ada di key ring atau tidak punya signing key");
+        }
+        return activeKid;
+    }
+
+    private Map<String, JwtKey> loadFromDirectory(Path dir) {
+        Map<String, JwtKey> keys = new TreeMap<>();
+        // Mount Secret Kubernetes berisi entry tersembunyi "..data" yang harus dilewati
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || name.equals(ACTIVE_KID_FILE) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                String content = Files.readString(file, StandardCharsets.UTF_8).trim();
+
+                if (algorithm == SignatureAlgorithm.HS256) {
+                    SecretKey secret = Keys.hmacShaKeyFor(Base64.getDecoder().decode(content));
+                    keys.put(name, new JwtKey(name, secret, secret));
+                } else if (name.endsWith(".pub")) {
+                    String kid = name.substring(0, name.length() - ".pub".length());
+                    PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(pemBody(content)));
+                    JwtKey existing = keys.get(kid);
+                    keys.put(kid, new JwtKey(kid, existing == null ? null : existing.signingKey(), publicKey));
+                } else if (name.endsWith(".key")) {
+                    String kid = name.substring(0, name.length() - ".key".length());
+                    PrivateKey privateKey = KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(pemBody(content)));
+                    JwtKey existing = keys.get(kid);
+                    keys.put(kid, new JwtKey(kid, privateKey, existing == null ? null : existing.verificationKey()));
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Gagal membaca direktori JWT key " + dir, e);
+        }
+
+        // Private key tanpa public key pasangannya tidak bisa diverifikasi oleh siapa pun
+        keys.values().stream()
+                .filter(key -> key.verificationKey() == null)
+                .findFirst()
+                .ifPresent(key -> {
+                    throw new IllegalStateException("File " + key.kid() + ".pub tidak ditemukan di " + dir);
+                });
+        return keys;
+    }
+
+    private Map<String, JwtKey> loadFromKeystore(Path path) {
+        Map<String, JwtKey> keys = new TreeMap<>();
+        char[] password = keystorePassword.toCharArray();
+        try (InputStream in = Files.newInputStream(path)) {
+            KeyStore keyStore = KeyStore.getInstance(keystoreType);
+            keyStore.load(in, password);
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                if (algorithm == SignatureAlgorithm.HS256) {
+                    if (keyStore.isKeyEntry(alias) && keyStore.getKey(alias, password) instanceof SecretKey secret) {
+                        SecretKey hmac = Keys.hmacShaKeyFor(secret.getEncoded());
+                        keys.put(alias, new JwtKey(alias, hmac, hmac));
+                    }
+                    continue;
+                }
+
+                // ES256: private key entry untuk signing, trusted certificate untuk key yang sudah pensiun
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate == null || !"EC".equals(certificate.getPublicKey().getAlgorithm())) {
+                    continue;
+                }
+                PrivateKey privateKey = keyStore.isKeyEntry(alias)
+                        ? (PrivateKey) keyStore.getKey(alias, password)
+                        : null;
+                keys.put(alias, new JwtKey(alias, privateKey, certificate.getPublicKey()));
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Gagal membaca JWT keystore " + path, e);
+        }
+        return keys;
+    }
+
+    /**
+     * Mengambil isi base64 dari file PEM (tanpa baris -----BEGIN/END-----)
+     */
+    private static byte[] pemBody(String pem) {
+        StringBuilder body = new StringBuilder();
+        for (String line : pem.split("\\R")) {
+            if (!line.startsWith("-----")) {
+                body.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(body.toString());
+    }
+
+    /**
+     * Isi key ring pada satu waktu (JWKS dihitung sekali per rotasi, bukan per request)
+     */
+    private record Snapshot(String activeKid, Map<String, JwtKey> keys, List<Map<String, Object>> publicJwks) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Snapshot other
+                    && activeKid.equals(other.activeKid)
+                    && keys.equals(other.keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(activeKid, keys);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bni.bni.security;
+
+/**
+ * Event yang dipublikasikan saat isi JWT key ring berubah (key baru, key lama dihapus,
+ * atau kid aktif berganti)
+ * @param activeKid kid aktif setelah rotasi
+ */
+public record JwtKeysRotatedEvent(String activeKid) {
+}
@@ -1,12 +1,23 @@
 package com.bni.bni.service;
 
+import com.bni.bni.config.ReplicaDataSource;
 import com.bni.bni.entity.User;
+import com.bni.bni.exception.TooManyRequestsException;
 import com.bni.bni.repository.UserRepository;
+import com.bni.bni.sharding.ShardKey;
+import com.bni.bni.sharding.ShardedIdGenerator;
 import com.bni.bni.util.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 
@@ -17,41 +28,87 @@ import java.util.Optional;
 @Service // Menandai class ini sebagai Spring Service
 public class AuthService {
 
+    // SQLState PostgreSQL untuk unique_violation
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // Unique constraint username dari migrasi V1. Database lama (ddl-auto) memakai nama buatan Hibernate,
+    // sehingga kolom di detail error juga diperiksa
+    private static final String USERNAME_CONSTRAINT = "uk_users_username";
+    private static final String USERNAME_KEY_DETAIL = "Key (username)=";
+
     @Autowired // Dependency injection untuk UserRepository
     private UserRepository repo;
 
-    @Autowired // Dependency injection untuk PasswordEncoder (biasanya BCrypt)
-    private PasswordEncoder encoder;
+    @Autowired // Hashing password (BCrypt) dijalankan di worker pool terbatas, bukan di thread Tomcat
+    private PasswordHashingService hashing;
 
     @Autowired // Dependency injection untuk JwtUtil (JWT utilities)
     private JwtUtil jwtUtil;
 
+    @Autowired // Generator id user yang membawa bucket shard-nya
+    private ShardedIdGenerator idGenerator;
+
+    @Value("${auth.read-your-writes-window:10s}") // Lama username yang baru register dicari ulang di primary
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+
+    // Username yang baru register di pod ini. Hanya username ini yang dicari ulang di primary jika belum ada
+    // di replica, sehingga login dengan username yang memang tidak ada tidak membebani primary
+    private final Cache<String, Boolean> recentRegistrations = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfter(Expiry.writing((String username, Boolean registered) -> readYourWritesWindow))
+            .build();
+
     /**
-     * Method untuk registrasi pengguna baru
-     * @param username username pengguna
+     * Method untuk registrasi pengguna baru.
+     * Tidak ada pengecekan existsByUsername terlebih dahulu: insert langsung dilakukan dan
+     * pelanggaran unique constraint username diterjemahkan menjadi "User already exists".
+     * Satu round trip ke database, dan dua registrasi bersamaan tidak bisa lolos berdua
+     * (username yang sama selalu masuk ke shard yang sama).
+     * @param username username pengguna, menentukan shard tempat user disimpan
      * @param password password dalam plaintext
      * @return Pesan status registrasi
      */
-    public String register(String username, String emailAddress, String password) {
-        // Cek apakah username sudah terdaftar
-        if (repo.existsByUsername(username)) {
-            return "User already exists";
-        }
-
+    public String register(@ShardKey String username, String emailAddress, String password) {
         // Buat user baru
         User user = new User();
+        user.setId(idGenerator.nextUserId(username)); // Id membawa bucket shard dari username
         user.setUsername(username);
-        user.setPasswordHash(encoder.encode(password)); // Encode password sebelum disimpan
+        user.setPasswordHash(hashing.encode(password)); // Encode password sebelum disimpan
         user.setRole("USER"); // Set default role
         user.setCreatedAt(OffsetDateTime.now()); // Set waktu pembuatan
         user.setEmailAddress(emailAddress); // Set email address
         user.setIsActive(true); // Set isActive
         user.setUpdatedAt(OffsetDateTime.now()); // Set waktu pembuatan
-        repo.save(user); // Simpan ke database
+
+        try {
+            repo.save(user); // Simpan ke database (insert di-flush saat commit)
+            recentRegistrations.put(username, Boolean.TRUE);
+        } catch (DataIntegrityViolationException e) {
+            if (isUsernameTaken(e)) {
+                return "User already exists";
+            }
+            throw e;
+        }
 
         return "Registered successfully";
     }
 
+    /**
+     * Memeriksa apakah exception berasal dari pelanggaran unique constraint username (SQLState 23505).
+     * Pelanggaran constraint lain (misal primary key bentrok karena sequence tertinggal) bukan
+     * "User already exists" dan tetap dilempar sebagai error.
+     */
+    static boolean isUsernameTaken(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PSQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                ServerErrorMessage error = sql.getServerErrorMessage();
+                return error != null && (USERNAME_CONSTRAINT.equals(error.getConstraint())
+                        || (error.getDetail() != null && error.getDetail().startsWith(USERNAME_KEY_DETAIL)));
+            }
+        }
+        return false;
+    }
+
     /**
      * Method untuk proses login pengguna
      * @param username username pengguna
@@ -72,15 +129,41 @@ public class AuthService {
         return null; // Return null jika autentikasi gagal
     }
     */
-    public String login(String username, String emailAddress, String password) {
-        Optional<User> user = repo.findByUsername(username);
+    public String login(@ShardKey String username, String emailAddress, String password) {
+        // Lookup dari replica; user yang baru register (di pod ini) mungkin belum sampai di replica,
+        // jadi hanya username tersebut yang dicek ulang di primary
+        Optional<User> user = repo.findByUsername(username)
+                .or(() -> recentRegistrations.getIfPresent(username) != null
+                        ? ReplicaDataSource.usePrimary(() -> repo.findByUsername(username))
+                        : Optional.empty());
         
         if (user.isPresent() && 
-            encoder.matches(password, user.get().getPasswordHash()) && 
+            hashing.matches(password, user.get().getPasswordHash()) && 
             user.get().getEmailAddress().equals(emailAddress)) {
-            
+
+            rehashIfNeeded(user.get(), password);
             return jwtUtil.generateToken(user.get());
         }
         return null;
     }
+
+    /**
+     * Membuat ulang hash password jika algoritma/parameter hash tersimpan berbeda
+     * dengan hasil kalibrasi saat ini (misal setelah pindah ke node dengan ukuran berbeda).
+     * Hanya bisa dilakukan saat login berhasil karena membutuhkan password plaintext.
+     * @param user user yang berhasil login
+     * @param password password dalam plaintext
+     */
+    private void rehashIfNeeded(User user, String password) {
+        if (!hashing.needsRehash(user.getPasswordHash())) {
+            return;
+        }
+        try {
+            user.setPasswordHash(hashing.encode(password));
+            user.setUpdatedAt(OffsetDateTime.now());
+            repo.save(user);
+        } catch (TooManyRequestsException e) {
+            // Pool hashing sedang penuh: login tetap berhasil, rehash dicoba lagi di login berikutnya
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,325 @@
+package com.bni.bni.service;
+
+import com.bni.bni.sharding.ShardDataSources;
+import com.bni.bni.sharding.ShardKeys;
+import com.bni.bni.sharding.ShardMap;
+import com.bni.bni.sharding.ShardedIdGenerator;
+import com.bni.bni.util.CsvUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service untuk import dan export user secara massal (misal saat onboarding satu cabang).
+ * Import membaca CSV/NDJSON secara streaming per batch, hashing password paralel di pool kecil yang terbatas,
+ * lalu menulis baris ke tabel users memakai protokol COPY PostgreSQL (bukan UserRepository.save).
+ * Setiap batch dibagi per shard sesuai bucket username, dan id dibuat dengan skema yang sama seperti registrasi.
+ * Export men-stream hasil COPY langsung ke response tanpa memuat seluruh tabel ke heap.
+ */
+@Service
+public class BulkUserService {
+
+    private static final String COLUMNS =
+            "id, username, password_hash, role, created_at, email_address, updated_at, is_active";
+
+    /**
+     * Format input untuk import
+     */
+    public enum Format { CSV, NDJSON }
+
+    /**
+     * Ringkasan hasil import
+     * @param received jumlah baris yang dibaca
+     * @param inserted jumlah user yang berhasil ditambahkan
+     * @param duplicates jumlah user yang dilewati karena username sudah ada
+     * @param invalid jumlah baris yang tidak valid (username/password kosong)
+     */
+    public record ImportResult(long received, long inserted, long duplicates, long invalid) {
+    }
+
+    private record ImportRow(String username, String emailAddress, String password, String role) {
+    }
+
+    private final ShardDataSources shards;
+    private final ShardMap shardMap;
+    private final ShardedIdGenerator idGenerator;
+    private final PasswordEncoder encoder;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    // Pool hashing terpisah dari pool login agar import massal tidak membuat login ditolak 429.
+    // Ukurannya dibatasi (default setengah core) dengan antrian terbatas dan caller-runs: jika antrian penuh,
+    // thread request import ikut hashing sehingga pembacaan input melambat, tanpa menghabiskan CPU milik login.
+    private final ThreadPoolExecutor hashingPool;
+
+    /**
+     * @param batchSize jumlah baris per batch COPY
+     * @param hashingThreads jumlah worker hashing import, 0 berarti setengah jumlah core (minimal 1)
+     * @param hashingQueueCapacity kapasitas antrian hashing import sebelum thread pemanggil ikut hashing
+     */
+    public BulkUserService(ShardDataSources shards,
+                           ShardMap shardMap,
+                           ShardedIdGenerator idGenerator,
+                           PasswordEncoder encoder,
+                           ObjectMapper objectMapper,
+                           @Value("${bulk.import.batch-size:1000}") int batchSize,
+                           @Value("${bulk.import.hashing-threads:0}") int hashingThreads,
+                           @Value("${bulk.import.hashing-queue-capacity:64}") int hashingQueueCapacity) {
+        this.shards = shards;
+        this.shardMap = shardMap;
+        this.idGenerator = idGenerator;
+        this.encoder = encoder;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        int poolSize = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashingPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hashingQueueCapacity), new ImportHashingThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Import user dari stream CSV (header: username,email_address,password[,role]) atau NDJSON
+     * (satu objek JSON per baris dengan field yang sama). Username yang sudah ada dilewati.
+     * @param body stream request body
+     * @param format format isi stream
+     * @return ringkasan hasil import
+     */
+    public ImportResult importUsers(InputStream body, Format format) throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Map<String, Integer> csvColumns = format == Format.CSV ? readCsvHeader(reader) : Map.of();
+
+        long received = 0;
+        long inserted = 0;
+        long invalid = 0;
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            received++;
+            ImportRow row = format == Format.CSV ? parseCsv(line, csvColumns) : parseJson(line);
+            if (row == null) {
+                invalid++;
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                inserted += writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            inserted += writeBatch(batch);
+        }
+
+        return new ImportResult(received, inserted, received - invalid - inserted, invalid);
+    }
+
+    /**
+     * Export semua user (tanpa password hash) sebagai CSV langsung dari COPY ... TO STDOUT,
+     * shard demi shard (header CSV hanya ditulis sekali)
+     * @param out stream tujuan (response body)
+     */
+    public void exportUsers(OutputStream out) throws IOException, SQLException {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try (Connection conn = shards.primary(shard).getConnection()) {
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                copy.copyOut("COPY (SELECT id, username, email_address, role, is_active, created_at, updated_at "
+                        + "FROM users ORDER BY id) TO STDOUT WITH (FORMAT csv" + (shard == 0 ? ", HEADER" : "") + ")", out);
+            }
+        }
+    }
+
+    /**
+     * Menulis satu batch: hash paralel, lalu baris dikelompokkan per shard dan ditulis ke masing-masing shard
+     * @return jumlah baris yang benar-benar ditambahkan
+     */
+    private long writeBatch(List<ImportRow> rows) throws IOException, SQLException {
+        List<String> hashes = hashAll(rows);
+
+        Map<Integer, List<Integer>> rowsByShard = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            rowsByShard.computeIfAbsent(shardMap.shardOfUsername(rows.get(i).username()), shard -> new ArrayList<>()).add(i);
+        }
+
+        long inserted = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : rowsByShard.entrySet()) {
+            List<ImportRow> shardRows = new ArrayList<>(entry.getValue().size());
+            List<String> shardHashes = new ArrayList<>(entry.getValue().size());
+            for (int i : entry.getValue()) {
+                shardRows.add(rows.get(i));
+                shardHashes.add(hashes.get(i));
+            }
+            inserted += writeShardBatch(entry.getKey(), shardRows, shardHashes);
+        }
+        return inserted;
+    }
+
+    /**
+     * Menulis baris satu shard: COPY ke temp table, lalu INSERT ... ON CONFLICT DO NOTHING
+     * agar username duplikat dilewati tanpa menggagalkan seluruh COPY
+     * @return jumlah baris yang benar-benar ditambahkan
+     */
+    private long writeShardBatch(int shard, List<ImportRow> rows, List<String> hashes) throws IOException, SQLException {
+        long[] sequenceValues = idGenerator.reserveValues(shard, ShardedIdGenerator.USERS_SEQ, rows.size());
+
+        try (Connection conn = shards.primary(shard).getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String now = OffsetDateTime.now().toString();
+
+                StringBuilder csv = new StringBuilder(rows.size() * 128);
+                for (int i = 0; i < rows.size(); i++) {
+                    ImportRow row = rows.get(i);
+                    csv.append(ShardKeys.compose(sequenceValues[i], ShardKeys.bucketOfUsername(row.username()))).append(',');
+                    CsvUtil.appendField(csv, row.username());
+                    csv.append(',');
+                    CsvUtil.appendField(csv, hashes.get(i));
+                    csv.append(',');
+                    CsvUtil.appendField(csv, row.role());
+                    csv.append(',').append(now).append(',');
+                    CsvUtil.appendField(csv, row.emailAddress());
+                    csv.append(',').append(now).append(",true\n");
+                }
+
+                try (Statement st = conn.createStatement()) {
+                    st.execute("CREATE TEMP TABLE users_import (LIKE users INCLUDING DEFAULTS) ON COMMIT DROP");
+                }
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                copy.copyIn("COPY users_import (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(csv.toString()));
+
+                int inserted;
+                try (Statement st = conn.createStatement()) {
+                    inserted = st.executeUpdate("INSERT INTO users (" + COLUMNS + ") SELECT " + COLUMNS
+                            + " FROM users_import ON CONFLICT (username) DO NOTHING");
+                }
+                conn.commit();
+                return inserted;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Hashing password seluruh batch secara paralel
+     */
+    private List<String> hashAll(List<ImportRow> rows) {
+        List<Callable<String>> tasks = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            tasks.add(() -> encoder.encode(row.password()));
+        }
+        try {
+            List<String> hashes = new ArrayList<>(rows.size());
+            for (Future<String> future : hashingPool.invokeAll(tasks)) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import terinterupsi", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Hashing password gagal", e.getCause());
+        }
+    }
+
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return Map.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtil.parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new IllegalArgumentException("Header CSV wajib berisi kolom username dan password");
+        }
+        return columns;
+    }
+
+    private ImportRow parseCsv(String line, Map<String, Integer> columns) {
+        List<String> fields = CsvUtil.parseLine(line);
+        return toRow(field(fields, columns.get("username")),
+                field(fields, columns.get("email_address")),
+                field(fields, columns.get("password")),
+                field(fields, columns.get("role")));
+    }
+
+    private ImportRow parseJson(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            return toRow(node.path("username").asText(null),
+                    node.path("email_address").asText(null),
+                    node.path("password").asText(null),
+                    node.path("role").asText(null));
+        } catch (IOException e) {
+            return null; // Baris JSON rusak dihitung sebagai invalid
+        }
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static ImportRow toRow(String username, String emailAddress, String password, String role) {
+        if (username == null || username.isBlank() || password == null || password.isEmpty()) {
+            return null;
+        }
+        String normalizedRole = role == null || role.isBlank() ? "USER" : role.trim().toUpperCase();
+        return new ImportRow(username.trim(), emailAddress, password, normalizedRole);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * Thread factory agar worker hashing import mudah dikenali di thread dump
+     */
+    private static final class ImportHashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bulk-import-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
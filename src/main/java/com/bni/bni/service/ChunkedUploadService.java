@@ -0,0 +1,338 @@
+package com.bni.bni.service;
+
+import com.bni.bni.exception.PayloadTooLargeException;
+import com.bni.bni.exception.UploadSessionNotFoundException;
+import com.bni.bni.service.FileStorageService.StoredFile;
+import com.bni.bni.storage.UploadSessionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Service upload bertahap (resumable) untuk file besar lewat koneksi yang tidak stabil.
+ * Client membuka sesi, mengirim potongan (chunk) secara paralel dan dalam urutan apa pun, lalu menyelesaikan sesi.
+ * Setiap chunk ditampung di file sementara sambil di-hash SHA-256, lalu setelah lengkap dan checksum-nya cocok
+ * disimpan ke {@link UploadSessionStore}. Client yang terputus cukup menanyakan status sesi dan mengirim ulang chunk
+ * yang belum ada. Sesi disimpan di storage yang sama dengan blob (volume bersama atau bucket S3), jadi chunk boleh
+ * dikirim ke pod mana pun.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Sesi upload bertahap
+     * @param uploadId id sesi
+     * @param fileName nama file tujuan
+     * @param size ukuran total file dalam byte
+     * @param chunkSize ukuran setiap chunk (chunk terakhir bisa lebih kecil)
+     * @param contentType Content-Type yang dikirim client saat membuka sesi (boleh null)
+     * @param uploadedBy username pengupload, null jika tanpa token
+     * @param receivedChunks nomor chunk yang sudah diterima, urut naik
+     */
+    public record UploadSession(String uploadId, String fileName, long size, int chunkSize, String contentType,
+                                String uploadedBy, List<Integer> receivedChunks) {
+
+        /**
+         * @return jumlah chunk total
+         */
+        public int chunkCount() {
+            return size == 0 ? 1 : (int) ((size + chunkSize - 1) / chunkSize);
+        }
+
+        /**
+         * @param index nomor chunk
+         * @return jumlah byte chunk tersebut
+         */
+        public long chunkLength(int index) {
+            return Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+    }
+
+    private final FileStorageService fileStorageService;
+    private final UploadSessionStore sessions;
+    private final int defaultChunkSize;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final Duration sessionTtl;
+
+    private final Counter chunksReceived;
+    private final Counter chunksRejected;
+    private final Counter completed;
+
+    public ChunkedUploadService(FileStorageService fileStorageService,
+                                UploadSessionStore sessions,
+                                MeterRegistry meterRegistry,
+                                @Value("${file.chunked.default-chunk-size:8MB}") DataSize defaultChunkSize,
+                                @Value("${file.chunked.min-chunk-size:256KB}") DataSize minChunkSize,
+                                @Value("${file.chunked.max-chunk-size:64MB}") DataSize maxChunkSize,
+                                @Value("${file.chunked.session-ttl:24h}") Duration sessionTtl) {
+        this.fileStorageService = fileStorageService;
+        this.sessions = sessions;
+        this.defaultChunkSize = (int) defaultChunkSize.toBytes();
+        this.minChunkSize = (int) minChunkSize.toBytes();
+        this.maxChunkSize = (int) maxChunkSize.toBytes();
+        this.sessionTtl = sessionTtl;
+
+        this.chunksReceived = Counter.builder("file.chunked.chunks").tag("result", "accepted")
+                .register(meterRegistry);
+        this.chunksRejected = Counter.builder("file.chunked.chunks").tag("result", "rejected")
+                .register(meterRegistry);
+        this.completed = Counter.builder("file.chunked.completed")
+                .description("Jumlah upload bertahap yang selesai")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Membuka sesi upload baru
+     * @param fileName nama file tujuan
+     * @param size ukuran total file dalam byte
+     * @param chunkSize ukuran chunk yang diinginkan client, null untuk default
+     * @param contentType Content-Type file (boleh null)
+     * @param uploadedBy username pengupload, null jika tanpa token
+     * @return sesi baru
+     * @throws IllegalArgumentException jika nama file, ukuran atau ukuran chunk tidak valid
+     * @throws PayloadTooLargeException jika ukuran melebihi file.upload.max-size
+     */
+    public UploadSession open(String fileName, long size, Integer chunkSize, String contentType, String uploadedBy)
+            throws IOException {
+        String name = FileStorageService.validateName(fileName);
+        if (size < 0) {
+            throw new IllegalArgumentException("Ukuran file tidak valid");
+        }
+        if (size > fileStorageService.getMaxUploadSize()) {
+            throw new PayloadTooLargeException("File melebihi batas ukuran upload", fileStorageService.getMaxUploadSize());
+        }
+        int effectiveChunkSize = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (effectiveChunkSize < minChunkSize || effectiveChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Ukuran chunk harus antara " + minChunkSize + " dan " + maxChunkSize + " byte");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Properties properties = new Properties();
+        properties.setProperty("fileName", name);
+        properties.setProperty("size", Long.toString(size));
+        properties.setProperty("chunkSize", Integer.toString(effectiveChunkSize));
+        if (contentType != null) {
+            properties.setProperty("contentType", contentType);
+        }
+        if (uploadedBy != null) {
+            properties.setProperty("uploadedBy", uploadedBy);
+        }
+        sessions.create(uploadId, properties, size);
+
+        return new UploadSession(uploadId, name, size, effectiveChunkSize, contentType, uploadedBy, List.of());
+    }
+
+    /**
+     * @param uploadId id sesi
+     * @return sesi beserta chunk yang sudah diterima
+     * @throws UploadSessionNotFoundException jika sesi tidak ada
+     */
+    public UploadSession status(String uploadId) throws IOException {
+        return load(sessionId(uploadId));
+    }
+
+    /**
+     * Menerima satu chunk. Aman dipanggil paralel untuk chunk berbeda, dan dari pod mana pun.
+     * Chunk yang sama boleh dikirim ulang: isinya baru menimpa kiriman sebelumnya setelah lengkap dan checksum-nya
+     * cocok, kiriman ulang yang ditolak tidak mengubah chunk yang sudah diterima.
+     * @param uploadId id sesi
+     * @param index nomor chunk (mulai 0)
+     * @param body stream body request berisi isi chunk
+     * @param expectedSha256 hash SHA-256 (hex) chunk menurut client, null jika tidak dikirim
+     * @return hash SHA-256 (hex) chunk yang diterima
+     * @throws IllegalArgumentException jika nomor chunk, panjang atau hash chunk tidak sesuai
+     * @throws UploadSessionNotFoundException jika sesi tidak ada
+     */
+    public String writeChunk(String uploadId, int index, InputStream body, String expectedSha256) throws IOException {
+        String id = sessionId(uploadId);
+        UploadSession session = load(id);
+        if (index < 0 || index >= session.chunkCount()) {
+            throw new IllegalArgumentException("Nomor chunk harus antara 0 dan " + (session.chunkCount() - 1));
+        }
+        long length = session.chunkLength(index);
+
+        // Chunk ditampung dulu di file sementara; sesi baru diubah setelah chunk lengkap dan checksum-nya cocok,
+        // sehingga kiriman ulang yang rusak atau terputus tidak merusak chunk yang sudah diterima
+        Path staged = fileStorageService.newTempFile();
+        try {
+            MessageDigest digest = sha256();
+            long written = 0;
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                 FileChannel out = FileChannel.open(staged, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (in.read(buffer) >= 0) {
+                    if (written + buffer.position() > length) {
+                        chunksRejected.increment();
+                        throw new IllegalArgumentException("Chunk " + index + " harus berukuran " + length + " byte");
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        written += out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            if (written != length) {
+                chunksRejected.increment();
+                throw new IllegalArgumentException("Chunk " + index + " harus berukuran " + length + " byte");
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                chunksRejected.increment();
+                throw new IllegalArgumentException("Checksum chunk " + index + " tidak cocok, kirim ulang chunk ini");
+            }
+
+            sessions.putChunk(id, index, (long) index * session.chunkSize(), staged, sha256);
+            chunksReceived.increment();
+            return sha256;
+        } catch (NoSuchFileException e) {
+            throw new UploadSessionNotFoundException("Sesi upload tidak ditemukan"); // Diselesaikan/dibatalkan bersamaan
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    /**
+     * Menyelesaikan sesi: semua chunk harus sudah diterima, lalu chunk disusun menjadi satu file lokal
+     * (lihat {@link UploadSessionStore#assemble(String, int, Path)}), disimpan ke blob store dan sesi dihapus.
+     * Jika penyimpanan gagal, sesi tetap ada dan complete boleh diulang.
+     * @param uploadId id sesi
+     * @param expectedSha256 hash SHA-256 (hex) seluruh file menurut client, null jika tidak dikirim
+     * @return file yang disimpan
+     * @throws IllegalArgumentException jika masih ada chunk yang belum diterima atau hash file tidak cocok
+     * @throws UploadSessionNotFoundException jika sesi tidak ada
+     */
+    public StoredFile complete(String uploadId, String expectedSha256) throws IOException {
+        String id = sessionId(uploadId);
+        UploadSession session = load(id);
+        int missing = session.chunkCount() - session.receivedChunks().size();
+        if (missing > 0) {
+            throw new IllegalArgumentException(missing + " chunk belum diterima");
+        }
+
+        Path data = fileStorageService.newTempFile();
+        try {
+            sessions.assemble(id, session.chunkSize(), data);
+        } catch (NoSuchFileException e) {
+            throw new UploadSessionNotFoundException("Sesi upload tidak ditemukan"); // Diselesaikan bersamaan
+        } catch (IOException e) {
+            sessions.restore(id, data);
+            Files.deleteIfExists(data);
+            throw e;
+        }
+        StoredFile stored;
+        try {
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(hashFile(data))) {
+                throw new IllegalArgumentException("Checksum file tidak cocok");
+            }
+            stored = fileStorageService.store(session.fileName(), data, session.contentType(), session.uploadedBy());
+        } catch (IOException | RuntimeException e) {
+            sessions.restore(id, data);
+            throw e;
+        } finally {
+            Files.deleteIfExists(data);
+        }
+        sessions.delete(id);
+        completed.increment();
+        return stored;
+    }
+
+    /**
+     * Membatalkan sesi dan menghapus semua data yang sudah diterima
+     * @param uploadId id sesi
+     * @throws UploadSessionNotFoundException jika sesi tidak ada
+     */
+    public void abort(String uploadId) throws IOException {
+        if (!sessions.delete(sessionId(uploadId))) {
+            throw new UploadSessionNotFoundException("Sesi upload tidak ditemukan");
+        }
+    }
+
+    /**
+     * Menghapus sesi yang tidak menerima chunk lagi selama file.chunked.session-ttl
+     */
+    @Scheduled(fixedDelayString = "${file.gc.interval:1h}", initialDelayString = "${file.gc.interval:1h}")
+    public void expireSessions() {
+        sessions.expire(sessionTtl);
+    }
+
+    /**
+     * Id sesi harus UUID, sehingga tidak bisa dipakai untuk keluar dari direktori/prefix sesi di storage
+     */
+    private static String sessionId(String uploadId) {
+        try {
+            return UUID.fromString(uploadId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new UploadSessionNotFoundException("Sesi upload tidak ditemukan");
+        }
+    }
+
+    private UploadSession load(String uploadId) throws IOException {
+        Properties properties;
+        List<Integer> received;
+        try {
+            properties = sessions.attributes(uploadId);
+            received = new ArrayList<>(sessions.receivedChunks(uploadId));
+        } catch (NoSuchFileException e) {
+            throw new UploadSessionNotFoundException("Sesi upload tidak ditemukan");
+        }
+        received.sort(null);
+
+        return new UploadSession(uploadId,
+                properties.getProperty("fileName"),
+                Long.parseLong(properties.getProperty("size")),
+                Integer.parseInt(properties.getProperty("chunkSize")),
+                properties.getProperty("contentType"),
+                properties.getProperty("uploadedBy"),
+                received);
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+}
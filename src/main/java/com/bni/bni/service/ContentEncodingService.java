@@ -0,0 +1,364 @@
+package com.bni.bni.service;
+
+import com.bni.bni.service.FileStorageService.FileInfo;
+import com.bni.bni.util.DiskLruCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service varian terkompresi (zstd dan gzip) untuk file teks (CSV, JSON, log, SVG, dsb.).
+ * File dikompresi sekali saja, di background saat pertama kali diminta (request itu sendiri tetap
+ * dilayani tanpa kompresi), lalu disimpan di cache disk LRU lokal pod. Request berikutnya memilih varian
+ * terbaik sesuai header Accept-Encoding dan dikirim seperti file biasa (sendfile, byte range), tanpa
+ * kompresi on-the-fly. Key cache memakai hash isi file, jadi varian tidak pernah basi.
+ */
+@Service
+public class ContentEncodingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentEncodingService.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Content coding yang didukung, urut dari yang paling disukai server
+     */
+    public enum Encoding {
+        ZSTD("zstd", "zst"),
+        GZIP("gzip", "gz");
+
+        private final String token;
+        private final String extension;
+
+        Encoding(String token, String extension) {
+            this.token = token;
+            this.extension = extension;
+        }
+
+        /**
+         * @return nilai header Content-Encoding
+         */
+        public String token() {
+            return token;
+        }
+    }
+
+    /**
+     * Varian terkompresi sebuah file
+     * @param file metadata varian (lokasi, ukuran dan ETag varian; nama dan content type file asli)
+     * @param encoding content coding varian
+     */
+    public record EncodedFile(FileInfo file, Encoding encoding) {
+    }
+
+    // Content type non-text/* yang isinya teks
+    private static final Set<MediaType> COMPRESSIBLE_TYPES = Set.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_NDJSON,
+            MediaType.parseMediaType("application/javascript"), MediaType.parseMediaType("image/svg+xml"),
+            MediaType.parseMediaType("application/x-yaml"), MediaType.parseMediaType("application/sql"));
+
+    private final DiskLruCache cache;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Hash file yang ternyata tidak mengecil saat dikompresi, agar tidak dikompresi ulang di setiap request
+    private final Cache<String, Boolean> incompressible;
+
+    private final List<Encoding> encodings;
+    private final long minSize;
+    private final long maxSize;
+    private final double minSavings;
+    private final int gzipLevel;
+    private final int zstdLevel;
+
+    private final Timer compressTimer;
+    private final Counter rejected;
+    private final Map<Encoding, Counter> served = new EnumMap<>(Encoding.class);
+
+    /**
+     * Constructor untuk menyiapkan cache disk dan worker pool kompresi
+     * @param meterRegistry registry metrics
+     * @param cacheDir direktori cache varian (sebaiknya disk lokal pod)
+     * @param cacheMaxSize batas total ukuran cache
+     * @param minSize ukuran file minimum yang dikompresi
+     * @param maxSize ukuran file maksimum yang dikompresi
+     * @param minSavings penghematan minimum (0-1) agar varian disimpan
+     * @param gzipLevel level kompresi gzip (1-9)
+     * @param zstdLevel level kompresi zstd (1-22), 0 untuk mematikan zstd
+     * @param threads jumlah worker kompresi
+     * @param maxCpuShare batas bagian core CPU (0-1) yang boleh dipakai worker kompresi, minimal satu worker
+     * @param queueCapacity kapasitas antrian, kompresi yang tidak muat dicoba lagi pada request berikutnya
+     */
+    public ContentEncodingService(MeterRegistry meterRegistry,
+                                  @Value("${file.compression.cache-dir:${java.io.tmpdir}/bni-encoded}") Path cacheDir,
+                                  @Value("${file.compression.cache-max-size:2GB}") DataSize cacheMaxSize,
+                                  @Value("${file.compression.min-size:1KB}") DataSize minSize,
+                                  @Value("${file.compression.max-size:256MB}") DataSize maxSize,
+                                  @Value("${file.compression.min-savings:0.1}") double minSavings,
+                                  @Value("${file.compression.gzip-level:6}") int gzipLevel,
+                                  @Value("${file.compression.zstd-level:6}") int zstdLevel,
+                                  @Value("${file.compression.threads:2}") int threads,
+                                  @Value("${file.compression.max-cpu-share:0.25}") double maxCpuShare,
+                                  @Value("${file.compression.queue-capacity:64}") int queueCapacity) throws IOException {
+        this.cache = new DiskLruCache(cacheDir, cacheMaxSize.toBytes());
+        this.minSize = minSize.toBytes();
+        this.maxSize = maxSize.toBytes();
+        this.minSavings = minSavings;
+        this.gzipLevel = gzipLevel;
+        this.zstdLevel = zstdLevel;
+        this.encodings = zstdLevel > 0 && zstdAvailable() ? List.of(Encoding.ZSTD, Encoding.GZIP) : List.of(Encoding.GZIP);
+        this.incompressible = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+
+        // Prioritas thread diabaikan JVM di Linux, jadi kompresi dijauhkan dari CPU request dengan membatasi
+        // jumlah worker ke sebagian core
+        int poolSize = poolSize(threads, maxCpuShare, Runtime.getRuntime().availableProcessors());
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CompressionThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("file.encoding.cache.size", cache, DiskLruCache::totalBytes)
+                .description("Total ukuran cache varian terkompresi di disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.compressTimer = Timer.builder("file.encoding.compress.duration")
+                .description("Durasi kompresi satu file ke semua varian")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("file.encoding.rejected")
+                .description("Jumlah kompresi yang dilewati karena antrian penuh")
+                .register(meterRegistry);
+        for (Encoding encoding : Encoding.values()) {
+            served.put(encoding, Counter.builder("file.encoding.served").tag("encoding", encoding.token())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @param file metadata file
+     * @return true jika file layak dikompresi (teks, ukuran dalam batas), response-nya perlu Vary: Accept-Encoding
+     */
+    public boolean isCompressible(FileInfo file) {
+        if (file.size() < minSize || file.size() > maxSize) {
+            return false;
+        }
+        MediaType type = file.mediaType();
+        return "text".equals(type.getType())
+                || type.getSubtype().endsWith("+json") || type.getSubtype().endsWith("+xml")
+                || COMPRESSIBLE_TYPES.stream().anyMatch(type::equalsTypeAndSubtype);
+    }
+
+    /**
+     * Memilih varian terkompresi yang sudah ada di cache sesuai Accept-Encoding
+     * @param original metadata file asli
+     * @param acceptEncoding nilai header Accept-Encoding (boleh null)
+     * @return varian terbaik yang diterima client, atau empty jika belum ada / client tidak menerima kompresi
+     */
+    public Optional<EncodedFile> variant(FileInfo original, String acceptEncoding) {
+        if (!isCompressible(original)) {
+            return Optional.empty();
+        }
+        for (Encoding encoding : negotiate(acceptEncoding)) {
+            String key = key(original, encoding);
+            DiskLruCache.Entry entry = cache.get(key);
+            if (entry != null) {
+                served.get(encoding).increment();
+                return Optional.of(new EncodedFile(new FileInfo(entry.path(), original.fileName(), entry.size(),
+                        original.lastModified(), "\"" + key + "\"", original.mediaType(), original.uploadedBy()),
+                        encoding));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Menjadwalkan kompresi file di background jika variannya belum ada. Tidak pernah menunggu:
+     * jika file sedang dikompresi atau antrian penuh, permintaan ini diabaikan.
+     * @param original metadata file asli dengan lokasi isi file di disk lokal
+     */
+    public void compressLater(FileInfo original) {
+        if (original.path() == null || !isCompressible(original)
+                || incompressible.getIfPresent(original.version()) != null
+                || encodings.stream().allMatch(encoding -> cache.get(key(original, encoding)) != null)
+                || !inFlight.add(original.version())) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compressTimer.record(() -> compress(original));
+                } finally {
+                    inFlight.remove(original.version());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(original.version());
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Urutan content coding yang diterima client: q-value tertinggi dulu, jika sama mengikuti urutan
+     * preferensi server (zstd sebelum gzip). Coding dengan q=0 ditolak, "*" berlaku untuk coding yang tidak disebut.
+     */
+    private List<Encoding> negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return List.of();
+        }
+        Map<String, Double> weights = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String token = params[0].trim().toLowerCase(Locale.ROOT);
+            if (token.isEmpty()) {
+                continue;
+            }
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0; // q-value tidak valid diperlakukan sebagai penolakan
+                    }
+                }
+            }
+            weights.put("x-gzip".equals(token) ? "gzip" : token, q);
+        }
+
+        Double wildcard = weights.get("*");
+        List<Encoding> accepted = new ArrayList<>();
+        for (Encoding encoding : encodings) {
+            Double q = weights.getOrDefault(encoding.token(), wildcard);
+            if (q != null && q > 0) {
+                accepted.add(encoding);
+            }
+        }
+        // Sort stabil: urutan preferensi server tetap untuk q yang sama
+        accepted.sort(Comparator.comparingDouble(
+                (Encoding encoding) -> weights.getOrDefault(encoding.token(), wildcard)).reversed());
+        return accepted;
+    }
+
+    private void compress(FileInfo original) {
+        Path source = original.path();
+        long limit = (long) (original.size() * (1 - minSavings));
+        for (Encoding encoding : encodings) {
+            String key = key(original, encoding);
+            if (cache.get(key) != null) {
+                continue;
+            }
+            try {
+                DiskLruCache.Entry entry = cache.put(key, target -> encode(source, target, encoding));
+                if (entry.size() > limit) {
+                    // Isi file sudah terkompresi / acak: semua varian tidak berguna
+                    cache.remove(key);
+                    incompressible.put(original.version(), Boolean.TRUE);
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("File {} tidak bisa dikompresi dengan {}: {}", original.fileName(), encoding.token(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void encode(Path source, Path target, Encoding encoding) throws IOException {
+        try (OutputStream file = Files.newOutputStream(target);
+             OutputStream out = switch (encoding) {
+                 case ZSTD -> new ZstdOutputStream(file, zstdLevel);
+                 case GZIP -> new LeveledGzipOutputStream(file, gzipLevel);
+             }) {
+            Files.copy(source, out);
+        }
+    }
+
+    /**
+     * Jumlah worker kompresi: nilai yang dikonfigurasi, dibatasi maxCpuShare dari jumlah core (minimal satu)
+     */
+    static int poolSize(int threads, double maxCpuShare, int cores) {
+        return Math.max(1, Math.min(threads, (int) (cores * maxCpuShare)));
+    }
+
+    private static String key(FileInfo original, Encoding encoding) {
+        return original.version() + "." + encoding.extension;
+    }
+
+    /**
+     * zstd memakai library native (zstd-jni); jika tidak tersedia untuk platform ini, hanya gzip yang dipakai
+     */
+    private static boolean zstdAvailable() {
+        try {
+            new ZstdOutputStream(OutputStream.nullOutputStream()).close();
+            return true;
+        } catch (IOException | LinkageError e) {
+            log.warn("zstd tidak tersedia, hanya varian gzip yang dibuat: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * GZIPOutputStream dengan level kompresi yang bisa diatur
+     */
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        private LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * Thread factory agar worker kompresi mudah dikenali di thread dump
+     */
+    private static final class CompressionThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "file-compression-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
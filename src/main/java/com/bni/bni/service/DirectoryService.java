@@ -0,0 +1,109 @@
+package com.bni.bni.service;
+
+import com.bni.bni.dto.DirectoryEntry;
+import com.bni.bni.repository.UserRepository;
+import com.bni.bni.sharding.ShardContext;
+import com.bni.bni.sharding.ShardMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service untuk pencarian direktori user/profil dengan keyset pagination.
+ * Cursor bersifat opaque bagi client: berisi (created_at, id) baris terakhir halaman sebelumnya.
+ * Setiap shard dicari dengan keyset yang sama lalu hasilnya digabung, karena urutan (created_at, id) berlaku global.
+ */
+@Service
+public class DirectoryService {
+
+    /**
+     * Satu halaman hasil pencarian
+     * @param entries baris pada halaman ini
+     * @param nextCursor cursor untuk halaman berikutnya, null jika sudah halaman terakhir
+     */
+    public record DirectoryPage(List<DirectoryEntry> entries, String nextCursor) {
+    }
+
+    // Urutan direktori: terbaru dulu, id sebagai pemecah seri (sama dengan ORDER BY di query)
+    private static final Comparator<DirectoryEntry> NEWEST_FIRST =
+            Comparator.comparing(DirectoryEntry::createdAt).thenComparing(DirectoryEntry::id).reversed();
+
+    private final UserRepository userRepository;
+    private final ShardMap shardMap;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public DirectoryService(UserRepository userRepository,
+                            ShardMap shardMap,
+                            @Value("${directory.page.default-size:50}") int defaultLimit,
+                            @Value("${directory.page.max-size:200}") int maxLimit) {
+        this.userRepository = userRepository;
+        this.shardMap = shardMap;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Mencari user berdasarkan prefix username, email, nama depan atau nama belakang
+     * @param query prefix pencarian, null/kosong untuk semua user
+     * @param cursor cursor dari halaman sebelumnya, null untuk halaman pertama
+     * @param limit ukuran halaman, null untuk ukuran default
+     * @return satu halaman hasil pencarian
+     * @throws IllegalArgumentException jika cursor tidak valid
+     */
+    public DirectoryPage search(String query, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+
+        OffsetDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            afterCreatedAt = OffsetDateTime.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+        }
+
+        // Ambil satu baris lebih dari setiap shard untuk mengetahui apakah masih ada halaman berikutnya
+        List<DirectoryEntry> rows = new ArrayList<>();
+        for (int shard = 0; shard < shardMap.shardCount(); shard++) {
+            OffsetDateTime seekCreatedAt = afterCreatedAt;
+            Long seekId = afterId;
+            rows.addAll(ShardContext.call(shard,
+                    () -> userRepository.searchDirectory(query, seekCreatedAt, seekId, pageSize + 1)));
+        }
+        rows.sort(NEWEST_FIRST);
+        if (rows.size() <= pageSize) {
+            return new DirectoryPage(rows, null);
+        }
+        List<DirectoryEntry> page = rows.subList(0, pageSize);
+        DirectoryEntry last = page.get(page.size() - 1);
+        return new DirectoryPage(page, encodeCursor(last));
+    }
+
+    private static String encodeCursor(DirectoryEntry last) {
+        String raw = last.createdAt() + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor tidak valid");
+            }
+            // Validasi format lebih awal agar error cursor tidak muncul sebagai error SQL
+            OffsetDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor tidak valid", e);
+        }
+    }
+}
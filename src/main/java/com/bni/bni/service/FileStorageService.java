@@ -0,0 +1,674 @@
+package com.bni.bni.service;
+
+import com.bni.bni.exception.PayloadTooLargeException;
+import com.bni.bni.repository.FileIndexRepository;
+import com.bni.bni.repository.FileIndexRepository.IndexedFile;
+import com.bni.bni.sharding.ShardContext;
+import com.bni.bni.storage.BlobStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Service penyimpanan file upload secara content-addressed.
+ * Isi file di-hash SHA-256 selama di-stream ke disk lokal, lalu disimpan sekali saja per hash di {@link BlobStore}
+ * (filesystem atau object storage S3, dipilih lewat file.storage.type).
+ * Nama file hanya entry di index database (shard 0) yang menunjuk ke hash isinya, sehingga file identik
+ * tidak disimpan dua kali dan upload ulang dengan nama yang sama hanya memindahkan referensi.
+ * Blob yang tidak lagi direferensikan dihapus oleh GC berkala setelah masa tenggang.
+ * Metadata file (content type, ukuran, checksum, pengupload, waktu upload) dicatat di index saat upload
+ * dan dibaca lewat cache di memory, sehingga download tidak memeriksa filesystem sama sekali.
+ */
+@Service
+public class FileStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+
+    // Ukuran buffer direct untuk menyalin body request ke FileChannel
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    // Index file hanya disimpan di shard 0, tidak ikut sharding user
+    private static final int INDEX_SHARD = 0;
+
+    // File penanda di direktori upload: semua file lama sudah dipindah ke blob store
+    private static final String LEGACY_IMPORTED_MARKER = ".legacy-imported";
+
+    // Nama advisory lock agar import file lama hanya dijalankan satu pod
+    private static final String LEGACY_IMPORT_LOCK = "file-storage:legacy-import";
+
+    // Batas panjang nama file (kolom stored_files.name)
+    private static final int MAX_NAME_LENGTH = 255;
+
+    /**
+     * Hasil penyimpanan file
+     * @param fileName nama file yang disimpan
+     * @param size ukuran file dalam byte
+     * @param hash hash SHA-256 isi file (hex)
+     */
+    public record StoredFile(String fileName, long size, String hash) {
+    }
+
+    /**
+     * Metadata file dari katalog, untuk response download dan daftar file
+     * @param path lokasi isi file di disk lokal, null jika isi file harus diambil dulu dari blob store
+     *             (lihat {@link FileStorageService#fetch(FileInfo)})
+     * @param fileName nama file
+     * @param size ukuran file dalam byte
+     * @param lastModified waktu upload terakhir (epoch millis)
+     * @param etag ETag (sudah dengan tanda kutip) berupa hash SHA-256 isi file
+     * @param mediaType content type yang dicatat saat upload
+     * @param uploadedBy username pengupload terakhir, null jika upload tanpa token
+     */
+    public record FileInfo(Path path, String fileName, long size, long lastModified, String etag, MediaType mediaType,
+                           String uploadedBy) {
+
+        /**
+         * @return nilai ETag tanpa tanda kutip, dipakai sebagai parameter versi (?v=) di URL
+         */
+        public String version() {
+            return etag.substring(1, etag.length() - 1);
+        }
+
+        /**
+         * @return metadata file dengan key snake_case seperti response API
+         */
+        public Map<String, Object> toResponse() {
+            Map<String, Object> response = new HashMap<>();
+            response.put("file_name", fileName);
+            response.put("size", size);
+            response.put("content_type", mediaType.toString());
+            response.put("sha256", version());
+            response.put("uploaded_by", uploadedBy);
+            response.put("uploaded_at", Instant.ofEpochMilli(lastModified).toString());
+            response.put("file_url", "/api/files/" + fileName + "?v=" + version());
+            return response;
+        }
+    }
+
+    /**
+     * Satu halaman daftar file
+     * @param files file pada halaman ini
+     * @param nextCursor cursor untuk halaman berikutnya, null jika sudah halaman terakhir
+     */
+    public record FilePage(List<FileInfo> files, String nextCursor) {
+    }
+
+    private final Path uploadDir;
+    private final Path tmpDir;
+    private final long maxUploadSize;
+    private final Duration gcGracePeriod;
+    private final int gcBatchSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    private final FileIndexRepository index;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactions;
+
+    // Cache metadata per nama file. Pod lain bisa melihat metadata lama paling lama selama TTL,
+    // karena itu TTL harus lebih pendek dari masa tenggang GC (blob lama masih ada selama itu)
+    private final Cache<String, FileInfo> metadataCache;
+
+    private final Timer uploadTimer;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary uploadThroughput;
+    private final Counter rejectedTooLarge;
+    private final Counter deduplicated;
+    private final Counter blobsCollected;
+
+    public FileStorageService(@Value("${file.upload-dir}") String uploadDir,
+                              @Value("${file.upload.max-size:5GB}") DataSize maxUploadSize,
+                              @Value("${file.gc.grace-period:1h}") Duration gcGracePeriod,
+                              @Value("${file.gc.batch-size:500}") int gcBatchSize,
+                              @Value("${file.metadata-cache.max-size:100000}") long cacheMaxSize,
+                              @Value("${file.metadata-cache.ttl:1m}") Duration cacheTtl,
+                              @Value("${file.list.page.default-size:50}") int defaultPageSize,
+                              @Value("${file.list.page.max-size:200}") int maxPageSize,
+                              FileIndexRepository index,
+                              BlobStore blobStore,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.uploadDir = Paths.get(uploadDir);
+        // Di dalam direktori upload agar rename ke blob filesystem tetap di filesystem yang sama (atomic)
+        this.tmpDir = this.uploadDir.resolve(".tmp");
+        this.maxUploadSize = maxUploadSize.toBytes();
+        this.gcGracePeriod = gcGracePeriod;
+        this.gcBatchSize = gcBatchSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.index = index;
+        this.blobStore = blobStore;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.metadataCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, metadataCache, "file.metadata");
+
+        this.uploadTimer = Timer.builder("file.upload.duration")
+                .description("Durasi upload streaming")
+                .register(meterRegistry);
+        this.uploadSize = DistributionSummary.builder("file.upload.size")
+                .description("Ukuran file yang diupload")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+        this.uploadThroughput = DistributionSummary.builder("file.upload.throughput")
+                .description("Throughput upload streaming per request")
+                .baseUnit("bytes.per.second")
+                .register(meterRegistry);
+        this.rejectedTooLarge = Counter.builder("file.upload.rejected")
+                .tag("reason", "too_large")
+                .description("Jumlah upload yang ditolak karena melebihi batas ukuran")
+                .register(meterRegistry);
+        this.deduplicated = Counter.builder("file.upload.deduplicated")
+                .description("Jumlah upload yang isinya sudah tersimpan sebagai blob")
+                .register(meterRegistry);
+        this.blobsCollected = Counter.builder("file.gc.deleted")
+                .description("Jumlah blob tanpa referensi yang dihapus GC")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Menyimpan body request sebagai file. Data ditulis ke file sementara sambil di-hash, lalu
+     * di-rename menjadi blob (atau dibuang jika blob dengan isi yang sama sudah ada),
+     * sehingga file yang belum lengkap tidak pernah terlihat oleh pembaca.
+     * @param fileName nama file tujuan
+     * @param body stream body request
+     * @param contentLength nilai header Content-Length, -1 jika tidak ada (chunked)
+     * @param contentType header Content-Type request, dipakai jika ekstensi file tidak dikenal (boleh null)
+     * @param uploadedBy username pengupload, null jika upload tanpa token
+     * @return file yang disimpan
+     * @throws PayloadTooLargeException jika ukuran melebihi file.upload.max-size
+     * @throws IllegalArgumentException jika nama file tidak valid
+     */
+    public StoredFile store(String fileName, InputStream body, long contentLength,
+                            String contentType, String uploadedBy) throws IOException {
+        String name = validateName(fileName);
+        if (contentLength > maxUploadSize) {
+            // Ditolak sebelum body dibaca sama sekali
+            throw tooLarge();
+        }
+
+        Path tmp = newTempFile();
+        long start = System.nanoTime();
+        long written = 0;
+        MessageDigest digest = sha256();
+        String hash;
+        try {
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (in.read(buffer) >= 0) {
+                    written += buffer.position();
+                    if (written > maxUploadSize) {
+                        throw tooLarge();
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+            commit(name, tmp, hash, written, resolveContentType(name, contentType), uploadedBy);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        uploadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        uploadSize.record(written);
+        if (elapsed > 0) {
+            uploadThroughput.record(written * 1_000_000_000d / elapsed);
+        }
+        return new StoredFile(name, written, hash);
+    }
+
+    /**
+     * Menyimpan file dari upload multipart. Temp file multipart dipindahkan (rename) oleh container ke direktori
+     * sementara, lalu di-hash dan dijadikan blob tanpa disalin ulang.
+     * @param fileName nama file tujuan
+     * @param file file multipart
+     * @param uploadedBy username pengupload, null jika upload tanpa token
+     * @return file yang disimpan
+     * @throws IllegalArgumentException jika nama file tidak valid
+     */
+    public StoredFile store(String fileName, MultipartFile file, String uploadedBy) throws IOException {
+        String name = validateName(fileName);
+        Files.createDirectories(tmpDir);
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            file.transferTo(tmp.toAbsolutePath().toFile());
+            return importFile(name, tmp, resolveContentType(name, file.getContentType()), uploadedBy);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Menyimpan file yang sudah lengkap di disk (misal hasil upload bertahap). File sumber di-hash lalu
+     * dipindahkan (rename) menjadi blob, jadi harus berada di filesystem yang sama dengan direktori upload
+     * (lihat {@link #newTempFile()}).
+     * @param fileName nama file tujuan
+     * @param source file sumber, dipindahkan atau dihapus setelah disimpan
+     * @param contentType content type yang dikirim client, dipakai jika ekstensi file tidak dikenal (boleh null)
+     * @param uploadedBy username pengupload, null jika upload tanpa token
+     * @return file yang disimpan
+     * @throws IllegalArgumentException jika nama file tidak valid
+     */
+    public StoredFile store(String fileName, Path source, String contentType, String uploadedBy) throws IOException {
+        String name = validateName(fileName);
+        return importFile(name, source, resolveContentType(name, contentType), uploadedBy);
+    }
+
+    /**
+     * Membaca metadata file dari katalog (lewat cache), tanpa stat atau probe content type di filesystem.
+     * Nama file yang tidak ada tidak di-cache, sehingga upload dari pod lain langsung terlihat.
+     * @param fileName nama file
+     * @return metadata file, atau empty jika file tidak ada
+     * @throws IllegalArgumentException jika nama file tidak valid
+     */
+    public Optional<FileInfo> describe(String fileName) {
+        String name = validateName(fileName);
+        return Optional.ofNullable(metadataCache.get(name,
+                key -> inIndex(() -> index.findByName(key)).map(this::toFileInfo).orElse(null)));
+    }
+
+    /**
+     * Daftar file dengan keyset pagination, upload terbaru dulu.
+     * Cursor bersifat opaque bagi client: berisi (waktu upload, nama file) baris terakhir halaman sebelumnya.
+     * @param cursor cursor dari halaman sebelumnya, null untuk halaman pertama
+     * @param limit ukuran halaman, null untuk ukuran default
+     * @return satu halaman daftar file
+     * @throws IllegalArgumentException jika cursor tidak valid
+     */
+    public FilePage list(String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        OffsetDateTime afterUpdatedAt = null;
+        String afterName = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            afterUpdatedAt = OffsetDateTime.parse(parts[0]);
+            afterName = parts[1];
+        }
+
+        // Ambil satu baris lebih untuk mengetahui apakah masih ada halaman berikutnya
+        OffsetDateTime seekUpdatedAt = afterUpdatedAt;
+        String seekName = afterName;
+        List<IndexedFile> rows = inIndex(() -> index.findPage(seekUpdatedAt, seekName, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new FilePage(rows.stream().map(this::toFileInfo).toList(), null);
+        }
+        List<IndexedFile> page = rows.subList(0, pageSize);
+        IndexedFile last = page.get(page.size() - 1);
+        return new FilePage(page.stream().map(this::toFileInfo).toList(), encodeCursor(last));
+    }
+
+    /**
+     * Memastikan isi file tersedia di disk lokal (blob store S3: diambil lewat cache read-through)
+     * @param file metadata file dari {@link #describe(String)}
+     * @return metadata file dengan lokasi isi file di disk lokal
+     */
+    public FileInfo fetch(FileInfo file) throws IOException {
+        if (file.path() != null) {
+            return file;
+        }
+        return new FileInfo(blobStore.fetch(file.version()), file.fileName(), file.size(), file.lastModified(),
+                file.etag(), file.mediaType(), file.uploadedBy());
+    }
+
+    /**
+     * URL download langsung dari blob store (presigned URL S3), jika file sebaiknya tidak disajikan aplikasi
+     * @param file metadata file dari {@link #describe(String)}
+     * @return URL untuk redirect, atau empty jika file disajikan aplikasi
+     */
+    public Optional<URI> downloadUrl(FileInfo file) {
+        return blobStore.downloadUrl(file.version(), file.fileName(), file.mediaType());
+    }
+
+    /**
+     * Memulai pemindahan file lama (layout datar sebelum content-addressed) di thread latar belakang, agar
+     * startup dan readiness pod tidak menunggu seluruh direktori upload di-hash. Dilewati sama sekali setelah
+     * direktori upload selesai dimigrasi.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLegacyImport() {
+        if (!Files.isDirectory(uploadDir) || Files.exists(uploadDir.resolve(LEGACY_IMPORTED_MARKER))) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                importLegacyFiles();
+            } catch (DataAccessException e) {
+                log.warn("Import file lama gagal, dicoba lagi saat pod berikutnya start: {}", e.getMessage());
+            }
+        }, "legacy-file-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Memindahkan file lama di direktori upload ke blob store. Hanya satu pod yang menjalankannya pada satu waktu
+     * (advisory lock di database index); pod lain langsung berhenti. Setelah semua file berhasil dipindah,
+     * file penanda ditulis di direktori upload sehingga import tidak dijalankan lagi.
+     */
+    public void importLegacyFiles() {
+        boolean ran = inIndex(() -> index.runExclusively(LEGACY_IMPORT_LOCK, this::importLegacyFilesExclusively));
+        if (!ran) {
+            log.info("Import file lama sedang dijalankan pod lain");
+        }
+    }
+
+    private void importLegacyFilesExclusively() {
+        Path marker = uploadDir.resolve(LEGACY_IMPORTED_MARKER);
+        if (Files.exists(marker)) {
+            return; // Sudah selesai oleh pod lain selama menunggu
+        }
+        int imported = 0;
+        int failed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDir, Files::isRegularFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                try {
+                    String validName = validateName(name);
+                    importFile(validName, file, resolveContentType(validName, null), null);
+                    imported++;
+                } catch (NoSuchFileException e) {
+                    // Sudah dipindah pod lain
+                } catch (IllegalArgumentException | IOException | DataAccessException e) {
+                    failed++;
+                    log.warn("File lama {} tidak bisa dipindah ke blob store: {}", name, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Direktori upload {} tidak bisa dibaca: {}", uploadDir, e.getMessage());
+            return;
+        }
+        if (imported > 0) {
+            log.info("{} file lama dipindah ke blob store", imported);
+        }
+        if (failed == 0) {
+            try {
+                Files.writeString(marker, Instant.now().toString());
+            } catch (IOException e) {
+                log.warn("Penanda import file lama {} tidak bisa ditulis: {}", marker, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Menghapus blob yang sudah tanpa referensi lebih lama dari masa tenggang, beserta file sementara
+     * yang ditinggalkan upload yang terputus. Masa tenggang memberi waktu bagi download yang sedang berjalan
+     * dari blob lama (setelah nama file diarahkan ke isi baru) untuk selesai.
+     */
+    @Scheduled(fixedDelayString = "${file.gc.interval:1h}", initialDelayString = "${file.gc.interval:1h}")
+    public void collectGarbage() {
+        int deleted;
+        do {
+            deleted = inIndex(() -> transactions.execute(status -> {
+                List<String> garbage = index.lockGarbage(gcGracePeriod, gcBatchSize);
+                int collected = 0;
+                for (String hash : garbage) {
+                    // Baris blob masih ter-lock, upload dengan isi yang sama menunggu sampai blob benar-benar terhapus
+                    try {
+                        blobStore.delete(hash);
+                    } catch (IOException e) {
+                        // Baris dibiarkan agar dicoba lagi pada GC berikutnya
+                        log.warn("Blob {} tidak bisa dihapus: {}", hash, e.getMessage());
+                        continue;
+                    }
+                    index.deleteBlob(hash);
+                    collected++;
+                }
+                return collected;
+            }));
+            blobsCollected.increment(deleted);
+        } while (deleted == gcBatchSize);
+
+        if (Files.isDirectory(tmpDir)) {
+            long cutoff = System.currentTimeMillis() - gcGracePeriod.toMillis();
+            try (DirectoryStream<Path> parts = Files.newDirectoryStream(tmpDir)) {
+                for (Path part : parts) {
+                    // Upload yang masih berjalan terus memperbarui waktu modifikasi file sementaranya
+                    if (Files.getLastModifiedTime(part).toMillis() < cutoff) {
+                        deleteQuietly(part);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Direktori sementara {} tidak bisa dibersihkan: {}", tmpDir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Meng-hash file yang sudah ada di disk lalu menjadikannya blob (rename, bukan salin)
+     */
+    private StoredFile importFile(String name, Path source, String contentType, String uploadedBy) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                size += buffer.position();
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        commit(name, source, hash, size, contentType, uploadedBy);
+        return new StoredFile(name, size, hash);
+    }
+
+    /**
+     * Menaruh blob di blob store lalu mencatat nama file -> hash di index.
+     * Blob ditaruh di luar transaksi (upload ke object storage bisa lama dan tidak boleh menahan koneksi database);
+     * GC blob tanpa referensi dengan hash yang sama ditunda lebih dulu, sehingga blob tidak terhapus sebelum
+     * referensinya tercatat (asalkan upload selesai dalam masa tenggang GC).
+     */
+    private void commit(String name, Path source, String hash, long size,
+                        String contentType, String uploadedBy) throws IOException {
+        try {
+            inIndex(() -> {
+                index.deferCollection(hash);
+                return null;
+            });
+            if (blobStore.exists(hash)) {
+                deduplicated.increment();
+                Files.deleteIfExists(source);
+            } else {
+                blobStore.put(hash, source, size);
+            }
+
+            inIndex(() -> transactions.execute(status -> {
+                index.acquireBlob(hash, size);
+                // Referensi lama dilepas setelah yang baru ditambah, jadi upload ulang isi yang sama tidak pernah ke 0
+                index.link(name, hash, size, contentType, uploadedBy).ifPresent(index::releaseBlob);
+                return null;
+            }));
+        } finally {
+            metadataCache.invalidate(name);
+        }
+    }
+
+    private FileInfo toFileInfo(IndexedFile entry) {
+        return new FileInfo(
+                blobStore.localPath(entry.hash()),
+                entry.name(),
+                entry.size(),
+                entry.updatedAt().toInstant().toEpochMilli(),
+                "\"" + entry.hash() + "\"",
+                entry.contentType() != null
+                        ? MediaType.parseMediaType(entry.contentType())
+                        : resolveMediaType(entry.name(), null),
+                entry.uploadedBy());
+    }
+
+    /**
+     * Content type dicatat sekali saat upload: dari ekstensi file (tabel di memory), atau dari Content-Type
+     * yang dikirim client jika ekstensinya tidak dikenal. HTML kiriman client tidak dipercaya karena
+     * file disajikan inline dari origin aplikasi.
+     */
+    private static String resolveContentType(String name, String declared) {
+        return resolveMediaType(name, declared).toString();
+    }
+
+    private static MediaType resolveMediaType(String name, String declared) {
+        Optional<MediaType> byExtension = MediaTypeFactory.getMediaType(name);
+        if (byExtension.isPresent()) {
+            return byExtension.get();
+        }
+        if (declared != null && !declared.isBlank()) {
+            try {
+                MediaType mediaType = MediaType.parseMediaType(declared);
+                if (mediaType.isConcrete() && !mediaType.isCompatibleWith(MediaType.TEXT_HTML)
+                        && !mediaType.isCompatibleWith(MediaType.APPLICATION_XHTML_XML)) {
+                    return mediaType;
+                }
+            } catch (InvalidMediaTypeException e) {
+                // Content-Type tidak valid diperlakukan seperti tidak dikirim
+            }
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static String encodeCursor(IndexedFile last) {
+        String raw = last.updatedAt() + "|" + last.name();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // Waktu tidak pernah mengandung "|", jadi nama file yang mengandung "|" tetap utuh di bagian kedua
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor tidak valid");
+            }
+            // Validasi format lebih awal agar error cursor tidak muncul sebagai error SQL
+            OffsetDateTime.parse(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor tidak valid", e);
+        }
+    }
+
+    /**
+     * Path baru untuk file sementara di direktori upload (filesystem yang sama dengan blob filesystem, jadi bisa
+     * di-rename menjadi blob). File belum dibuat; file yang tertinggal dihapus GC setelah masa tenggang.
+     * @return path file sementara yang belum ada
+     */
+    public Path newTempFile() throws IOException {
+        Files.createDirectories(tmpDir);
+        return tmpDir.resolve(UUID.randomUUID() + ".part");
+    }
+
+    /**
+     * Operasi index selalu di shard 0, apa pun shard aktif di thread pemanggil
+     */
+    private static <T> T inIndex(Supplier<T> action) {
+        return ShardContext.call(INDEX_SHARD, action);
+    }
+
+    /**
+     * @return batas ukuran satu file upload dalam byte
+     */
+    public long getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
+    /**
+     * Memvalidasi nama file. Nama file harus nama file tunggal, tanpa separator direktori atau "..".
+     * @param fileName nama file
+     * @return nama file yang sudah dibersihkan
+     * @throws IllegalArgumentException jika nama file tidak valid
+     */
+    public static String validateName(String fileName) {
+        String cleaned = fileName == null ? "" : StringUtils.cleanPath(fileName);
+        if (cleaned.isBlank() || cleaned.contains("/") || cleaned.contains("\\") || cleaned.contains("..")
+                || cleaned.startsWith(".") || cleaned.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Nama file tidak valid");
+        }
+        return cleaned;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("File {} tidak bisa dihapus: {}", path, e.getMessage());
+        }
+    }
+
+    private PayloadTooLargeException tooLarge() {
+        rejectedTooLarge.increment();
+        return new PayloadTooLargeException("File melebihi batas ukuran upload", maxUploadSize);
+    }
+}
@@ -0,0 +1,451 @@
+package com.bni.bni.service;
+
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.service.FileStorageService.FileInfo;
+import com.bni.bni.util.DiskLruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service untuk membuat turunan gambar (resize/konversi format) sesuai permintaan, misal thumbnail avatar.
+ * Render dijalankan di worker pool berukuran tetap dengan antrian terbatas (penuh = 429), request bersamaan
+ * untuk varian yang sama digabung menjadi satu render, dan hasilnya disimpan di cache disk LRU lokal pod.
+ * Key cache memakai hash isi file asli, jadi turunan tidak pernah basi walaupun nama file ditimpa.
+ */
+@Service
+public class ImageDerivativeService {
+
+    /**
+     * Format output turunan yang bisa ditulis ImageIO bawaan JDK
+     */
+    public enum Format {
+        JPEG("jpg", "jpeg", MediaType.IMAGE_JPEG),
+        PNG("png", "png", MediaType.IMAGE_PNG);
+
+        private final String extension;
+        private final String writerName;
+        private final MediaType mediaType;
+
+        Format(String extension, String writerName, MediaType mediaType) {
+            this.extension = extension;
+            this.writerName = writerName;
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * @param value nilai parameter fmt (jpg, jpeg, png)
+         * @return format output
+         * @throws IllegalArgumentException jika format tidak didukung
+         */
+        public static Format parse(String value) {
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "jpg", "jpeg" -> JPEG;
+                case "png" -> PNG;
+                default -> throw new IllegalArgumentException("Format gambar tidak didukung (pilih jpg atau png)");
+            };
+        }
+    }
+
+    // Format sumber yang bisa dibaca ImageIO bawaan JDK
+    private static final Set<MediaType> SOURCE_TYPES = Set.of(
+            MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG, MediaType.IMAGE_GIF, MediaType.parseMediaType("image/bmp"));
+
+    // Tag EXIF orientasi (foto dari kamera HP sering disimpan miring dengan tag ini)
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final FileStorageService fileStorageService;
+    private final DiskLruCache cache;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<DiskLruCache.Entry>> inFlight = new ConcurrentHashMap<>();
+    private final int maxWidth;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final Duration timeout;
+    private final Duration retryAfter;
+
+    private final Timer renderTimer;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter collapsed;
+    private final Counter rejected;
+
+    /**
+     * Constructor untuk menyiapkan cache disk dan worker pool render
+     * @param fileStorageService service penyimpanan file (mengambil isi file asli dari blob store)
+     * @param meterRegistry registry metrics
+     * @param cacheDir direktori cache turunan (sebaiknya disk lokal pod, bukan volume bersama)
+     * @param cacheMaxSize batas total ukuran cache
+     * @param maxWidth lebar maksimum yang boleh diminta
+     * @param maxPixels jumlah piksel maksimum gambar sumber (perlindungan dari decompression bomb)
+     * @param jpegQuality kualitas kompresi JPEG (0-1)
+     * @param threads jumlah worker, default sejumlah core CPU
+     * @param queueCapacity kapasitas antrian sebelum request ditolak
+     * @param timeout batas waktu menunggu hasil render
+     * @param retryAfter nilai header Retry-After saat antrian penuh
+     */
+    public ImageDerivativeService(FileStorageService fileStorageService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${image.derivative.cache-dir:${java.io.tmpdir}/bni-derivatives}") Path cacheDir,
+                                  @Value("${image.derivative.cache-max-size:1GB}") DataSize cacheMaxSize,
+                                  @Value("${image.derivative.max-width:2048}") int maxWidth,
+                                  @Value("${image.derivative.max-pixels:50000000}") long maxPixels,
+                                  @Value("${image.derivative.jpeg-quality:0.85}") float jpegQuality,
+                                  @Value("${image.derivative.threads:0}") int threads,
+                                  @Value("${image.derivative.queue-capacity:32}") int queueCapacity,
+                                  @Value("${image.derivative.timeout:10s}") Duration timeout,
+                                  @Value("${image.derivative.retry-after:1s}") Duration retryAfter) throws IOException {
+        this.fileStorageService = fileStorageService;
+        this.cache = new DiskLruCache(cacheDir, cacheMaxSize.toBytes());
+        this.maxWidth = maxWidth;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        this.timeout = timeout;
+        this.retryAfter = retryAfter;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new RenderThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("image.derivative.queue.depth", executor, e -> e.getQueue().size())
+                .description("Jumlah render yang menunggu di antrian")
+                .register(meterRegistry);
+        Gauge.builder("image.derivative.cache.size", cache, DiskLruCache::totalBytes)
+                .description("Total ukuran cache turunan gambar di disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("image.derivative.render.duration")
+                .register(meterRegistry);
+        this.cacheHits = Counter.builder("image.derivative.cache").tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("image.derivative.cache").tag("result", "miss")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder("image.derivative.collapsed")
+                .description("Jumlah request yang menunggu render varian sama yang sedang berjalan")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("image.derivative.rejected")
+                .description("Jumlah render yang ditolak karena antrian penuh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Mengambil (atau membuat) turunan gambar
+     * @param original metadata file asli
+     * @param width lebar yang diminta, null untuk lebar maksimum (gambar tidak pernah diperbesar)
+     * @param format format output (jpg/png), null untuk format yang sama dengan sumber (GIF/BMP menjadi PNG)
+     * @return metadata file turunan, siap dikirim seperti file biasa
+     * @throws IllegalArgumentException jika file bukan gambar yang didukung atau parameter tidak valid
+     * @throws TooManyRequestsException jika antrian render penuh atau render terlalu lama
+     */
+    public FileInfo derivative(FileInfo original, Integer width, String format) throws IOException {
+        if (SOURCE_TYPES.stream().noneMatch(type -> type.equalsTypeAndSubtype(original.mediaType()))) {
+            throw new IllegalArgumentException("File bukan gambar yang bisa diubah ukurannya");
+        }
+        if (width != null && (width < 1 || width > maxWidth)) {
+            throw new IllegalArgumentException("Lebar gambar harus antara 1 dan " + maxWidth);
+        }
+        Format output = format != null ? Format.parse(format)
+                : MediaType.IMAGE_JPEG.equalsTypeAndSubtype(original.mediaType()) ? Format.JPEG : Format.PNG;
+
+        // Tanpa w (misal hanya konversi format) hasilnya tetap dibatasi max-width, bukan resolusi asli
+        int targetWidth = width == null ? maxWidth : width;
+        String key = original.version() + "-w" + targetWidth + "." + output.extension;
+        DiskLruCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+            // File asli hanya diambil dari blob store jika turunannya belum ada di cache
+            entry = render(key, fileStorageService.fetch(original).path(), targetWidth, output);
+        }
+
+        return new FileInfo(entry.path(), derivedName(original.fileName(), output), entry.size(),
+                original.lastModified(), "\"" + key + "\"", output.mediaType, original.uploadedBy());
+    }
+
+    /**
+     * Render di worker pool. Request kedua untuk key yang sama menunggu future render pertama.
+     */
+    private DiskLruCache.Entry render(String key, Path source, int width, Format output) throws IOException {
+        CompletableFuture<DiskLruCache.Entry> created = new CompletableFuture<>();
+        CompletableFuture<DiskLruCache.Entry> future = inFlight.putIfAbsent(key, created);
+        if (future == null) {
+            future = created;
+            try {
+                executor.execute(() -> {
+                    try {
+                        // Render lain untuk key ini bisa saja selesai tepat sebelum future ini didaftarkan
+                        DiskLruCache.Entry cached = cache.get(key);
+                        created.complete(cached != null ? cached : renderTimer.recordCallable(
+                                () -> cache.put(key, target -> resize(source, target, width, output))));
+                    } catch (Throwable e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(key, created);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, created);
+                rejected.increment();
+                TooManyRequestsException busy = new TooManyRequestsException("Server sedang sibuk, silakan coba lagi", retryAfter);
+                created.completeExceptionally(busy);
+                throw busy;
+            }
+        } else {
+            collapsed.increment();
+        }
+
+        try {
+            // Render tidak dibatalkan saat timeout: request lain mungkin sedang menunggu hasil yang sama
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TooManyRequestsException("Server sedang sibuk, silakan coba lagi", retryAfter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Render gambar terinterupsi", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Render gambar gagal", e.getCause());
+        }
+    }
+
+    /**
+     * Decode, resize dan encode satu gambar. Gambar selalu di-decode dengan subsampling (hanya sebagian piksel
+     * dibaca) sehingga raster hasil decode paling besar 2x ukuran output per sisi, dan output sendiri dibatasi
+     * max-width x max-width piksel (gambar yang sangat tinggi ikut diperkecil). Memory dan CPU per render
+     * bergantung pada ukuran output, bukan pada resolusi gambar sumber.
+     */
+    private void resize(Path source, Path target, int width, Format output) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Isi file bukan gambar yang dikenali");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxPixels) {
+                    throw new IllegalArgumentException("Gambar terlalu besar untuk diubah ukurannya");
+                }
+
+                int orientation = exifOrientation(reader);
+                boolean swapped = orientation >= 5; // Orientasi 5-8: lebar dan tinggi tertukar saat ditampilkan
+                int displayWidth = swapped ? sourceHeight : sourceWidth;
+                int displayHeight = swapped ? sourceWidth : sourceHeight;
+                int outWidth = Math.min(width, displayWidth);
+                long maxOutputPixels = (long) maxWidth * maxWidth;
+                if ((long) outWidth * displayHeight / displayWidth > maxOutputPixels / outWidth) {
+                    outWidth = Math.max(1, (int) Math.sqrt((double) maxOutputPixels * displayWidth / displayHeight));
+                }
+                int outHeight = Math.max(1, (int) Math.round((double) displayHeight * outWidth / displayWidth));
+
+                // Langkah subsampling dibulatkan ke atas: lebar hasil decode antara 1x dan 2x lebar output
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = (int) Math.ceil(displayWidth / (outWidth * 2.0));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+
+                // Skala dulu (ukuran sebelum diputar), baru orientasi diterapkan pada gambar yang sudah kecil
+                BufferedImage scaled = draw(decoded, swapped ? outHeight : outWidth, swapped ? outWidth : outHeight,
+                        output, null);
+                BufferedImage oriented = orientation > 1
+                        ? draw(scaled, outWidth, outHeight, output, orientationTransform(orientation, scaled))
+                        : scaled;
+                write(oriented, target, output);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Menggambar ulang image ke kanvas baru: diskalakan ke ukuran kanvas (transform null),
+     * atau dengan transform orientasi tanpa skala
+     */
+    private static BufferedImage draw(BufferedImage image, int width, int height,
+                                      Format output, AffineTransform transform) {
+        // JPEG tidak punya alpha: latar transparan diisi putih
+        boolean alpha = output == Format.PNG && image.getColorModel().hasAlpha();
+        BufferedImage canvas = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            if (!alpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform == null) {
+                g.drawImage(image, 0, 0, width, height, null);
+            } else {
+                g.drawImage(image, transform, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return canvas;
+    }
+
+    private void write(BufferedImage image, Path target, Format output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(output.writerName).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (output == Format.JPEG) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Transform yang memutar/membalik gambar sesuai tag orientasi EXIF (1-8)
+     */
+    private static AffineTransform orientationTransform(int orientation, BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        // Parameter: m00, m10, m01, m11, m02, m12 (x' = m00*x + m01*y + m02, y' = m10*x + m11*y + m12)
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // cermin horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // putar 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // cermin vertikal
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // putar 90 searah jarum jam
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // transverse
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);   // putar 90 berlawanan jarum jam
+            default -> new AffineTransform();
+        };
+    }
+
+    /**
+     * Membaca tag orientasi dari segmen APP1 (Exif) JPEG, 1 jika tidak ada atau bukan JPEG
+     */
+    private static int exifOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            String format = "javax_imageio_jpeg_image_1.0";
+            if (metadata == null || !format.equals(metadata.getNativeMetadataFormatName())) {
+                return 1;
+            }
+            Node markers = ((IIOMetadataNode) metadata.getAsTree(format)).getElementsByTagName("markerSequence").item(0);
+            for (Node node = markers == null ? null : markers.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (node instanceof IIOMetadataNode marker && "unknown".equals(marker.getNodeName())
+                        && "225".equals(marker.getAttribute("MarkerTag"))
+                        && marker.getUserObject() instanceof byte[] app1) {
+                    int orientation = parseExifOrientation(app1);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Metadata rusak tidak menggagalkan resize, gambar diproses apa adanya
+        }
+        return 1;
+    }
+
+    private static int parseExifOrientation(byte[] app1) {
+        // "Exif\0\0" lalu header TIFF: byte order (II/MM), 42, offset IFD0
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+        int count = Short.toUnsignedInt(tiff.getShort(ifd));
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                return 0;
+            }
+            if (Short.toUnsignedInt(tiff.getShort(entry)) == EXIF_ORIENTATION_TAG) {
+                int value = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static String derivedName(String fileName, Format output) {
+        int dot = fileName.lastIndexOf('.');
+        return (dot > 0 ? fileName.substring(0, dot) : fileName) + "." + output.extension;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thread factory agar worker render mudah dikenali di thread dump
+     */
+    private static final class RenderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-derivative-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
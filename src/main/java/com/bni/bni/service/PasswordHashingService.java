@@ -0,0 +1,157 @@
+package com.bni.bni.service;
+
+import com.bni.bni.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service untuk hashing dan verifikasi password di worker pool khusus.
+ * Hashing BCrypt sengaja mahal secara CPU, sehingga dijalankan di pool berukuran sejumlah core
+ * dengan antrian terbatas. Jika antrian penuh, request langsung ditolak (429) agar lonjakan login
+ * tidak menghabiskan CPU dan thread Tomcat yang melayani traffic profil dan file.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Duration retryAfter;
+
+    // Metrics untuk sizing pod: durasi hashing dan jumlah request yang ditolak
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    /**
+     * Constructor untuk menyiapkan worker pool hashing
+     * @param encoder password encoder (BCrypt/Argon2 terkalibrasi)
+     * @param meterRegistry registry metrics
+     * @param threads jumlah worker, default sejumlah core CPU
+     * @param queueCapacity kapasitas antrian sebelum request ditolak
+     * @param timeout batas waktu menunggu hasil hashing
+     * @param retryAfter nilai header Retry-After saat antrian penuh
+     */
+    public PasswordHashingService(PasswordEncoder encoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.password.hashing.threads:0}") int threads,
+                                  @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${security.password.hashing.timeout:5s}") Duration timeout,
+                                  @Value("${security.password.hashing.retry-after:1s}") Duration retryAfter) {
+        this.encoder = encoder;
+        this.timeout = timeout;
+        this.retryAfter = retryAfter;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Jumlah request hashing yang menunggu di antrian")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Jumlah worker yang sedang hashing")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hashing.duration").tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.duration").tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Jumlah request hashing yang ditolak karena antrian penuh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Membuat hash dari password plaintext
+     * @param rawPassword password plaintext
+     * @return hash password
+     * @throws TooManyRequestsException jika antrian hashing penuh
+     */
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    /**
+     * Memverifikasi password plaintext terhadap hash yang tersimpan
+     * @param rawPassword password plaintext
+     * @param passwordHash hash yang tersimpan di database
+     * @return true jika password cocok
+     * @throws TooManyRequestsException jika antrian hashing penuh
+     */
+    public boolean matches(String rawPassword, String passwordHash) {
+        return submit(() -> matchesTimer.record(() -> encoder.matches(rawPassword, passwordHash)));
+    }
+
+    /**
+     * Memeriksa apakah hash tersimpan dibuat dengan algoritma/parameter yang berbeda dari saat ini.
+     * Hanya parsing string, tidak perlu dijalankan di worker pool.
+     * @param passwordHash hash yang tersimpan di database
+     * @return true jika hash sebaiknya dibuat ulang
+     */
+    public boolean needsRehash(String passwordHash) {
+        return encoder.upgradeEncoding(passwordHash);
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Server sedang sibuk, silakan coba lagi", retryAfter);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TooManyRequestsException("Server sedang sibuk, silakan coba lagi", retryAfter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hashing password terinterupsi", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Hashing password gagal", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thread factory agar worker hashing mudah dikenali di thread dump
+     */
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
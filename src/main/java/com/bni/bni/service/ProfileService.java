@@ -1,16 +1,38 @@
 package com.bni.bni.service;
 
+import com.bni.bni.config.ReplicaDataSource;
+import com.bni.bni.dto.ProfileView;
 import com.bni.bni.entity.Profile;
-import com.bni.bni.entity.User;
 import com.bni.bni.repository.ProfileRepository;
 import com.bni.bni.repository.UserRepository;
+import com.bni.bni.sharding.ShardContext;
+import com.bni.bni.sharding.ShardKey;
+import com.bni.bni.sharding.ShardMap;
+import com.bni.bni.sharding.ShardedIdGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.time.OffsetDateTime;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Service layer untuk operasi terkait profil pengguna
@@ -19,22 +41,89 @@ import java.util.Optional;
 @Service
 public class ProfileService {
 
+    /**
+     * Status hasil operasi PATCH profil
+     */
+    public enum PatchStatus { UPDATED, USER_NOT_FOUND, PRECONDITION_FAILED }
+
+    /**
+     * Hasil operasi PATCH profil
+     * @param status status hasil patch
+     * @param profile data profil terbaru (hanya jika status UPDATED)
+     */
+    public record PatchResult(PatchStatus status, ProfileView profile) {
+    }
+
+    /**
+     * Precondition If-Match untuk PATCH profil
+     * @param anyVersion true untuk "If-Match: *" (profil harus sudah ada, versi apa pun)
+     * @param versions versi yang diterima, dari daftar ETag di header If-Match
+     */
+    public record VersionPrecondition(boolean anyVersion, Set<Long> versions) {
+
+        boolean matches(Long version) {
+            return anyVersion || versions.contains(version);
+        }
+    }
+
     // Dependency repositories untuk akses data profile dan user
     private final ProfileRepository profileRepository;
     private final UserRepository userRepository;
 
+    // Sharding: profil selalu berada di shard yang sama dengan user-nya
+    private final ShardMap shardMap;
+    private final ShardedIdGenerator idGenerator;
+
+    // Cache read-through data profil per user_id (dibatasi ukuran dan TTL, di-invalidate saat update)
+    private final Cache<Long, Optional<ProfileView>> profileCache;
+
+    // user_id yang profilnya baru saja diupdate di node ini; pembacaan untuk user ini diarahkan ke primary
+    // selama replica mungkin belum menerima perubahan, agar cache tidak terisi ulang dengan data lama
+    private final Cache<Long, Boolean> recentWrites;
+
+    // Jumlah maksimum id per query IN pada lookup profil massal
+    private final int batchChunkSize;
+
     /**
      * Constructor untuk dependency injection
      * @param profileRepository repository untuk entitas Profile
      * @param userRepository repository untuk entitas User
+     * @param shardMap pemetaan bucket user ke shard
+     * @param idGenerator generator id profil
+     * @param meterRegistry registry metrics (hit ratio dan eviction cache profil)
+     * @param cacheMaxSize jumlah maksimum profil di cache
+     * @param cacheTtl umur maksimum entry cache
+     * @param batchChunkSize jumlah id per query pada lookup profil massal
+     * @param readYourWritesWindow lama pembacaan profil yang baru diupdate diarahkan ke primary
      */
-    public ProfileService(ProfileRepository profileRepository, UserRepository userRepository) {
+    public ProfileService(ProfileRepository profileRepository, UserRepository userRepository,
+                          ShardMap shardMap, ShardedIdGenerator idGenerator,
+                          MeterRegistry meterRegistry,
+                          @Value("${profile.cache.max-size:50000}") long cacheMaxSize,
+                          @Value("${profile.cache.ttl:10m}") Duration cacheTtl,
+                          @Value("${profile.batch.chunk-size:500}") int batchChunkSize,
+                          @Value("${profile.read-your-writes-window:10s}") Duration readYourWritesWindow) {
         this.profileRepository = profileRepository;
+        this.batchChunkSize = batchChunkSize;
         this.userRepository = userRepository;
+        this.shardMap = shardMap;
+        this.idGenerator = idGenerator;
+        this.profileCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profileCache, "profile");
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
     }
 
     /**
-     * Memperbarui data profil pengguna
+     * Memperbarui data profil pengguna.
+     * Entitas User tidak dimuat: profil dicari langsung lewat foreign key user_id,
+     * dan profil baru cukup memakai referensi (proxy) User.
      * @param userId ID pengguna yang akan diupdate profilnya
      * @param firstName Nama depan
      * @param lastName Nama belakang
@@ -42,25 +131,22 @@ public class ProfileService {
      * @param dateOfBirth Tanggal lahir
      * @return Pesan status hasil operasi update
      */
-    public String updateProfile(Long userId, String firstName, String lastName,
+    @Transactional
+    public String updateProfile(@ShardKey Long userId, String firstName, String lastName,
                               String placeOfBirth, LocalDate dateOfBirth) {
         
-        // Cari user berdasarkan ID
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
-            return "User not found";
-        }
+        // Cari profil yang sudah ada berdasarkan user_id
+        Profile profile = profileRepository.findByUserId(userId).orElse(null);
 
-        User user = userOptional.get();
-        // Cari profil yang sudah ada atau buat baru jika belum ada
-        Optional<Profile> profileOptional = profileRepository.findByUser(user);
-
-        // Gunakan profil yang ada atau buat baru
-        Profile profile = profileOptional.orElseGet(() -> {
-            Profile newProfile = new Profile();
-            newProfile.setUser(user);
-            return newProfile;
-        });
+        // Buat profil baru jika belum ada (cek keberadaan user hanya di kasus ini)
+        if (profile == null) {
+            if (!userRepository.existsById(userId)) {
+                return "User not found";
+            }
+            profile = new Profile();
+            profile.setId(idGenerator.nextProfileId(userId));
+            profile.setUser(userRepository.getReferenceById(userId));
+        }
 
         // Update data profil
         profile.setFirstName(firstName);
@@ -69,39 +155,164 @@ public class ProfileService {
         profile.setDateOfBirth(dateOfBirth);
         profile.setUpdatedAt(OffsetDateTime.now());
 
-        // Simpan perubahan ke database
+        // Simpan perubahan ke database, data lama di cache dibuang setelah commit
         profileRepository.save(profile);
+        invalidateAfterCommit(userId);
         return "Profile updated successfully";
     }
 
     /**
-     * Mengambil data profil pengguna
+     * Memperbarui sebagian field profil (semantik PATCH).
+     * Hanya field yang ada di {@code changes} yang diubah, dan karena Profile memakai @DynamicUpdate
+     * hanya kolom yang benar-benar berubah yang ditulis ke database.
+     * @param userId ID pengguna yang akan diupdate profilnya
+     * @param precondition precondition dari header If-Match, null jika tidak ada
+     * @param changes field yang diubah (first_name, last_name, place_of_birth, date_of_birth yyyy-MM-dd)
+     * @return hasil patch beserta data profil terbaru
+     */
+    @Transactional
+    public PatchResult patchProfile(@ShardKey Long userId, VersionPrecondition precondition,
+                                    Map<String, String> changes) {
+        Profile profile = profileRepository.findByUserId(userId).orElse(null);
+
+        if (profile == null) {
+            // If-Match (termasuk "*") terhadap profil yang belum ada tidak mungkin terpenuhi
+            if (precondition != null) {
+                return new PatchResult(PatchStatus.PRECONDITION_FAILED, null);
+            }
+            if (!userRepository.existsById(userId)) {
+                return new PatchResult(PatchStatus.USER_NOT_FOUND, null);
+            }
+            profile = new Profile();
+            profile.setId(idGenerator.nextProfileId(userId));
+            profile.setUser(userRepository.getReferenceById(userId));
+        } else if (precondition != null && !precondition.matches(profile.getVersion())) {
+            return new PatchResult(PatchStatus.PRECONDITION_FAILED, null);
+        }
+
+        if (changes.containsKey("first_name")) {
+            profile.setFirstName(changes.get("first_name"));
+        }
+        if (changes.containsKey("last_name")) {
+            profile.setLastName(changes.get("last_name"));
+        }
+        if (changes.containsKey("place_of_birth")) {
+            profile.setPlaceOfBirth(changes.get("place_of_birth"));
+        }
+        if (changes.containsKey("date_of_birth")) {
+            String dateOfBirth = changes.get("date_of_birth");
+            profile.setDateOfBirth(dateOfBirth == null ? null : LocalDate.parse(dateOfBirth));
+        }
+        profile.setUpdatedAt(OffsetDateTime.now());
+
+        // Flush agar versi baru (untuk ETag response) sudah tersedia; konflik versi
+        // dari update bersamaan menghasilkan ObjectOptimisticLockingFailureException
+        Profile saved = profileRepository.saveAndFlush(profile);
+        invalidateAfterCommit(userId);
+
+        ProfileView view = new ProfileView(userId, saved.getFirstName(), saved.getLastName(), saved.getPlaceOfBirth(),
+                saved.getDateOfBirth(), saved.getUpdatedAt(), saved.getVersion());
+        return new PatchResult(PatchStatus.UPDATED, view);
+    }
+
+    /**
+     * Mengambil data profil pengguna.
+     * Dibaca dari cache terlebih dahulu; saat cache miss cukup satu query projection berdasarkan user_id.
      * @param userId ID pengguna yang akan diambil datanya
-     * @return Map berisi data profil atau Map kosong jika tidak ditemukan
+     * @return Map (read-only) berisi data profil atau Map kosong jika tidak ditemukan
      */
-    public Map<String, Object> getProfileData(Long userId) {
-        Map<String, Object> response = new HashMap<>();
-        
-        // Cari user berdasarkan ID
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
-            return response; // Return map kosong jika user tidak ditemukan
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProfileData(@ShardKey Long userId) {
+        return getProfileView(userId)
+                .map(ProfileView::toResponse)
+                .orElse(Collections.emptyMap());
+    }
+
+    /**
+     * Mengambil projection profil (termasuk versi untuk ETag) dari cache / database.
+     * Cache miss dibaca dari replica, kecuali profil user ini baru saja diupdate.
+     * @param userId ID pengguna
+     * @return Optional berisi ProfileView, atau empty jika profil belum ada
+     */
+    @Transactional(readOnly = true)
+    public Optional<ProfileView> getProfileView(@ShardKey Long userId) {
+        return profileCache.get(userId, id -> recentWrites.getIfPresent(id) != null
+                ? ReplicaDataSource.usePrimary(() -> profileRepository.findViewByUserId(id))
+                : profileRepository.findViewByUserId(id));
+    }
+
+    /**
+     * Mengambil profil banyak user sekaligus. Profil yang ada di cache langsung dipakai,
+     * sisanya dikelompokkan per shard dan diambil dengan query IN per chunk agar jumlah parameter
+     * per query tetap terbatas. Setiap query berjalan di transaksi read-only-nya sendiri di shard tujuan.
+     * Hasil dikirim ke {@code sink} per chunk sehingga pemanggil bisa langsung men-stream-nya.
+     * @param userIds daftar ID pengguna (duplikat diabaikan)
+     * @param sink penerima setiap profil yang ditemukan
+     */
+    public void forEachProfile(Collection<Long> userIds, Consumer<ProfileView> sink) {
+        Map<Integer, List<Long>> missesByShard = new HashMap<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            Optional<ProfileView> cached = profileCache.getIfPresent(userId);
+            if (cached != null) {
+                cached.ifPresent(sink);
+            } else {
+                missesByShard.computeIfAbsent(shardMap.shardOfId(userId), shard -> new ArrayList<>()).add(userId);
+            }
         }
 
-        // Cari profil berdasarkan user
-        Optional<Profile> profileOptional = profileRepository.findByUser(userOptional.get());
-        if (profileOptional.isEmpty()) {
-            return response; // Return map kosong jika profil tidak ditemukan
+        missesByShard.forEach((shard, misses) -> ShardContext.call(shard, () -> {
+            loadChunks(misses, sink);
+            return null;
+        }));
+    }
+
+    private void loadChunks(List<Long> misses, Consumer<ProfileView> sink) {
+        for (int from = 0; from < misses.size(); from += batchChunkSize) {
+            List<Long> chunk = misses.subList(from, Math.min(from + batchChunkSize, misses.size()));
+            boolean recentlyWritten = chunk.stream().anyMatch(id -> recentWrites.getIfPresent(id) != null);
+            List<ProfileView> views = recentlyWritten
+                    ? ReplicaDataSource.usePrimary(() -> profileRepository.findViewsByUserIdIn(chunk))
+                    : profileRepository.findViewsByUserIdIn(chunk);
+
+            Set<Long> found = new HashSet<>();
+            for (ProfileView view : views) {
+                found.add(view.userId());
+                cacheLoaded(view.userId(), Optional.of(view));
+                sink.accept(view);
+            }
+            // User tanpa profil juga di-cache agar lookup berikutnya tidak ke database
+            for (Long userId : chunk) {
+                if (!found.contains(userId)) {
+                    cacheLoaded(userId, Optional.empty());
+                }
+            }
         }
+    }
 
-        // Masukkan data profil ke dalam response
-        Profile profile = profileOptional.get();
-        response.put("first_name", profile.getFirstName());
-        response.put("last_name", profile.getLastName());
-        response.put("place_of_birth", profile.getPlaceOfBirth());
-        response.put("date_of_birth", profile.getDateOfBirth().toString());
-        response.put("updated_at", profile.getUpdatedAt().toString());
+    /**
+     * Menyimpan hasil lookup massal ke cache, kecuali profil user ini diupdate di node ini selama window
+     * read-your-writes. Penanda diperiksa setelah put: update yang commit saat chunk sedang dibaca sudah
+     * menandai user sebelum invalidate, jadi entry lama dibuang di sini atau oleh invalidate-nya sendiri.
+     */
+    private void cacheLoaded(Long userId, Optional<ProfileView> view) {
+        profileCache.put(userId, view);
+        if (recentWrites.getIfPresent(userId) != null) {
+            profileCache.invalidate(userId);
+        }
+    }
 
-        return response;
+    /**
+     * Membuang entry cache setelah transaksi commit, agar pembaca lain tidak
+     * memasukkan kembali data lama yang belum ter-commit ke cache.
+     * User ditandai baru ditulis sebelum invalidate, sehingga pengisian ulang cache membaca dari primary.
+     */
+    private void invalidateAfterCommit(Long userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWrites.put(userId, Boolean.TRUE);
+                profileCache.invalidate(userId);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.bni.bni.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard tujuan untuk operasi database di thread saat ini.
+ * Dibaca oleh {@link ShardRoutingDataSource} saat koneksi diambil, sehingga harus diset
+ * sebelum transaksi dimulai (lihat {@link ShardKey} dan {@link ShardRoutingAspect}).
+ * Tanpa shard yang diset, koneksi diarahkan ke shard 0.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return shard aktif di thread ini, atau null jika belum diset
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Menjalankan aksi dengan shard tertentu, shard sebelumnya dipulihkan setelahnya
+     * @param shard nomor shard
+     * @param action aksi yang dijalankan
+     * @return hasil aksi
+     */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = enter(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bni.bni.sharding;
+
+import com.bni.bni.config.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Kumpulan DataSource per shard. Shard 0 adalah database dari spring.datasource.*,
+ * shard berikutnya dari sharding.shards.N.*. Masing-masing shard punya pool primary
+ * dan (opsional) replica untuk transaksi read-only.
+ */
+public class ShardDataSources implements AutoCloseable {
+
+    /**
+     * Satu shard fisik
+     * @param primary pool koneksi ke primary shard
+     * @param replica replica shard untuk transaksi read-only, null jika tidak dikonfigurasi
+     * @param dataSource DataSource shard dengan routing read-only ke replica
+     */
+    public record Shard(HikariDataSource primary, ReplicaDataSource replica, DataSource dataSource) {
+    }
+
+    private final List<Shard> shards;
+
+    public ShardDataSources(List<Shard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Minimal satu shard harus dikonfigurasi");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * @return jumlah shard
+     */
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @param shard nomor shard
+     * @return DataSource shard (transaksi read-only ke replica, sisanya ke primary)
+     */
+    public DataSource dataSource(int shard) {
+        return shards.get(shard).dataSource();
+    }
+
+    /**
+     * @param shard nomor shard
+     * @return pool primary shard, untuk operasi yang harus selalu ke primary (sequence, COPY, rebalance)
+     */
+    public DataSource primary(int shard) {
+        return shards.get(shard).primary();
+    }
+
+    /**
+     * Mengukur lag replica semua shard secara berkala
+     */
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.lag-check-interval:5s}")
+    public void checkReplicaLag() {
+        for (Shard shard : shards) {
+            if (shard.replica() != null) {
+                shard.replica().checkLag();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            if (shard.replica() != null) {
+                shard.replica().close();
+            }
+            shard.primary().close();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bni.bni.sharding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Menandai parameter yang menentukan shard untuk pemanggilan method service.
+ * Parameter bertipe {@code String} dianggap username, bertipe {@code Long} dianggap user_id.
+ * Shard diset sebelum {@code @Transactional} dimulai, sehingga seluruh transaksi berjalan di shard tersebut.
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
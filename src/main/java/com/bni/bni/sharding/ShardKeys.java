@@ -0,0 +1,58 @@
+package com.bni.bni.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Skema id dan bucket untuk sharding user.
+ * Setiap user masuk ke salah satu dari {@link #BUCKETS} bucket logis berdasarkan hash username,
+ * dan bucket tersebut disimpan di 10 bit terbawah id user (id = sequence << 10 | bucket).
+ * Dengan begitu shard bisa ditentukan baik dari username (login) maupun dari user_id (claim JWT)
+ * tanpa lookup tambahan. Profil memakai bucket milik user-nya.
+ */
+public final class ShardKeys {
+
+    public static final int BUCKET_BITS = 10;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final long BUCKET_MASK = BUCKETS - 1;
+
+    private ShardKeys() {
+    }
+
+    /**
+     * Bucket dari username: 32 bit pertama MD5(username) (big-endian), diambil 10 bit terbawahnya.
+     * Harus sama dengan ekspresi SQL di migrasi V3:
+     * {@code ('x' || substr(md5(username), 1, 8))::bit(32)::int & 1023}
+     * @param username username user
+     * @return nomor bucket 0..1023
+     */
+    public static int bucketOfUsername(String username) {
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(username.getBytes(StandardCharsets.UTF_8));
+            int prefix = ((md5[0] & 0xff) << 24) | ((md5[1] & 0xff) << 16) | ((md5[2] & 0xff) << 8) | (md5[3] & 0xff);
+            return (int) (prefix & BUCKET_MASK);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 tidak tersedia", e);
+        }
+    }
+
+    /**
+     * Bucket dari id user atau profil (10 bit terbawah)
+     * @param id id user / profil
+     * @return nomor bucket 0..1023
+     */
+    public static int bucketOfId(long id) {
+        return (int) (id & BUCKET_MASK);
+    }
+
+    /**
+     * Menyusun id dari nilai sequence dan bucket
+     * @param sequenceValue nilai dari users_seq / profiles_seq di shard
+     * @param bucket bucket pemilik baris
+     * @return id yang membawa bucket-nya sendiri
+     */
+    public static long compose(long sequenceValue, int bucket) {
+        return (sequenceValue << BUCKET_BITS) | bucket;
+    }
+}
@@ -0,0 +1,128 @@
+package com.bni.bni.sharding;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Pemetaan bucket logis ke shard fisik.
+ * Disimpan sebagai file properties ({@code bucket=shard}, 1024 baris) yang ditulis oleh {@link ShardRebalancer}.
+ * Tanpa file, semua bucket berada di shard 0, sehingga menambah shard di konfigurasi tidak memindahkan
+ * data apa pun sampai rebalancer dijalankan.
+ */
+public class ShardMap {
+
+    private final int[] shardOfBucket;
+    private final int shardCount;
+
+    private ShardMap(int[] shardOfBucket, int shardCount) {
+        this.shardOfBucket = shardOfBucket;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Membaca pemetaan dari file, atau semua bucket di shard 0 jika file tidak ada
+     * @param file lokasi file pemetaan (boleh null)
+     * @param shardCount jumlah shard yang dikonfigurasi
+     * @return pemetaan bucket ke shard
+     */
+    public static ShardMap load(Path file, int shardCount) throws IOException {
+        int[] shards = new int[ShardKeys.BUCKETS];
+        if (file == null || !Files.exists(file)) {
+            return new ShardMap(shards, shardCount);
+        }
+
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            String value = props.getProperty(Integer.toString(bucket));
+            if (value == null) {
+                throw new IllegalStateException("Bucket " + bucket + " tidak ada di " + file);
+            }
+            int shard = Integer.parseInt(value.trim());
+            if (shard < 0 || shard >= shardCount) {
+                throw new IllegalStateException("Bucket " + bucket + " dipetakan ke shard " + shard
+                        + " yang tidak dikonfigurasi (jumlah shard " + shardCount + ")");
+            }
+            shards[bucket] = shard;
+        }
+        return new ShardMap(shards, shardCount);
+    }
+
+    /**
+     * Menyimpan pemetaan ke file secara atomic (tulis file sementara lalu rename)
+     * @param file lokasi file pemetaan
+     */
+    public void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write("# bucket=shard, ditulis oleh ShardRebalancer\n");
+            for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+                writer.write(bucket + "=" + shardOfBucket[bucket] + "\n");
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Menghitung pemetaan seimbang untuk {@code targetShards} shard dengan perpindahan bucket seminimal mungkin:
+     * bucket tetap di shard-nya selama kuota shard tersebut belum penuh, sisanya dipindah ke shard yang masih kurang
+     * @param targetShards jumlah shard tujuan
+     * @return pemetaan baru
+     */
+    public ShardMap rebalance(int targetShards) {
+        int[] quota = new int[targetShards];
+        for (int shard = 0; shard < targetShards; shard++) {
+            quota[shard] = ShardKeys.BUCKETS / targetShards + (shard < ShardKeys.BUCKETS % targetShards ? 1 : 0);
+        }
+
+        int[] result = new int[ShardKeys.BUCKETS];
+        Arrays.fill(result, -1);
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            int current = shardOfBucket[bucket];
+            if (current < targetShards && quota[current] > 0) {
+                result[bucket] = current;
+                quota[current]--;
+            }
+        }
+        int shard = 0;
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            if (result[bucket] >= 0) {
+                continue;
+            }
+            while (quota[shard] == 0) {
+                shard++;
+            }
+            result[bucket] = shard;
+            quota[shard]--;
+        }
+        return new ShardMap(result, targetShards);
+    }
+
+    /**
+     * @return jumlah shard yang dikonfigurasi
+     */
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOfBucket(int bucket) {
+        return shardOfBucket[bucket];
+    }
+
+    public int shardOfUsername(String username) {
+        return shardOfBucket[ShardKeys.bucketOfUsername(username)];
+    }
+
+    public int shardOfId(long id) {
+        return shardOfBucket[ShardKeys.bucketOfId(id)];
+    }
+}
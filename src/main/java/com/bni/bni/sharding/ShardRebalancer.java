@@ -0,0 +1,200 @@
+package com.bni.bni.sharding;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tool offline untuk menyeimbangkan bucket ke semua shard yang dikonfigurasi.
+ * Dijalankan saat maintenance (tidak ada pod aplikasi yang menulis), misal setelah menambah shard:
+ * <pre>
+ * java -jar bni.jar --spring.profiles.active=rebalance --sharding.bucket-map=/etc/bni/bucket-map.properties
+ * </pre>
+ * Urutan langkah dibuat aman untuk diulang jika gagal di tengah jalan:
+ * <ol>
+ *   <li>salin baris bucket yang pindah ke shard tujuan (sisa salinan lama di tujuan dihapus dulu)</li>
+ *   <li>tulis file pemetaan baru</li>
+ *   <li>hapus baris yang sudah pindah dari shard asal</li>
+ *   <li>samakan users_seq / profiles_seq semua shard ke nilai tertinggi agar id tidak pernah bentrok</li>
+ * </ol>
+ * Setelah selesai, file pemetaan baru harus didistribusikan ke semua pod sebelum pod dijalankan kembali.
+ */
+@Component
+@Profile("rebalance")
+public class ShardRebalancer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String USER_COLUMNS =
+            "id, username, password_hash, role, created_at, email_address, updated_at, is_active";
+    private static final String PROFILE_COLUMNS =
+            "id, user_id, first_name, last_name, place_of_birth, date_of_birth, created_at, updated_at, version";
+    private static final int BUCKET_MASK = ShardKeys.BUCKETS - 1;
+
+    private record Move(int from, int to) {
+    }
+
+    private final ShardDataSources shards;
+    private final ShardMap current;
+    private final String bucketMap;
+    private final ConfigurableApplicationContext context;
+
+    public ShardRebalancer(ShardDataSources shards, ShardMap current,
+                           @Value("${sharding.bucket-map:}") String bucketMap,
+                           ConfigurableApplicationContext context) {
+        this.shards = shards;
+        this.current = current;
+        this.bucketMap = bucketMap;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (bucketMap.isBlank()) {
+            throw new IllegalStateException("sharding.bucket-map wajib diisi untuk menjalankan rebalance");
+        }
+
+        ShardMap target = current.rebalance(shards.size());
+
+        // Bucket yang pindah, dikelompokkan per pasangan shard (asal, tujuan)
+        Map<Move, List<Integer>> moves = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            int from = current.shardOfBucket(bucket);
+            int to = target.shardOfBucket(bucket);
+            if (from != to) {
+                moves.computeIfAbsent(new Move(from, to), key -> new ArrayList<>()).add(bucket);
+            }
+        }
+        log.info("Rebalance ke {} shard: {} bucket dipindah", shards.size(),
+                moves.values().stream().mapToInt(List::size).sum());
+
+        for (Map.Entry<Move, List<Integer>> move : moves.entrySet()) {
+            copyBuckets(move.getKey().from(), move.getKey().to(), move.getValue());
+        }
+
+        target.write(Path.of(bucketMap));
+        log.info("Pemetaan bucket baru ditulis ke {}", bucketMap);
+
+        for (Map.Entry<Move, List<Integer>> move : moves.entrySet()) {
+            deleteBuckets(move.getKey().from(), move.getValue());
+        }
+
+        syncSequence(ShardedIdGenerator.USERS_SEQ, "users");
+        syncSequence(ShardedIdGenerator.PROFILES_SEQ, "profiles");
+        log.info("Rebalance selesai");
+
+        System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Menyalin user dan profil beberapa bucket dari shard asal ke shard tujuan dalam satu transaksi di tujuan.
+     * Data di-stream dari COPY TO di asal langsung ke COPY FROM di tujuan (format binary), tanpa ditampung di heap.
+     */
+    private void copyBuckets(int from, int to, List<Integer> buckets) throws SQLException {
+        String inList = inList(buckets);
+        try (Connection source = shards.primary(from).getConnection();
+             Connection destination = shards.primary(to).getConnection()) {
+            destination.setAutoCommit(false);
+            try {
+                try (Statement st = destination.createStatement()) {
+                    // Sisa salinan dari percobaan sebelumnya yang gagal
+                    st.executeUpdate("DELETE FROM profiles WHERE (id & " + BUCKET_MASK + ") IN (" + inList + ")");
+                    st.executeUpdate("DELETE FROM users WHERE (id & " + BUCKET_MASK + ") IN (" + inList + ")");
+                }
+                long users = pipe(source, destination, "users", USER_COLUMNS, inList);
+                long profiles = pipe(source, destination, "profiles", PROFILE_COLUMNS, inList);
+                destination.commit();
+                log.info("Shard {} -> {}: {} bucket, {} user, {} profil disalin", from, to, buckets.size(), users, profiles);
+            } catch (SQLException | RuntimeException e) {
+                destination.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static long pipe(Connection source, Connection destination, String table, String columns, String inList)
+            throws SQLException {
+        CopyOut out = source.unwrap(PGConnection.class).getCopyAPI().copyOut("COPY (SELECT " + columns + " FROM " + table
+                + " WHERE (id & " + BUCKET_MASK + ") IN (" + inList + ")) TO STDOUT WITH (FORMAT binary)");
+        CopyIn in = destination.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT binary)");
+        try {
+            byte[] chunk;
+            while ((chunk = out.readFromCopy()) != null) {
+                in.writeToCopy(chunk, 0, chunk.length);
+            }
+            return in.endCopy();
+        } catch (SQLException e) {
+            if (out.isActive()) {
+                out.cancelCopy();
+            }
+            if (in.isActive()) {
+                in.cancelCopy();
+            }
+            throw e;
+        }
+    }
+
+    private void deleteBuckets(int shard, List<Integer> buckets) throws SQLException {
+        String inList = inList(buckets);
+        try (Connection conn = shards.primary(shard).getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                int profiles = st.executeUpdate("DELETE FROM profiles WHERE (id & " + BUCKET_MASK + ") IN (" + inList + ")");
+                int users = st.executeUpdate("DELETE FROM users WHERE (id & " + BUCKET_MASK + ") IN (" + inList + ")");
+                conn.commit();
+                log.info("Shard {}: {} user, {} profil yang sudah pindah dihapus", shard, users, profiles);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Menyamakan sequence semua shard ke nilai tertinggi, sehingga shard yang baru menerima bucket
+     * tidak pernah membuat id yang sudah dipakai bucket tersebut di shard lamanya
+     */
+    private void syncSequence(String sequence, String table) throws SQLException {
+        long highest = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try (Connection conn = shards.primary(shard).getConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT GREATEST((SELECT COALESCE(MAX(id >> " + ShardKeys.BUCKET_BITS
+                         + "), 0) FROM " + table + "), (SELECT last_value FROM " + sequence + "))")) {
+                rs.next();
+                highest = Math.max(highest, rs.getLong(1));
+            }
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try (Connection conn = shards.primary(shard).getConnection();
+                 Statement st = conn.createStatement()) {
+                st.execute("SELECT setval('" + sequence + "', " + (highest + ShardedIdGenerator.ALLOCATION_SIZE) + ", false)");
+            }
+        }
+    }
+
+    private static String inList(List<Integer> buckets) {
+        return buckets.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
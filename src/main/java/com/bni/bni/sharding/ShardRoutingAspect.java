@@ -0,0 +1,65 @@
+package com.bni.bni.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Mengeset {@link ShardContext} dari parameter {@link ShardKey} sebelum method dijalankan.
+ * Berjalan paling luar (sebelum interceptor transaksi), karena koneksi transaksi sudah
+ * terikat ke satu shard begitu transaksi dimulai.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardRoutingAspect {
+
+    private final ShardMap shardMap;
+
+    public ShardRoutingAspect(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    @Around("execution(* com.bni.bni..*(.., @com.bni.bni.sharding.ShardKey (*), ..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object key = shardKey(joinPoint);
+        if (key == null) {
+            return joinPoint.proceed();
+        }
+
+        int shard;
+        if (key instanceof String username) {
+            shard = shardMap.shardOfUsername(username);
+        } else if (key instanceof Long userId) {
+            shard = shardMap.shardOfId(userId);
+        } else {
+            throw new IllegalArgumentException("@ShardKey harus bertipe String (username) atau Long (user_id)");
+        }
+
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private static Object shardKey(ProceedingJoinPoint joinPoint) {
+        Annotation[][] annotations = ((MethodSignature) joinPoint.getSignature()).getMethod().getParameterAnnotations();
+        Object[] args = joinPoint.getArgs();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return args[i];
+                }
+            }
+        }
+        return null;
+    }
+}
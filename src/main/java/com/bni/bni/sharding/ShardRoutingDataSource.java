@@ -0,0 +1,28 @@
+package com.bni.bni.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DataSource utama aplikasi: meneruskan setiap pengambilan koneksi ke shard di {@link ShardContext}
+ * (default shard 0). Setiap shard sendiri sudah melakukan routing read-only ke replica-nya.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardDataSources shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.dataSource(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.dataSource(0));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
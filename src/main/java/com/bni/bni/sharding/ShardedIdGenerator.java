@@ -0,0 +1,114 @@
+package com.bni.bni.sharding;
+
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generator id user dan profil yang membawa bucket-nya sendiri (lihat {@link ShardKeys}).
+ * Nilai sequence diambil dari users_seq / profiles_seq di shard pemilik bucket dengan semantik
+ * pooled optimizer: setiap nextval v mewakili blok (v - 50, v], sehingga satu round trip ke sequence
+ * cukup untuk 50 id.
+ */
+@Component
+public class ShardedIdGenerator {
+
+    // Harus sama dengan INCREMENT BY users_seq / profiles_seq di migrasi
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String USERS_SEQ = "users_seq";
+    public static final String PROFILES_SEQ = "profiles_seq";
+
+    private final ShardDataSources shards;
+    private final ShardMap shardMap;
+
+    // Blok nilai sequence yang belum terpakai per shard dan sequence
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public ShardedIdGenerator(ShardDataSources shards, ShardMap shardMap) {
+        this.shards = shards;
+        this.shardMap = shardMap;
+    }
+
+    /**
+     * @param username username user baru
+     * @return id user baru di shard pemilik username
+     */
+    public long nextUserId(String username) {
+        int bucket = ShardKeys.bucketOfUsername(username);
+        return ShardKeys.compose(nextValue(shardMap.shardOfBucket(bucket), USERS_SEQ), bucket);
+    }
+
+    /**
+     * @param userId id user pemilik profil
+     * @return id profil baru di shard yang sama dengan user-nya
+     */
+    public long nextProfileId(long userId) {
+        int bucket = ShardKeys.bucketOfId(userId);
+        return ShardKeys.compose(nextValue(shardMap.shardOfBucket(bucket), PROFILES_SEQ), bucket);
+    }
+
+    /**
+     * Memesan banyak nilai sequence sekaligus (untuk import massal),
+     * dengan satu query generate_series per 50 nilai
+     * @param shard nomor shard
+     * @param sequence nama sequence
+     * @param count jumlah nilai yang dibutuhkan
+     * @return nilai sequence yang belum pernah dipakai (belum digabung dengan bucket)
+     */
+    public long[] reserveValues(int shard, String sequence, int count) {
+        long[] values = new long[count];
+        int filled = 0;
+        try (Connection conn = shards.primary(shard).getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)")) {
+            while (filled < count) {
+                ps.setInt(1, (count - filled + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long hi = rs.getLong(1);
+                        for (long v = Math.max(1, hi - ALLOCATION_SIZE + 1); v <= hi && filled < count; v++) {
+                            values[filled++] = v;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Gagal mengambil nilai " + sequence + " dari shard " + shard, e);
+        }
+        return values;
+    }
+
+    private long nextValue(int shard, String sequence) {
+        Block block = blocks.computeIfAbsent(shard + ":" + sequence, key -> new Block());
+        synchronized (block) {
+            if (block.next > block.hi) {
+                long hi = nextval(shard, sequence);
+                block.next = Math.max(1, hi - ALLOCATION_SIZE + 1);
+                block.hi = hi;
+            }
+            return block.next++;
+        }
+    }
+
+    private long nextval(int shard, String sequence) {
+        try (Connection conn = shards.primary(shard).getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT nextval('" + sequence + "')");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Gagal mengambil nilai " + sequence + " dari shard " + shard, e);
+        }
+    }
+
+    private static final class Block {
+        long next = 1;
+        long hi = 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.bni.bni.storage;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Tempat penyimpanan isi file (blob) yang dialamatkan dengan hash SHA-256 isinya.
+ * Index nama file dan jumlah referensi tetap di database (lihat FileStorageService), implementasi ini
+ * hanya menyimpan, membaca dan menghapus isi blob. Dipilih lewat property file.storage.type.
+ */
+public interface BlobStore {
+
+    /**
+     * @param hash hash SHA-256 blob (hex)
+     * @return true jika blob sudah tersimpan
+     */
+    boolean exists(String hash) throws IOException;
+
+    /**
+     * Menyimpan file lokal yang sudah lengkap sebagai blob. Setelah dipanggil, file sumber sudah
+     * dipindahkan atau dihapus dan tidak boleh dipakai lagi oleh pemanggil.
+     * @param hash hash SHA-256 isi file (hex)
+     * @param source file sumber di disk lokal
+     * @param size ukuran file dalam byte
+     */
+    void put(String hash, Path source, long size) throws IOException;
+
+    /**
+     * Lokasi blob di disk lokal jika bisa diketahui tanpa I/O (filesystem), atau null jika blob harus
+     * diambil dulu lewat {@link #fetch(String)}
+     * @param hash hash SHA-256 blob (hex)
+     */
+    Path localPath(String hash);
+
+    /**
+     * Memastikan isi blob tersedia di disk lokal (untuk sendfile, byte range, turunan gambar)
+     * @param hash hash SHA-256 blob (hex)
+     * @return lokasi isi blob di disk lokal
+     */
+    Path fetch(String hash) throws IOException;
+
+    /**
+     * URL download langsung dari storage (misal presigned URL), sehingga isi file tidak melewati aplikasi
+     * @param hash hash SHA-256 blob (hex)
+     * @param fileName nama file untuk header Content-Disposition
+     * @param mediaType content type file
+     * @return URL untuk redirect, atau empty jika file harus disajikan aplikasi
+     */
+    Optional<URI> downloadUrl(String hash, String fileName, MediaType mediaType);
+
+    /**
+     * Menghapus blob (tidak error jika blob sudah tidak ada)
+     * @param hash hash SHA-256 blob (hex)
+     */
+    void delete(String hash) throws IOException;
+}
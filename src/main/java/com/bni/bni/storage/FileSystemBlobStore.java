@@ -0,0 +1,65 @@
+package com.bni.bni.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Blob store di filesystem: {file.upload-dir}/blobs/ab/cd/&lt;sha256&gt;
+ * (dua level fan-out agar tidak ada direktori dengan ratusan ribu entry).
+ * Jika aplikasi berjalan di beberapa pod, direktori upload harus berupa volume bersama.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    private final Path blobDir;
+
+    public FileSystemBlobStore(@Value("${file.upload-dir}") String uploadDir) {
+        this.blobDir = Paths.get(uploadDir).resolve("blobs");
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(localPath(hash));
+    }
+
+    /**
+     * File sumber di-rename menjadi blob, jadi harus berada di filesystem yang sama (direktori upload)
+     */
+    @Override
+    public void put(String hash, Path source, long size) throws IOException {
+        Path blob = localPath(hash);
+        Files.createDirectories(blob.getParent());
+        Files.move(source, blob, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Path localPath(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    @Override
+    public Path fetch(String hash) {
+        return localPath(hash);
+    }
+
+    @Override
+    public Optional<URI> downloadUrl(String hash, String fileName, MediaType mediaType) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(localPath(hash));
+    }
+}
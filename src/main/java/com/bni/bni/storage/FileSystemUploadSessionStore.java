@@ -0,0 +1,208 @@
+package com.bni.bni.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Sesi upload bertahap di filesystem: {file.upload-dir}/.uploads/&lt;upload_id&gt;/ berisi session.properties,
+ * satu file data seukuran file akhir (sparse, setiap chunk disalin ke posisinya, tanpa file per chunk yang harus
+ * digabung) dan file penanda per chunk di chunks/. Seperti {@link FileSystemBlobStore}, direktori upload harus
+ * berupa volume bersama jika aplikasi berjalan di beberapa pod.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemUploadSessionStore implements UploadSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemUploadSessionStore.class);
+
+    private static final String SESSION_FILE = "session.properties";
+    private static final String DATA_FILE = "data.part";
+    private static final String ASSEMBLED_FILE = "data.assembled";
+    private static final String CHUNKS_DIR = "chunks";
+
+    private final Path sessionsDir;
+
+    public FileSystemUploadSessionStore(@Value("${file.upload-dir}") String uploadDir) {
+        // Di dalam direktori upload agar file data bisa di-rename menjadi blob (filesystem yang sama)
+        this.sessionsDir = Paths.get(uploadDir).resolve(".uploads");
+    }
+
+    /**
+     * File data langsung dibuat dengan ukuran akhirnya (sparse file, blok disk baru dipakai saat chunk ditulis)
+     */
+    @Override
+    public void create(String uploadId, Properties attributes, long size) throws IOException {
+        Path dir = sessionsDir.resolve(uploadId);
+        Files.createDirectories(dir.resolve(CHUNKS_DIR));
+        try (RandomAccessFile data = new RandomAccessFile(dir.resolve(DATA_FILE).toFile(), "rw")) {
+            data.setLength(size);
+        }
+        // Ditulis terakhir: sesi tanpa file ini dianggap belum ada (dan dibersihkan oleh job kadaluarsa)
+        Path tmp = dir.resolve(SESSION_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            attributes.store(out, null);
+        }
+        Files.move(tmp, dir.resolve(SESSION_FILE), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Properties attributes(String uploadId) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(sessionsDir.resolve(uploadId).resolve(SESSION_FILE))) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    @Override
+    public List<Integer> receivedChunks(String uploadId) throws IOException {
+        List<Integer> received = new ArrayList<>();
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(sessionsDir.resolve(uploadId).resolve(CHUNKS_DIR))) {
+            for (Path marker : markers) {
+                String name = marker.getFileName().toString();
+                if (!name.endsWith(".tmp")) {
+                    received.add(Integer.parseInt(name));
+                }
+            }
+        }
+        return received;
+    }
+
+    /**
+     * Penanda lama dihapus sebelum region chunk di file data ditimpa, lalu ditulis ulang setelah isinya di disk:
+     * jika penyalinan terputus (crash), chunk dianggap belum diterima dan client mengirimnya ulang.
+     * Aman dipanggil paralel untuk chunk berbeda (setiap pemanggil menulis region file yang berbeda).
+     */
+    @Override
+    public void putChunk(String uploadId, int index, long position, Path chunk, String sha256) throws IOException {
+        Path dir = sessionsDir.resolve(uploadId);
+        Path marker = dir.resolve(CHUNKS_DIR).resolve(Integer.toString(index));
+        Path tmp = dir.resolve(CHUNKS_DIR).resolve(index + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.deleteIfExists(marker);
+            try (FileChannel in = FileChannel.open(chunk, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(dir.resolve(DATA_FILE), StandardOpenOption.WRITE)) {
+                long length = in.size();
+                out.position(position);
+                long copied = 0;
+                while (copied < length) {
+                    copied += in.transferTo(copied, length - copied, out);
+                }
+                // Isi chunk harus sudah di disk sebelum ditandai selesai, agar resume setelah crash tidak melewatkannya
+                out.force(false);
+            }
+            Files.writeString(tmp, sha256, StandardCharsets.US_ASCII);
+            Files.move(tmp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * File data di-rename (bukan disalin) menjadi target. Rename juga mencegah complete yang dipanggil bersamaan
+     * (misal retry client) menyimpan file dua kali: pemanggil kedua mendapat NoSuchFileException.
+     * Hard link kedua ke isi yang sama disimpan di direktori sesi sampai sesi dihapus, karena target biasanya sudah
+     * di-rename menjadi blob saat transaksi index gagal (lihat {@link #restore(String, Path)}).
+     */
+    @Override
+    public void assemble(String uploadId, int chunkSize, Path target) throws IOException {
+        Path dir = sessionsDir.resolve(uploadId);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(dir.resolve(DATA_FILE), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            throw new NoSuchFileException(target.toString());
+        }
+        // Waktu modifikasi diperbarui agar GC file sementara tidak menghapus file data dari sesi yang lama menganggur
+        Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+
+        Path assembled = dir.resolve(ASSEMBLED_FILE);
+        Files.deleteIfExists(assembled);
+        try {
+            Files.createLink(assembled, target);
+        } catch (UnsupportedOperationException | IOException e) {
+            // Filesystem tanpa hard link (sebagian volume jaringan): salinan penuh
+            log.debug("Hard link {} tidak bisa dibuat, isi disalin: {}", assembled, e.getMessage());
+            Files.copy(target, assembled, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Jika target belum dipindah, target di-rename kembali menjadi file data. Jika sudah di-rename menjadi blob,
+     * file data dibuat ulang dengan menyalin hard link hasil assemble: salinan, bukan link, karena chunk yang dikirim
+     * ulang ke sesi ini tidak boleh ikut menimpa isi blob (inode yang sama).
+     */
+    @Override
+    public void restore(String uploadId, Path assembled) throws IOException {
+        Path dir = sessionsDir.resolve(uploadId);
+        Path data = dir.resolve(DATA_FILE);
+        Path backup = dir.resolve(ASSEMBLED_FILE);
+        if (Files.exists(assembled)) {
+            Files.move(assembled, data, StandardCopyOption.ATOMIC_MOVE);
+        } else if (Files.exists(backup)) {
+            Path tmp = dir.resolve(DATA_FILE + "." + UUID.randomUUID() + ".tmp");
+            try {
+                Files.copy(backup, tmp);
+                Files.move(tmp, data, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        Files.deleteIfExists(backup);
+    }
+
+    @Override
+    public boolean delete(String uploadId) throws IOException {
+        return FileSystemUtils.deleteRecursively(sessionsDir.resolve(uploadId));
+    }
+
+    @Override
+    public void expire(Duration ttl) {
+        if (!Files.isDirectory(sessionsDir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        try (DirectoryStream<Path> sessions = Files.newDirectoryStream(sessionsDir)) {
+            for (Path dir : sessions) {
+                try {
+                    // Setiap chunk yang selesai menambah file penanda, jadi waktu modifikasi direktori chunks
+                    // menunjukkan aktivitas terakhir sesi
+                    Path chunks = dir.resolve(CHUNKS_DIR);
+                    Path activity = Files.isDirectory(chunks) ? chunks : dir;
+                    if (Files.getLastModifiedTime(activity).toMillis() < cutoff) {
+                        FileSystemUtils.deleteRecursively(dir);
+                    }
+                } catch (IOException e) {
+                    log.warn("Sesi upload {} tidak bisa dibersihkan: {}", dir.getFileName(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Direktori sesi upload {} tidak bisa dibaca: {}", sessionsDir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.bni.bni.storage;
+
+import com.bni.bni.util.DiskLruCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blob store di object storage yang kompatibel S3 (AWS S3, MinIO, dsb.), sehingga pod tidak perlu
+ * berbagi volume RWX. File besar diunggah dengan multipart upload, bagian-bagiannya dikirim paralel langsung
+ * dari file lokal. Download diarahkan (302) ke presigned URL agar isi file tidak melewati aplikasi, kecuali
+ * objek yang sering diminta: objek ini diambil sekali ke cache disk LRU lokal pod (read-through) lalu disajikan
+ * dari disk seperti blob filesystem (sendfile, byte range). Karena blob dialamatkan dengan hash isinya,
+ * salinan di cache tidak pernah basi.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    // Batas multipart upload S3: ukuran bagian minimum (kecuali bagian terakhir) dan jumlah bagian maksimum
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String keyPrefix;
+    private final long partSize;
+    private final boolean presignedRedirect;
+    private final Duration presignTtl;
+    private final int hotThreshold;
+
+    private final ExecutorService uploadPool;
+    private final DiskLruCache cache;
+    private final ConcurrentMap<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+
+    // Jumlah request download per blob dalam jendela waktu, untuk menentukan objek yang "panas"
+    private final Cache<String, AtomicInteger> requestCounts;
+
+    private final Timer uploadTimer;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter redirects;
+
+    /**
+     * Constructor untuk menyiapkan client S3, presigner, worker pool upload dan cache lokal
+     * @param meterRegistry registry metrics
+     * @param bucket nama bucket
+     * @param region region bucket
+     * @param endpoint endpoint S3-compatible (misal MinIO), kosong untuk AWS S3
+     * @param pathStyleAccess true untuk URL http://endpoint/bucket/key (biasanya perlu untuk MinIO)
+     * @param accessKey access key, kosong untuk default credentials chain (env, profile, IAM role)
+     * @param secretKey secret key pasangan access key
+     * @param keyPrefix prefix key objek blob
+     * @param partSize ukuran bagian multipart upload (file lebih kecil diunggah dengan satu PutObject)
+     * @param uploadThreads jumlah bagian yang diunggah bersamaan (dibagi semua upload di pod ini)
+     * @param presignedRedirect true untuk mengarahkan download ke presigned URL
+     * @param presignTtl masa berlaku presigned URL
+     * @param cacheDir direktori cache read-through (sebaiknya disk lokal pod)
+     * @param cacheMaxSize batas total ukuran cache
+     * @param hotThreshold jumlah request dalam hotWindow sebelum objek disajikan dari cache lokal (0 = selalu redirect)
+     * @param hotWindow jendela waktu penghitungan request
+     */
+    public S3BlobStore(MeterRegistry meterRegistry,
+                       @Value("${file.storage.s3.bucket}") String bucket,
+                       @Value("${file.storage.s3.region:us-east-1}") String region,
+                       @Value("${file.storage.s3.endpoint:}") String endpoint,
+                       @Value("${file.storage.s3.path-style-access:false}") boolean pathStyleAccess,
+                       @Value("${file.storage.s3.access-key:}") String accessKey,
+                       @Value("${file.storage.s3.secret-key:}") String secretKey,
+                       @Value("${file.storage.s3.key-prefix:blobs/}") String keyPrefix,
+                       @Value("${file.storage.s3.part-size:16MB}") DataSize partSize,
+                       @Value("${file.storage.s3.upload-threads:8}") int uploadThreads,
+                       @Value("${file.storage.s3.presigned-redirect:true}") boolean presignedRedirect,
+                       @Value("${file.storage.s3.presign-ttl:10m}") Duration presignTtl,
+                       @Value("${file.storage.s3.cache-dir:${java.io.tmpdir}/bni-blob-cache}") Path cacheDir,
+                       @Value("${file.storage.s3.cache-max-size:10GB}") DataSize cacheMaxSize,
+                       @Value("${file.storage.s3.hot-threshold:3}") int hotThreshold,
+                       @Value("${file.storage.s3.hot-window:10m}") Duration hotWindow) throws IOException {
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize.toBytes());
+        this.presignedRedirect = presignedRedirect;
+        this.presignTtl = presignTtl;
+        this.hotThreshold = hotThreshold;
+
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3ClientBuilder client = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .forcePathStyle(pathStyleAccess);
+        S3Presigner.Builder presigner = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build());
+        if (!endpoint.isBlank()) {
+            client.endpointOverride(URI.create(endpoint))
+                    // Tidak semua storage S3-compatible mendukung checksum CRC default SDK;
+                    // integritas isi tetap dijaga hash SHA-256 yang menjadi key blob
+                    .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                    .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED);
+            presigner.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = client.build();
+        this.presigner = presigner.build();
+
+        this.uploadPool = Executors.newFixedThreadPool(uploadThreads, new UploadThreadFactory());
+        this.cache = new DiskLruCache(cacheDir, cacheMaxSize.toBytes());
+        this.requestCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(hotWindow)
+                .build();
+
+        Gauge.builder("file.storage.s3.cache.size", cache, DiskLruCache::totalBytes)
+                .description("Total ukuran cache read-through blob S3 di disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadTimer = Timer.builder("file.storage.s3.upload.duration")
+                .description("Durasi upload blob ke S3")
+                .register(meterRegistry);
+        this.cacheHits = Counter.builder("file.storage.s3.cache").tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("file.storage.s3.cache").tag("result", "miss")
+                .register(meterRegistry);
+        this.redirects = Counter.builder("file.storage.s3.redirects")
+                .description("Jumlah download yang diarahkan ke presigned URL")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean exists(String hash) throws IOException {
+        // Selalu ditanyakan ke S3: cache lokal bisa masih menyimpan blob yang sudah dihapus GC
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(key(hash)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Blob " + hash + " tidak bisa diperiksa di S3: " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Blob " + hash + " tidak bisa diperiksa di S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mengunggah file ke S3, lalu memindahkan file sumber ke cache lokal (pod yang menerima upload
+     * biasanya juga yang pertama menyajikannya)
+     */
+    @Override
+    public void put(String hash, Path source, long size) throws IOException {
+        String key = key(hash);
+        long start = System.nanoTime();
+        try {
+            if (size <= partSize) {
+                s3.putObject(b -> b.bucket(bucket).key(key).contentLength(size), RequestBody.fromFile(source));
+            } else {
+                multipartUpload(key, source, size);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Blob " + hash + " tidak bisa diunggah ke S3: " + e.getMessage(), e);
+        }
+        uploadTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+        try {
+            cache.put(hash, target -> Files.move(source, target));
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public Path localPath(String hash) {
+        return null;
+    }
+
+    /**
+     * Read-through: blob yang belum ada di cache diunduh sekali, request bersamaan untuk blob yang sama
+     * menunggu unduhan yang sedang berjalan
+     */
+    @Override
+    public Path fetch(String hash) throws IOException {
+        DiskLruCache.Entry cached = cache.get(hash);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached.path();
+        }
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> running = downloads.putIfAbsent(hash, download);
+        if (running != null) {
+            return await(running);
+        }
+        cacheMisses.increment();
+        try {
+            Path path = cache.put(hash, target -> download(hash, target)).path();
+            download.complete(path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloads.remove(hash, download);
+        }
+    }
+
+    /**
+     * Objek yang sudah ada di cache lokal, atau sudah diminta hotThreshold kali dalam jendela waktu,
+     * disajikan dari disk lokal. Sisanya diarahkan ke presigned URL.
+     */
+    @Override
+    public Optional<URI> downloadUrl(String hash, String fileName, MediaType mediaType) {
+        if (!presignedRedirect || cache.get(hash) != null) {
+            return Optional.empty();
+        }
+        if (hotThreshold > 0 && requestCounts.get(hash, key -> new AtomicInteger()).incrementAndGet() >= hotThreshold) {
+            return Optional.empty();
+        }
+
+        String disposition = ContentDisposition.inline().filename(fileName, StandardCharsets.UTF_8).build().toString();
+        URI url = URI.create(presigner.presignGetObject(p -> p
+                        .signatureDuration(presignTtl)
+                        .getObjectRequest(g -> g.bucket(bucket)
+                                .key(key(hash))
+                                .responseContentType(mediaType.toString())
+                                .responseContentDisposition(disposition)))
+                .url()
+                .toString());
+        redirects.increment();
+        return Optional.of(url);
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(key(hash)));
+        } catch (SdkException e) {
+            throw new IOException("Blob " + hash + " tidak bisa dihapus dari S3: " + e.getMessage(), e);
+        }
+        cache.remove(hash);
+    }
+
+    /**
+     * Client S3 dan bucket yang sama dipakai {@link S3UploadSessionStore} untuk sesi upload bertahap
+     */
+    S3Client client() {
+        return s3;
+    }
+
+    String bucket() {
+        return bucket;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadPool.shutdown();
+        presigner.close();
+        s3.close();
+    }
+
+    /**
+     * Multipart upload: setiap bagian dibaca langsung dari region file sumber (tanpa buffer seukuran bagian
+     * di heap) dan diunggah paralel. Upload yang gagal dibatalkan agar bagian yang sudah terkirim tidak
+     * tertinggal (dan ditagih) di bucket.
+     */
+    private void multipartUpload(String key, Path source, long size) throws IOException {
+        long effectivePartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        String uploadId = s3.createMultipartUpload(b -> b.bucket(bucket).key(key)).uploadId();
+
+        List<Future<CompletedPart>> pending = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += effectivePartSize, partNumber++) {
+                int number = partNumber;
+                long position = offset;
+                long length = Math.min(effectivePartSize, size - offset);
+                pending.add(uploadPool.submit(() -> {
+                    String eTag = s3.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                                    .partNumber(number).contentLength(length),
+                            RequestBody.fromContentProvider(() -> openRegion(source, position, length), length,
+                                    MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                            .eTag();
+                    return CompletedPart.builder().partNumber(number).eTag(eTag).build();
+                }));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(pending.size());
+            for (Future<CompletedPart> part : pending) {
+                parts.add(part.get());
+            }
+            s3.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(parts)));
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            pending.forEach(part -> part.cancel(true));
+            try {
+                s3.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (SdkException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (cause instanceof SdkException sdkException) {
+                throw sdkException;
+            }
+            throw new IOException("Multipart upload " + key + " gagal: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void download(String hash, Path target) throws IOException {
+        try {
+            s3.getObject(b -> b.bucket(bucket).key(key(hash)), ResponseTransformer.toFile(target));
+        } catch (SdkException e) {
+            throw new IOException("Blob " + hash + " tidak bisa diunduh dari S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Key objek: prefix + ab/cd/abcd... (fan-out yang sama dengan layout filesystem)
+     */
+    private String key(String hash) {
+        return keyPrefix + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    private static Path await(CompletableFuture<Path> download) throws IOException {
+        try {
+            return download.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static InputStream openRegion(Path source, long position, long length) {
+        try {
+            return new FileRegionInputStream(FileChannel.open(source, StandardOpenOption.READ), position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * InputStream untuk satu region file, dibaca dengan positional read (aman untuk bagian yang diunggah paralel)
+     */
+    private static final class FileRegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private FileRegionInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(length, end - position);
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, toRead), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Thread upload diberi nama agar mudah dikenali di thread dump, dan daemon agar tidak menahan shutdown JVM
+     */
+    private static final class UploadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "s3-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.bni.bni.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sesi upload bertahap di bucket S3 yang sama dengan blob, sehingga chunk satu sesi boleh dikirim ke pod mana pun
+ * tanpa volume bersama: {prefix}&lt;upload_id&gt;/session.properties untuk atribut sesi dan
+ * {prefix}&lt;upload_id&gt;/chunks/&lt;nomor&gt; untuk setiap chunk yang sudah terverifikasi. PutObject bersifat atomik,
+ * jadi objek chunk hanya terlihat jika isinya utuh dan tidak perlu file penanda.
+ *
+ * Saat complete, pod yang menerimanya mengunduh semua chunk berurutan ke satu file lokal, lalu file itu disimpan
+ * sebagai blob seperti upload biasa (di-hash, diunggah ulang ke S3). Multipart upload S3 tidak dipakai untuk
+ * menampung chunk: bagian multipart tidak bisa dibaca sebelum upload diselesaikan (sementara hash SHA-256 seluruh
+ * isi tetap harus dihitung), dan ukuran bagian minimum 5 MB tidak cocok dengan file.chunked.min-chunk-size.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+public class S3UploadSessionStore implements UploadSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(S3UploadSessionStore.class);
+
+    private static final String SESSION_OBJECT = "session.properties";
+    private static final String CHUNKS_PREFIX = "chunks/";
+    private static final String SHA256_METADATA = "sha256";
+
+    // Batas jumlah key per request DeleteObjects
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String keyPrefix;
+
+    /**
+     * @param blobStore blob store S3 (client dan bucket-nya dipakai bersama)
+     * @param keyPrefix prefix key objek sesi upload, di luar prefix blob
+     */
+    public S3UploadSessionStore(S3BlobStore blobStore,
+                                @Value("${file.storage.s3.upload-session-prefix:uploads/}") String keyPrefix) {
+        this.s3 = blobStore.client();
+        this.bucket = blobStore.bucket();
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public void create(String uploadId, Properties attributes, long size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        attributes.store(out, null);
+        try {
+            s3.putObject(b -> b.bucket(bucket).key(sessionKey(uploadId)), RequestBody.fromBytes(out.toByteArray()));
+        } catch (SdkException e) {
+            throw new IOException("Sesi upload " + uploadId + " tidak bisa dibuat di S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Properties attributes(String uploadId) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = s3.getObject(b -> b.bucket(bucket).key(sessionKey(uploadId)))) {
+            properties.load(in);
+        } catch (SdkException e) {
+            throw notFoundOr(uploadId, e);
+        }
+        return properties;
+    }
+
+    @Override
+    public List<Integer> receivedChunks(String uploadId) throws IOException {
+        String prefix = sessionPrefix(uploadId) + CHUNKS_PREFIX;
+        List<Integer> received = new ArrayList<>();
+        try {
+            for (S3Object object : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents()) {
+                received.add(Integer.parseInt(object.key().substring(prefix.length())));
+            }
+        } catch (SdkException e) {
+            throw new IOException("Chunk sesi upload " + uploadId + " tidak bisa dibaca dari S3: " + e.getMessage(), e);
+        }
+        return received;
+    }
+
+    /**
+     * Sesi diperiksa dulu agar chunk untuk sesi yang sudah dibatalkan ditolak. Objek chunk yang tetap tertinggal
+     * karena sesi dibatalkan bersamaan ikut dihapus job kadaluarsa.
+     */
+    @Override
+    public void putChunk(String uploadId, int index, long position, Path chunk, String sha256) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(sessionKey(uploadId)));
+            s3.putObject(b -> b.bucket(bucket).key(chunkKey(uploadId, index)).metadata(Map.of(SHA256_METADATA, sha256)),
+                    RequestBody.fromFile(chunk));
+        } catch (SdkException e) {
+            throw notFoundOr(uploadId, e);
+        }
+    }
+
+    /**
+     * Chunk diunduh berurutan langsung ke posisinya di file target. Sesi tetap ada sampai dihapus pemanggil,
+     * jadi complete yang dipanggil bersamaan di dua pod menyimpan isi yang sama dua kali (hasilnya tetap satu file).
+     */
+    @Override
+    public void assemble(String uploadId, int chunkSize, Path target) throws IOException {
+        List<Integer> chunks = receivedChunks(uploadId);
+        chunks.sort(null);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (int index : chunks) {
+                try (ResponseInputStream<GetObjectResponse> in =
+                             s3.getObject(b -> b.bucket(bucket).key(chunkKey(uploadId, index)))) {
+                    long length = in.response().contentLength();
+                    if (out.transferFrom(Channels.newChannel(in), (long) index * chunkSize, length) != length) {
+                        throw new IOException("Chunk " + index + " sesi upload " + uploadId + " tidak lengkap");
+                    }
+                }
+            }
+        } catch (SdkException e) {
+            throw notFoundOr(uploadId, e);
+        }
+    }
+
+    /**
+     * Chunk tetap ada di S3 sampai sesi dihapus, jadi tidak ada yang perlu dikembalikan
+     */
+    @Override
+    public void restore(String uploadId, Path assembled) {
+    }
+
+    @Override
+    public boolean delete(String uploadId) throws IOException {
+        try {
+            List<ObjectIdentifier> objects = new ArrayList<>();
+            for (S3Object object : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(sessionPrefix(uploadId)))
+                    .contents()) {
+                objects.add(ObjectIdentifier.builder().key(object.key()).build());
+            }
+            for (int from = 0; from < objects.size(); from += DELETE_BATCH_SIZE) {
+                List<ObjectIdentifier> batch = objects.subList(from, Math.min(objects.size(), from + DELETE_BATCH_SIZE));
+                s3.deleteObjects(b -> b.bucket(bucket).delete(d -> d.objects(batch).quiet(true)));
+            }
+            return !objects.isEmpty();
+        } catch (SdkException e) {
+            throw new IOException("Sesi upload " + uploadId + " tidak bisa dihapus dari S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Aktivitas terakhir sesi adalah waktu objek terbaru di bawah prefix-nya (atribut sesi atau chunk terakhir).
+     * Objek sesi yang tertinggal juga bisa dibersihkan lifecycle rule bucket untuk prefix ini.
+     */
+    @Override
+    public void expire(Duration ttl) {
+        Instant cutoff = Instant.now().minus(ttl);
+        Map<String, Instant> lastActivity = new HashMap<>();
+        try {
+            for (S3Object object : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(keyPrefix)).contents()) {
+                String rest = object.key().substring(keyPrefix.length());
+                int slash = rest.indexOf('/');
+                if (slash > 0) {
+                    lastActivity.merge(rest.substring(0, slash), object.lastModified(),
+                            (current, other) -> current.isAfter(other) ? current : other);
+                }
+            }
+        } catch (SdkException e) {
+            log.warn("Sesi upload di S3 tidak bisa dibaca: {}", e.getMessage());
+            return;
+        }
+        lastActivity.forEach((uploadId, modified) -> {
+            if (modified.isBefore(cutoff)) {
+                try {
+                    delete(uploadId);
+                } catch (IOException e) {
+                    log.warn("Sesi upload {} tidak bisa dibersihkan: {}", uploadId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private String sessionPrefix(String uploadId) {
+        return keyPrefix + uploadId + "/";
+    }
+
+    private String sessionKey(String uploadId) {
+        return sessionPrefix(uploadId) + SESSION_OBJECT;
+    }
+
+    private String chunkKey(String uploadId, int index) {
+        return sessionPrefix(uploadId) + CHUNKS_PREFIX + index;
+    }
+
+    private static IOException notFoundOr(String uploadId, SdkException e) {
+        if (e instanceof NoSuchKeyException || (e instanceof S3Exception s3Exception && s3Exception.statusCode() == 404)) {
+            return new NoSuchFileException(uploadId);
+        }
+        return new IOException("Sesi upload " + uploadId + " tidak bisa diakses di S3: " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bni.bni.storage;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tempat penyimpanan sesi upload bertahap: atribut sesi dan isi chunk yang sudah diterima (dan sudah lolos
+ * verifikasi checksum). Penyimpanan ini harus bisa dibaca semua pod, agar chunk satu sesi boleh dikirim ke pod
+ * mana pun. Dipilih lewat property file.storage.type, bersama {@link BlobStore}.
+ * Method yang menerima id sesi melempar {@link NoSuchFileException} jika sesi tidak ada (kecuali delete).
+ */
+public interface UploadSessionStore {
+
+    /**
+     * Membuat sesi baru
+     * @param uploadId id sesi (UUID)
+     * @param attributes atribut sesi (nama file, ukuran, ukuran chunk, dsb.)
+     * @param size ukuran total file dalam byte
+     */
+    void create(String uploadId, Properties attributes, long size) throws IOException;
+
+    /**
+     * @param uploadId id sesi
+     * @return atribut sesi yang disimpan saat {@link #create(String, Properties, long)}
+     */
+    Properties attributes(String uploadId) throws IOException;
+
+    /**
+     * @param uploadId id sesi
+     * @return nomor chunk yang sudah diterima, urutan bebas
+     */
+    List<Integer> receivedChunks(String uploadId) throws IOException;
+
+    /**
+     * Menyimpan satu chunk yang sudah lengkap dan terverifikasi. Chunk yang sama boleh disimpan ulang,
+     * isinya menggantikan kiriman sebelumnya. Chunk baru terhitung diterima setelah isinya tersimpan utuh.
+     * @param uploadId id sesi
+     * @param index nomor chunk
+     * @param position posisi byte awal chunk di file akhir
+     * @param chunk file lokal berisi isi chunk (tidak dipindahkan, pemanggil tetap menghapusnya)
+     * @param sha256 hash SHA-256 (hex) isi chunk
+     */
+    void putChunk(String uploadId, int index, long position, Path chunk, String sha256) throws IOException;
+
+    /**
+     * Menyusun semua chunk menjadi satu file lokal. Pemanggil harus sudah memastikan semua chunk diterima.
+     * Jika penyimpanan file gagal, pemanggil memanggil {@link #restore(String, Path)} agar sesi bisa diselesaikan ulang.
+     * @param uploadId id sesi
+     * @param chunkSize ukuran chunk sesi
+     * @param target file lokal tujuan (belum ada), di direktori upload
+     */
+    void assemble(String uploadId, int chunkSize, Path target) throws IOException;
+
+    /**
+     * Mengembalikan sesi ke keadaan sebelum {@link #assemble(String, int, Path)} setelah penyimpanan file gagal,
+     * termasuk jika file hasil assemble sudah dipindah ke blob store sebelum transaksi index gagal
+     * @param uploadId id sesi
+     * @param assembled file hasil assemble (boleh sudah tidak ada)
+     */
+    void restore(String uploadId, Path assembled) throws IOException;
+
+    /**
+     * Menghapus sesi beserta semua chunk-nya
+     * @param uploadId id sesi
+     * @return false jika sesi tidak ada
+     */
+    boolean delete(String uploadId) throws IOException;
+
+    /**
+     * Menghapus sesi yang tidak menerima chunk lagi selama ttl
+     * @param ttl batas waktu sejak aktivitas terakhir sesi
+     */
+    void expire(Duration ttl);
+}
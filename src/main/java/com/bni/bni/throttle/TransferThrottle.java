@@ -0,0 +1,259 @@
+package com.bni.bni.throttle;
+
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pembatas transfer file per pengguna dan global (per pod): jumlah transfer bersamaan (semaphore)
+ * dan laju byte upload/download (token bucket). Request yang tidak mendapat slot pengguna lalu slot global menunggu
+ * bersama-sama paling lama file.throttle.max-wait, baru setelah itu ditolak (429), sehingga burst singkat dari
+ * satu client diantrekan, bukan langsung gagal.
+ * Transfer yang sudah berjalan tidak ditolak tetapi diperlambat: stream-nya ditahan sampai token cukup.
+ * Laju 0 berarti tanpa batas.
+ */
+@Component
+public class TransferThrottle {
+
+    /**
+     * Arah transfer
+     */
+    public enum Direction {
+        UPLOAD("upload"),
+        DOWNLOAD("download");
+
+        private final String tag;
+
+        Direction(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Slot dan bucket milik satu pengguna
+     */
+    private final class UserQuota {
+        private final Semaphore slots = new Semaphore(userMaxConcurrent);
+        private final TokenBucket upload = bucket(userUploadRate);
+        private final TokenBucket download = bucket(userDownloadRate);
+        // Jumlah request yang sedang memakai quota ini (termasuk yang menunggu slot), 0 = boleh dibuang
+        private final AtomicInteger holders = new AtomicInteger();
+        private volatile long lastUsed = System.nanoTime();
+    }
+
+    /**
+     * Satu transfer yang sedang berjalan. Wajib ditutup agar slot-nya dilepas.
+     */
+    public final class Transfer implements AutoCloseable {
+
+        private final UserQuota quota;
+        private final long[] throttledNanos = new long[Direction.values().length];
+
+        private Transfer(UserQuota quota) {
+            this.quota = quota;
+        }
+
+        /**
+         * Membebankan byte ke bucket pengguna dan global, menunggu jika token belum cukup
+         * @param direction arah transfer
+         * @param bytes jumlah byte
+         */
+        public void consume(Direction direction, long bytes) throws InterruptedIOException {
+            TokenBucket user = direction == Direction.UPLOAD ? quota.upload : quota.download;
+            TokenBucket global = direction == Direction.UPLOAD ? globalUpload : globalDownload;
+            long wait = Math.max(user == null ? 0 : user.reserve(bytes), global == null ? 0 : global.reserve(bytes));
+            if (wait <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Transfer terinterupsi");
+            }
+            throttledNanos[direction.ordinal()] += wait;
+        }
+
+        /**
+         * @param direction arah transfer
+         * @return true jika laju transfer arah ini dibatasi (sendfile harus dimatikan untuk download)
+         */
+        public boolean isRateLimited(Direction direction) {
+            return direction == Direction.UPLOAD
+                    ? quota.upload != null || globalUpload != null
+                    : quota.download != null || globalDownload != null;
+        }
+
+        @Override
+        public void close() {
+            globalSlots.release();
+            quota.slots.release();
+            quota.lastUsed = System.nanoTime();
+            quota.holders.decrementAndGet();
+            for (Direction direction : Direction.values()) {
+                if (throttledNanos[direction.ordinal()] > 0) {
+                    throttledTimers[direction.ordinal()].record(throttledNanos[direction.ordinal()], TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private final int userMaxConcurrent;
+    private final long userUploadRate;
+    private final long userDownloadRate;
+    private final double burstSeconds;
+    private final Duration maxWait;
+    private final Duration retryAfter;
+    private final Duration idleTimeout;
+
+    private final Semaphore globalSlots;
+    private final TokenBucket globalUpload;
+    private final TokenBucket globalDownload;
+    private final ConcurrentMap<String, UserQuota> quotas = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Timer slotWait;
+    private final Timer[] throttledTimers = new Timer[Direction.values().length];
+    private final Counter rejectedUser;
+    private final Counter rejectedGlobal;
+
+    /**
+     * Constructor untuk menyiapkan batas global dan metrics
+     * @param meterRegistry registry metrics
+     * @param userMaxConcurrent jumlah transfer bersamaan maksimum per pengguna
+     * @param userUploadRate laju upload maksimum per pengguna (per detik)
+     * @param userDownloadRate laju download maksimum per pengguna (per detik), selain 0 mematikan sendfile
+     * @param globalMaxConcurrent jumlah transfer bersamaan maksimum per pod
+     * @param globalUploadRate laju upload maksimum per pod (per detik)
+     * @param globalDownloadRate laju download maksimum per pod (per detik), selain 0 mematikan sendfile
+     * @param burst lama transfer dengan laju penuh yang boleh dikirim sekaligus setelah bucket terisi
+     * @param maxWait batas waktu menunggu slot (pengguna dan global) sebelum ditolak
+     * @param retryAfter nilai header Retry-After saat transfer ditolak
+     * @param idleTimeout quota pengguna yang tidak dipakai selama ini dibuang dari memory
+     */
+    public TransferThrottle(MeterRegistry meterRegistry,
+                            @Value("${file.throttle.user.max-concurrent:4}") int userMaxConcurrent,
+                            @Value("${file.throttle.user.upload-rate:20MB}") DataSize userUploadRate,
+                            @Value("${file.throttle.user.download-rate:20MB}") DataSize userDownloadRate,
+                            @Value("${file.throttle.global.max-concurrent:64}") int globalMaxConcurrent,
+                            @Value("${file.throttle.global.upload-rate:100MB}") DataSize globalUploadRate,
+                            @Value("${file.throttle.global.download-rate:100MB}") DataSize globalDownloadRate,
+                            @Value("${file.throttle.burst:1s}") Duration burst,
+                            @Value("${file.throttle.max-wait:30s}") Duration maxWait,
+                            @Value("${file.throttle.retry-after:5s}") Duration retryAfter,
+                            @Value("${file.throttle.idle-timeout:10m}") Duration idleTimeout) {
+        this.userMaxConcurrent = userMaxConcurrent;
+        this.userUploadRate = userUploadRate.toBytes();
+        this.userDownloadRate = userDownloadRate.toBytes();
+        this.burstSeconds = burst.toMillis() / 1000d;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+        this.idleTimeout = idleTimeout;
+
+        this.globalSlots = new Semaphore(globalMaxConcurrent, true);
+        this.globalUpload = bucket(globalUploadRate.toBytes());
+        this.globalDownload = bucket(globalDownloadRate.toBytes());
+
+        Gauge.builder("file.throttle.active", globalSlots, slots -> globalMaxConcurrent - slots.availablePermits())
+                .description("Jumlah transfer file yang sedang berjalan")
+                .register(meterRegistry);
+        Gauge.builder("file.throttle.waiting", waiting, AtomicInteger::get)
+                .description("Jumlah transfer file yang menunggu slot")
+                .register(meterRegistry);
+        this.slotWait = Timer.builder("file.throttle.slot.wait")
+                .description("Lama menunggu slot transfer (batas transfer bersamaan)")
+                .register(meterRegistry);
+        for (Direction direction : Direction.values()) {
+            throttledTimers[direction.ordinal()] = Timer.builder("file.throttle.throttled")
+                    .description("Lama stream transfer ditahan karena batas laju byte, per transfer")
+                    .tag("direction", direction.tag)
+                    .register(meterRegistry);
+        }
+        this.rejectedUser = Counter.builder("file.throttle.rejected").tag("limit", "user")
+                .description("Jumlah transfer yang ditolak karena menunggu slot pengguna terlalu lama")
+                .register(meterRegistry);
+        this.rejectedGlobal = Counter.builder("file.throttle.rejected").tag("limit", "global")
+                .description("Jumlah transfer yang ditolak karena menunggu slot global terlalu lama")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Memulai transfer: menunggu slot pengguna lalu slot global, total paling lama file.throttle.max-wait
+     * @param user key pengguna (username, atau alamat IP untuk request tanpa token)
+     * @return transfer yang harus ditutup setelah selesai
+     * @throws TooManyRequestsException jika slot pengguna atau slot global tidak didapat dalam file.throttle.max-wait
+     */
+    public Transfer begin(String user) {
+        UserQuota quota = quotas.compute(user, (key, existing) -> {
+            UserQuota current = existing != null ? existing : new UserQuota();
+            current.holders.incrementAndGet();
+            return current;
+        });
+
+        long start = System.nanoTime();
+        long deadline = start + maxWait.toNanos();
+        if (!acquire(quota.slots, deadline)) {
+            quota.holders.decrementAndGet();
+            rejectedUser.increment();
+            throw new TooManyRequestsException("Terlalu banyak transfer file bersamaan, silakan coba lagi", retryAfter);
+        }
+
+        boolean globalSlot = acquire(globalSlots, deadline);
+
+        if (!globalSlot) {
+            quota.slots.release();
+            quota.holders.decrementAndGet();
+            rejectedGlobal.increment();
+            throw new TooManyRequestsException("Server sedang sibuk melayani transfer file, silakan coba lagi", retryAfter);
+        }
+        slotWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Transfer(quota);
+    }
+
+    /**
+     * Menunggu satu permit sampai deadline (System.nanoTime), dihitung di gauge file.throttle.waiting
+     */
+    private boolean acquire(Semaphore slots, long deadline) {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        waiting.incrementAndGet();
+        try {
+            return slots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Membuang quota pengguna yang tidak punya transfer aktif dan sudah lama tidak dipakai
+     */
+    @Scheduled(fixedDelayString = "${file.throttle.idle-timeout:10m}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        quotas.keySet().forEach(user -> quotas.computeIfPresent(user,
+                (key, quota) -> quota.holders.get() == 0 && quota.lastUsed - cutoff < 0 ? null : quota));
+    }
+
+    private TokenBucket bucket(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, (long) (bytesPerSecond * burstSeconds)) : null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.bni.bni.throttle;
+
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.security.AuthenticatedUser;
+import com.bni.bni.security.JwtAuthenticationFilter;
+import com.bni.bni.throttle.TransferThrottle.Direction;
+import com.bni.bni.throttle.TransferThrottle.Transfer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.Part;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Filter traffic shaping untuk /api/files/**. Setiap request mengambil slot transfer dari {@link TransferThrottle}
+ * (menunggu slot, ditolak 429 jika tidak didapat dalam batas waktu), lalu stream body request dan response
+ * dibungkus sehingga setiap byte dibebankan ke token bucket pengguna dan global. Body multipart dibaca Tomcat
+ * sendiri (getParts) tanpa lewat stream request, jadi ukurannya dibebankan sekaligus setelah part dibaca.
+ * Jika laju download dibatasi, sendfile Tomcat dimatikan untuk request ini karena sendfile mengirim file
+ * langsung ke socket tanpa melewati stream response.
+ * Dipasang di SecurityConfig setelah {@link JwtAuthenticationFilter}, agar pengguna dari token sudah diketahui.
+ */
+public class TransferThrottleFilter extends OncePerRequestFilter {
+
+    private static final String FILES_PATH = "/api/files/";
+
+    // Atribut request Tomcat untuk sendfile (lihat org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    // Potongan maksimum yang dibebankan sekaligus, agar write besar tetap dikirim merata
+    private static final int MAX_CHUNK = 64 * 1024;
+
+    private final TransferThrottle throttle;
+
+    public TransferThrottleFilter(TransferThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + FILES_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Transfer transfer;
+        try {
+            transfer = throttle.begin(userKey(request));
+        } catch (TooManyRequestsException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+            JwtAuthenticationFilter.writeError(response, 429, e.getMessage());
+            return;
+        }
+        try (transfer) {
+            chain.doFilter(new ThrottledRequest(request, transfer), new ThrottledResponse(response, transfer));
+        }
+    }
+
+    /**
+     * Username dari token, atau alamat IP untuk request tanpa token
+     * (di belakang reverse proxy, aktifkan server.forward-headers-strategy agar alamat IP client yang dipakai)
+     */
+    private static String userKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return "user:" + user.username();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static final class ThrottledRequest extends HttpServletRequestWrapper {
+
+        private final Transfer transfer;
+        private ServletInputStream inputStream;
+        private boolean partsCharged;
+
+        private ThrottledRequest(HttpServletRequest request, Transfer transfer) {
+            super(request);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public Collection<Part> getParts() throws IOException, ServletException {
+            Collection<Part> parts = super.getParts();
+            chargeParts(parts);
+            return parts;
+        }
+
+        @Override
+        public Part getPart(String name) throws IOException, ServletException {
+            Part part = super.getPart(name);
+            chargeParts(super.getParts());
+            return part;
+        }
+
+        /**
+         * Membebankan body multipart sekali per request (StandardServletMultipartResolver memanggil getParts)
+         */
+        private void chargeParts(Collection<Part> parts) throws IOException {
+            if (partsCharged || !transfer.isRateLimited(Direction.UPLOAD)) {
+                return;
+            }
+            partsCharged = true;
+            long bytes = getContentLengthLong();
+            if (bytes < 0) {
+                bytes = parts.stream().mapToLong(Part::getSize).sum();
+            }
+            transfer.consume(Direction.UPLOAD, bytes);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = transfer.isRateLimited(Direction.UPLOAD)
+                        ? new ThrottledInputStream(super.getInputStream(), transfer)
+                        : super.getInputStream();
+            }
+            return inputStream;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if (SENDFILE_SUPPORT_ATTR.equals(name) && transfer.isRateLimited(Direction.DOWNLOAD)) {
+                return Boolean.FALSE;
+            }
+            return super.getAttribute(name);
+        }
+    }
+
+    private static final class ThrottledResponse extends HttpServletResponseWrapper {
+
+        private final Transfer transfer;
+        private ServletOutputStream outputStream;
+
+        private ThrottledResponse(HttpServletResponse response, Transfer transfer) {
+            super(response);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = transfer.isRateLimited(Direction.DOWNLOAD)
+                        ? new ThrottledOutputStream(super.getOutputStream(), transfer)
+                        : super.getOutputStream();
+            }
+            return outputStream;
+        }
+    }
+
+    private static final class ThrottledInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+        private final Transfer transfer;
+
+        private ThrottledInputStream(ServletInputStream delegate, Transfer transfer) {
+            this.delegate = delegate;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = delegate.read();
+            if (value >= 0) {
+                transfer.consume(Direction.UPLOAD, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, Math.min(length, MAX_CHUNK));
+            if (read > 0) {
+                transfer.consume(Direction.UPLOAD, read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(listener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static final class ThrottledOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final Transfer transfer;
+
+        private ThrottledOutputStream(ServletOutputStream delegate, Transfer transfer) {
+            this.delegate = delegate;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            transfer.consume(Direction.DOWNLOAD, 1);
+            delegate.write(value);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                int chunk = Math.min(length, MAX_CHUNK);
+                transfer.consume(Direction.DOWNLOAD, chunk);
+                delegate.write(buffer, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
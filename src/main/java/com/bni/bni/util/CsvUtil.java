@@ -0,0 +1,59 @@
+package com.bni.bni.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility sederhana untuk membaca dan menulis baris CSV (RFC 4180, tanpa field multi-baris)
+ */
+public final class CsvUtil {
+
+    private CsvUtil() {
+    }
+
+    /**
+     * Memecah satu baris CSV menjadi daftar field, mendukung field dengan tanda kutip
+     * @param line baris CSV
+     * @return daftar field
+     */
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"'); // Tanda kutip ganda di dalam field
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Menulis satu field CSV, selalu diapit tanda kutip agar koma dan baris baru aman
+     * @param out buffer tujuan
+     * @param value nilai field, null ditulis sebagai field kosong tanpa kutip (NULL untuk COPY)
+     */
+    public static void appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,221 @@
+package com.bni.bni.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache file di disk dengan batas total ukuran dan eviction LRU.
+ * Urutan akses disimpan di memory; saat start, entry yang sudah ada di direktori dimuat dengan urutan
+ * waktu modifikasinya (perkiraan urutan akses sebelum restart).
+ * Key dipakai langsung sebagai nama file, jadi harus aman sebagai nama file.
+ *
+ * Path dari {@link #get(String)} dibuka pemanggil setelah method ini kembali (oleh FileChannel, atau oleh Tomcat
+ * untuk sendfile setelah controller selesai dan header sudah terkirim). Karena itu file entry yang di-evict
+ * atau dihapus tidak langsung di-unlink, tetapi baru setelah jeda {@code deleteDelay}: pembaca yang sudah
+ * mendapat path masih sempat membukanya, dan file yang sudah terbuka tetap bisa dibaca sampai selesai
+ * walaupun sudah di-unlink (semantik unlink POSIX).
+ */
+public class DiskLruCache {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // Jeda default sebelum file entry yang di-evict benar-benar dihapus
+    public static final Duration DEFAULT_DELETE_DELAY = Duration.ofMinutes(1);
+
+    /**
+     * Satu entry cache
+     * @param path lokasi file
+     * @param size ukuran file dalam byte
+     */
+    public record Entry(Path path, long size) {
+    }
+
+    /**
+     * Penulis isi entry baru ke file sementara
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(Path target) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long deleteDelayNanos;
+
+    // Access-order: entry paling lama tidak diakses berada di depan
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    // File entry yang sudah dikeluarkan dari cache dan menunggu dihapus: key -> batas waktu (System.nanoTime)
+    private final LinkedHashMap<String, Long> pendingDeletes = new LinkedHashMap<>();
+
+    /**
+     * @param directory direktori cache (dibuat jika belum ada)
+     * @param maxBytes batas total ukuran file di cache
+     */
+    public DiskLruCache(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, DEFAULT_DELETE_DELAY);
+    }
+
+    /**
+     * @param directory direktori cache (dibuat jika belum ada)
+     * @param maxBytes batas total ukuran file di cache
+     * @param deleteDelay jeda antara entry dikeluarkan dari cache dan file-nya dihapus
+     */
+    public DiskLruCache(Path directory, long maxBytes, Duration deleteDelay) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.deleteDelayNanos = deleteDelay.toNanos();
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * @param key key entry
+     * @return entry jika ada di cache (sekaligus menandainya sebagai baru diakses), atau null.
+     *         File-nya dijamin masih ada selama jeda delete setelah entry di-evict
+     */
+    public synchronized Entry get(String key) {
+        purgePendingDeletes();
+        Long size = entries.get(key);
+        return size == null ? null : new Entry(directory.resolve(key), size);
+    }
+
+    /**
+     * Menulis entry baru lewat file sementara lalu rename, sehingga pembaca tidak pernah melihat file setengah jadi.
+     * Entry lama dengan key yang sama diganti, lalu entry yang paling lama tidak diakses dihapus
+     * sampai total ukuran kembali di bawah batas.
+     * @param key key entry
+     * @param writer penulis isi entry
+     * @return entry yang baru ditulis
+     */
+    public Entry put(String key, Writer writer) throws IOException {
+        Path target = directory.resolve(key);
+        Path tmp = directory.resolve(key + "." + UUID.randomUUID() + TMP_SUFFIX);
+        try {
+            writer.write(tmp);
+            long size = Files.size(tmp);
+            synchronized (this) {
+                // Penghapusan tertunda untuk key ini dibatalkan sebelum rename, di bawah lock yang sama dengan
+                // purgePendingDeletes, sehingga file yang baru ditulis tidak ikut terhapus oleh eviction sebelumnya
+                pendingDeletes.remove(key);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous == null ? 0 : previous);
+                evict();
+                purgePendingDeletes();
+            }
+            return new Entry(target, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Menghapus entry dari cache (jika ada). File-nya dihapus setelah jeda delete.
+     * @param key key entry
+     */
+    public synchronized void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            scheduleDelete(key);
+        }
+        purgePendingDeletes();
+    }
+
+    /**
+     * @return total ukuran file di cache dalam byte
+     */
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return jumlah entry di cache
+     */
+    public synchronized int entryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Entry yang baru ditulis tidak pernah dihapus, walaupun ukurannya sendiri melebihi batas
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            scheduleDelete(entry.getKey());
+        }
+    }
+
+    private void scheduleDelete(String key) {
+        pendingDeletes.remove(key);
+        pendingDeletes.put(key, System.nanoTime() + deleteDelayNanos);
+    }
+
+    /**
+     * Menghapus file entry yang jeda delete-nya sudah lewat (urutan masuk = urutan batas waktu)
+     */
+    private void purgePendingDeletes() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Long>> pending = pendingDeletes.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<String, Long> entry = pending.next();
+            if (entry.getValue() - now > 0) {
+                break;
+            }
+            pending.remove();
+            if (entries.containsKey(entry.getKey())) {
+                continue; // Key sudah ditulis ulang, file-nya milik entry baru
+            }
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                // File yang gagal dihapus tidak lagi dihitung, akan terhapus saat key yang sama ditulis ulang
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        record Existing(String key, long size, long lastModified) {
+        }
+        List<Existing> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    // Sisa penulisan yang terputus sebelum restart
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    existing.add(new Existing(name, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        existing.sort(Comparator.comparingLong(Existing::lastModified));
+        synchronized (this) {
+            for (Existing entry : existing) {
+                entries.put(entry.key(), entry.size());
+                totalBytes += entry.size();
+            }
+            evict();
+        }
+    }
+}
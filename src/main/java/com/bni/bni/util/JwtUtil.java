@@ -1,12 +1,26 @@
 package com.bni.bni.util;
 
 import com.bni.bni.entity.User;  // Tambahkan ini
+import com.bni.bni.security.JwtKeyRing;
+import com.bni.bni.security.JwtKeysRotatedEvent;
+import com.bni.bni.sharding.ShardKeys;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * Utility class untuk operasi JWT (JSON Web Token)
@@ -14,12 +28,45 @@ import java.util.Date;
  */
 @Component // Menandai class ini sebagai Spring Component
 public class JwtUtil {
-    // Secret key untuk signing JWT (dibuat secara otomatis dengan algoritma HS256)
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-    
+    // Key ring bersama untuk signing (key aktif) dan verifikasi (key aktif + key sebelumnya)
+    private final JwtKeyRing keyRing;
+
     // Waktu kadaluarsa token (10 jam dalam miliseconds)
     private final long EXPIRATION_TIME = 1000 * 60 * 60 * 10;
 
+    // Skema user_id di token. Migrasi V3 me-rekey semua id user, sehingga user_id di token lama bisa sama dengan
+    // id baru milik user lain; token tanpa claim ini (diterbitkan sebelum skema sharded) ditolak
+    public static final String USER_ID_SCHEME_CLAIM = "uid_scheme";
+    public static final String USER_ID_SCHEME = "sharded";
+
+    // Parser dibangun sekali saja dan dipakai ulang (JwtParser bersifat immutable & thread-safe),
+    // key verifikasi dipilih dari key ring berdasarkan header kid
+    private final JwtParser parser;
+
+    // Cache claims yang sudah lolos verifikasi signature, key-nya digest SHA-256 dari token
+    private final Cache<String, Claims> verifiedClaims;
+
+    /**
+     * Constructor untuk menyiapkan parser dan cache claims terverifikasi
+     * @param keyRing key ring untuk signing dan verifikasi token
+     * @param meterRegistry registry metrics (hit/miss cache dipublikasikan sebagai cache.gets)
+     * @param maxSize jumlah maksimum token yang disimpan di cache
+     * @param maxTtl umur maksimum entry cache, walaupun token masih lama kadaluarsanya
+     */
+    public JwtUtil(JwtKeyRing keyRing,
+                   MeterRegistry meterRegistry,
+                   @Value("${jwt.claims-cache.max-size:10000}") long maxSize,
+                   @Value("${jwt.claims-cache.max-ttl:10m}") Duration maxTtl) {
+        this.keyRing = keyRing;
+        this.parser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ClaimsExpiry(maxTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, "jwt.verified-claims");
+    }
+
     /**
      * Membuat JWT token untuk user yang berhasil login
      * @param username username pengguna
@@ -39,15 +86,57 @@ public class JwtUtil {
     */
     public String generateToken(User user) {
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid()) // kid agar replica lain tahu key verifikasinya
                 .setSubject(user.getUsername())
                 .claim("user_id", user.getId()) // Menambahkan user_id ke token
+                .claim(USER_ID_SCHEME_CLAIM, USER_ID_SCHEME)
                 .claim("role", user.getRole())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(key)
+                .signWith(keyRing.getActiveKey())
                 .compact();
     }
-    
+
+    /**
+     * Mengosongkan cache claims saat key ring dirotasi,
+     * agar token yang di-sign dengan key yang sudah dicabut tidak lagi diterima dari cache
+     */
+    @EventListener
+    public void onKeysRotated(JwtKeysRotatedEvent event) {
+        verifiedClaims.invalidateAll();
+    }
+
+    /**
+     * Memverifikasi token sekaligus mengekstrak claims-nya (satu kali parse).
+     * Token yang sama dan masih berlaku diambil dari cache tanpa verifikasi HMAC ulang.
+     * Token dengan skema user_id lama, atau yang bucket user_id-nya tidak cocok dengan username, ditolak.
+     * @param token JWT token
+     * @return Optional berisi claims jika token valid, atau empty jika invalid/expired
+     */
+    public Optional<Claims> verifyToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+
+        String cacheKey = digest(token);
+        Claims cached = verifiedClaims.getIfPresent(cacheKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (!hasCurrentUserId(claims)) {
+                return Optional.empty();
+            }
+            verifiedClaims.put(cacheKey, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Catch exception jika token invalid/expired/salah format
+            return Optional.empty();
+        }
+    }
+
     public Long getUserIdFromToken(String token) {
         Claims claims = getAllClaimsFromToken(token);
         return claims.get("user_id", Long.class);
@@ -58,13 +147,7 @@ public class JwtUtil {
      * @return true jika token valid, false jika tidak valid/expired
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            // Catch exception jika token invalid/expired/salah format
-            return false;
-        }
+        return verifyToken(token).isPresent();
     }
 
     /**
@@ -73,24 +156,76 @@ public class JwtUtil {
      * @return username dari subject token
      */
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(key)
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody()
-                   .getSubject(); // Mendapatkan subject (username)
+        return getAllClaimsFromToken(token).getSubject(); // Mendapatkan subject (username)
     }
 
     /**
      * Mendapatkan semua claims dari JWT token
      * @param token JWT token
      * @return Semua claims dalam token
+     * @throws JwtException jika token tidak valid atau expired
      */
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(key)
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody();
+        return verifyToken(token)
+                .orElseThrow(() -> new JwtException("Token tidak valid atau expired"));
+    }
+
+    /**
+     * Memeriksa bahwa user_id di token memakai skema id sharded (sequence << 10 | bucket username).
+     * Claim skema wajib ada; bucket di user_id juga harus sama dengan bucket dari subject (username),
+     * sehingga user_id dari skema lama tidak pernah bisa dipakai sebagai id user lain.
+     */
+    private static boolean hasCurrentUserId(Claims claims) {
+        Long userId = claims.get("user_id", Long.class);
+        return USER_ID_SCHEME.equals(claims.get(USER_ID_SCHEME_CLAIM, String.class))
+                && userId != null
+                && claims.getSubject() != null
+                && ShardKeys.bucketOfId(userId) == ShardKeys.bucketOfUsername(claims.getSubject());
+    }
+
+    /**
+     * Menghitung digest SHA-256 dari token untuk dijadikan key cache,
+     * sehingga token mentah tidak disimpan di memory cache
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+
+    /**
+     * Entry cache kadaluarsa bersamaan dengan token-nya (dibatasi maxTtl),
+     * sehingga token yang sudah expired tidak pernah dilayani dari cache
+     */
+    private static final class ClaimsExpiry implements Expiry<String, Claims> {
+        private final long maxTtlNanos;
+
+        ClaimsExpiry(Duration maxTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return maxTtlNanos;
+            }
+            long remainingMillis = expiration.getTime() - System.currentTimeMillis();
+            return Math.max(0, Math.min(maxTtlNanos, Duration.ofMillis(remainingMillis).toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.bni.bni.util;
+
+/**
+ * Token bucket untuk membatasi laju byte per detik.
+ * Pemanggil "berutang" token: jumlah byte langsung dikurangi walaupun token belum cukup, lalu pemanggil
+ * menunggu sampai utangnya terbayar. Dengan begitu thread yang berbagi satu bucket dilayani bergiliran
+ * sesuai urutan datang, dan potongan data yang lebih besar dari kapasitas bucket tetap bisa lewat.
+ */
+public class TokenBucket {
+
+    private final double bytesPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param bytesPerSecond laju pengisian token
+     * @param capacity jumlah token maksimum (besar burst setelah bucket lama tidak dipakai)
+     */
+    public TokenBucket(long bytesPerSecond, long capacity) {
+        this.bytesPerNano = bytesPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Mengambil token untuk sejumlah byte
+     * @param bytes jumlah byte yang akan dikirim/dibaca
+     * @return lama menunggu (nanodetik) sebelum byte tersebut boleh dikirim, 0 jika token cukup
+     */
+    public synchronized long reserve(long bytes) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * bytesPerNano);
+        lastRefill = now;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerNano);
+    }
+}
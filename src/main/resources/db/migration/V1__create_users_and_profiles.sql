@@ -0,0 +1,48 @@
+-- Skema awal tabel users dan profiles.
+-- Ditulis idempotent (IF NOT EXISTS) agar juga aman dijalankan di database lama
+-- yang sebelumnya dibuat oleh spring.jpa.hibernate.ddl-auto=update.
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigint NOT NULL PRIMARY KEY,
+    username varchar(255) NOT NULL,
+    password_hash varchar(255) NOT NULL,
+    role varchar(255) NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    email_address varchar(255),
+    updated_at timestamp(6) with time zone NOT NULL,
+    is_active boolean NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS profiles (
+    id bigint NOT NULL PRIMARY KEY,
+    user_id bigint REFERENCES users (id),
+    first_name varchar(255),
+    last_name varchar(255),
+    place_of_birth varchar(255),
+    date_of_birth date,
+    created_at timestamp(6) with time zone NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    version bigint NOT NULL DEFAULT 0
+);
+
+-- Database lama mungkin belum punya kolom version (optimistic locking profil)
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- Sequence untuk pooled optimizer Hibernate: increment harus sama dengan allocationSize (50)
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS profiles_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE users_seq INCREMENT BY 50;
+ALTER SEQUENCE profiles_seq INCREMENT BY 50;
+
+-- Geser sequence melewati id yang sudah ada (misal id dari era IDENTITY),
+-- tanpa pernah memundurkan sequence yang sudah dipakai.
+-- nextval berikutnya = v, dan pooled optimizer memakai blok id (v - 50, v]
+SELECT setval('users_seq', GREATEST(
+        (SELECT COALESCE(MAX(id), 0) FROM users),
+        (SELECT COALESCE(last_value, 0) FROM pg_sequences
+          WHERE schemaname = current_schema() AND sequencename = 'users_seq')) + 50, false);
+SELECT setval('profiles_seq', GREATEST(
+        (SELECT COALESCE(MAX(id), 0) FROM profiles),
+        (SELECT COALESCE(last_value, 0) FROM pg_sequences
+          WHERE schemaname = current_schema() AND sequencename = 'profiles_seq')) + 50, false);
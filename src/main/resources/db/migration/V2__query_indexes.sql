@@ -0,0 +1,14 @@
+-- Index untuk query yang dipakai aplikasi.
+
+-- Lookup profil berdasarkan user (ProfileRepository.findByUserId, proyeksi profil, batch IN).
+-- Relasi User-Profile one-to-one, jadi index-nya sekaligus menjaga satu profil per user.
+CREATE UNIQUE INDEX IF NOT EXISTS idx_profiles_user_id ON profiles (user_id);
+
+-- Keyset pagination direktori user: ORDER BY created_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_users_created_at_id ON users (created_at, id);
+
+-- Pencarian prefix case-insensitive (lower(kolom) LIKE 'abc%') di direktori user
+CREATE INDEX IF NOT EXISTS idx_users_username_prefix ON users (lower(username) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_prefix ON users (lower(email_address) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_profiles_first_name_prefix ON profiles (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_profiles_last_name_prefix ON profiles (lower(last_name) text_pattern_ops);
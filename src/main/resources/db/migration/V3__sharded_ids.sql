@@ -0,0 +1,39 @@
+-- Skema id untuk sharding: id = nilai sequence << 10 | bucket, dengan bucket = 10 bit terbawah
+-- MD5(username) pemilik baris (lihat ShardKeys). Profil memakai bucket milik user-nya.
+-- Baris lama di-rekey ke skema ini agar bisa dipindah per bucket oleh ShardRebalancer.
+--
+-- PERHATIAN: id user berubah. Token JWT yang sudah beredar membawa user_id lama,
+-- jadi key JWT harus dirotasi (active-kid baru, key lama dicabut) saat migrasi ini dijalankan.
+
+-- Foreign key profiles -> users dilepas sementara (nama constraint dari ddl-auto bisa berbeda-beda)
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN SELECT conname FROM pg_constraint WHERE conrelid = 'profiles'::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE profiles DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+-- Nilai baru ditulis negatif dulu agar tidak bentrok dengan id lama yang belum diupdate, lalu dibalik
+UPDATE profiles p
+   SET user_id = -((p.user_id << 10) | (('x' || substr(md5(u.username), 1, 8))::bit(32)::int & 1023)),
+       id = -((p.id << 10) | (('x' || substr(md5(u.username), 1, 8))::bit(32)::int & 1023))
+  FROM users u
+ WHERE u.id = p.user_id;
+UPDATE profiles SET id = -(id << 10) WHERE user_id IS NULL;
+
+UPDATE users SET id = -((id << 10) | (('x' || substr(md5(username), 1, 8))::bit(32)::int & 1023));
+
+UPDATE users SET id = -id;
+UPDATE profiles SET id = -id, user_id = -user_id;
+
+ALTER TABLE profiles ADD CONSTRAINT fk_profiles_user_id FOREIGN KEY (user_id) REFERENCES users (id);
+
+-- Sequence sekarang menghasilkan bagian atas id (id >> 10), geser melewati nilai yang sudah dipakai
+SELECT setval('users_seq', GREATEST(
+        (SELECT COALESCE(MAX(id >> 10), 0) FROM users),
+        (SELECT last_value FROM users_seq)) + 50, false);
+SELECT setval('profiles_seq', GREATEST(
+        (SELECT COALESCE(MAX(id >> 10), 0) FROM profiles),
+        (SELECT last_value FROM profiles_seq)) + 50, false);
@@ -0,0 +1,26 @@
+-- Index penyimpanan file content-addressed (lihat FileStorageService).
+-- Isi file disimpan sekali per hash SHA-256 di {file.upload-dir}/blobs/ab/cd/<sha256>,
+-- nama file dipetakan ke hash isinya, dan ref_count menentukan kapan blob boleh dihapus oleh GC.
+-- Tabel dibuat di semua shard agar skema seragam, tetapi hanya shard 0 yang dipakai.
+
+CREATE TABLE IF NOT EXISTS file_blobs (
+    hash            CHAR(64)    PRIMARY KEY,
+    size            BIGINT      NOT NULL,
+    ref_count       INTEGER     NOT NULL,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    -- Waktu ref_count menjadi 0, GC menunggu masa tenggang sejak waktu ini
+    unreferenced_at TIMESTAMPTZ
+);
+
+-- Kandidat GC: blob tanpa referensi, urut dari yang paling lama
+CREATE INDEX IF NOT EXISTS idx_file_blobs_unreferenced ON file_blobs (unreferenced_at) WHERE ref_count = 0;
+
+CREATE TABLE IF NOT EXISTS stored_files (
+    name       VARCHAR(255) PRIMARY KEY,
+    hash       CHAR(64)     NOT NULL REFERENCES file_blobs (hash),
+    size       BIGINT       NOT NULL,
+    created_at TIMESTAMPTZ  NOT NULL,
+    updated_at TIMESTAMPTZ  NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stored_files_hash ON stored_files (hash);
@@ -0,0 +1,12 @@
+-- Katalog metadata file: dicatat sekali saat upload, sehingga download tidak perlu memeriksa filesystem.
+-- Checksum isi file sudah ada sebagai kolom hash (SHA-256), ukuran di kolom size,
+-- waktu upload terakhir di updated_at.
+
+-- NULL untuk file yang diupload sebelum migrasi ini: content type ditentukan dari ekstensi saat dibaca
+ALTER TABLE stored_files ADD COLUMN IF NOT EXISTS content_type VARCHAR(255);
+
+-- Username pengupload, NULL jika upload tanpa token
+ALTER TABLE stored_files ADD COLUMN IF NOT EXISTS uploaded_by VARCHAR(255);
+
+-- Keyset pagination daftar file: ORDER BY updated_at DESC, name DESC
+CREATE INDEX IF NOT EXISTS idx_stored_files_updated_at_name ON stored_files (updated_at, name);
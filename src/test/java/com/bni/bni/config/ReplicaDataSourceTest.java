@@ -0,0 +1,104 @@
+package com.bni.bni.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replica dan primary diganti mock, sehingga routing bisa diuji tanpa Postgres kedua
+ */
+class ReplicaDataSourceTest {
+
+    private final HikariDataSource replica = mock(HikariDataSource.class);
+    private final DataSource primary = mock(DataSource.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final ResultSet lag = mock(ResultSet.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ReplicaDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        dataSource = new ReplicaDataSource("0", replica, primary, Duration.ofSeconds(2), registry);
+    }
+
+    @Test
+    void healthyReplicaServesReads() throws SQLException {
+        replicaLag(0.5);
+
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+        assertThat(registry.get("datasource.replica.lag").gauge().value()).isEqualTo(0.5);
+        assertThat(fallbacks()).isZero();
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() throws SQLException {
+        replicaLag(5);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(fallbacks()).isEqualTo(1);
+
+        // Setelah replica menyusul, pembacaan kembali ke replica
+        replicaLag(1);
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+        assertThat(fallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void unreachableReplicaFallsBackUntilNextCheck() throws SQLException {
+        replicaLag(0);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(fallbacks()).isEqualTo(2);
+
+        dataSource.checkLag();
+        assertThat(registry.get("datasource.replica.lag").gauge().value()).isEqualTo(-1);
+    }
+
+    @Test
+    void forcedPrimaryReadIsNotCountedAsFallback() throws SQLException {
+        replicaLag(0);
+
+        Connection connection = ReplicaDataSource.usePrimary(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(connection).isSameAs(primaryConnection);
+        assertThat(fallbacks()).isZero();
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    private void replicaLag(double seconds) throws SQLException {
+        when(lag.getDouble(1)).thenReturn(seconds);
+        dataSource.checkLag();
+    }
+
+    private double fallbacks() {
+        return registry.get("datasource.replica.fallback").counter().count();
+    }
+}
@@ -0,0 +1,31 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.service.BulkUserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminUserControllerTest {
+
+    private final BulkUserService bulkUserService = mock(BulkUserService.class);
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new AdminUserController(bulkUserService)).build();
+
+    @Test
+    void malformedContentTypeIsUnsupportedMediaType() throws Exception {
+        mvc.perform(post("/api/admin/users/import").header(HttpHeaders.CONTENT_TYPE, "text/csv;;=").content("x"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.status").value(415))
+                .andExpect(jsonPath("$.message").value("Content-Type harus text/csv atau application/x-ndjson"));
+
+        mvc.perform(post("/api/admin/users/import").header(HttpHeaders.CONTENT_TYPE, "application/json").content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+        verifyNoInteractions(bulkUserService);
+    }
+}
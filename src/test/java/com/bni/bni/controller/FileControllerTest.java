@@ -0,0 +1,134 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.service.ContentEncodingService;
+import com.bni.bni.service.FileStorageService;
+import com.bni.bni.service.FileStorageService.FileInfo;
+import com.bni.bni.service.ImageDerivativeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FileControllerTest {
+
+    private static final String ETAG = "\"5d41402abc4b2a76b9719d911017c592\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final ContentEncodingService contentEncodingService = mock(ContentEncodingService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path blob = Files.writeString(dir.resolve("blob"), "0123456789", StandardCharsets.US_ASCII);
+        FileInfo described = new FileInfo(null, "data.bin", 10, LAST_MODIFIED, ETAG,
+                MediaType.APPLICATION_OCTET_STREAM, "budi");
+        when(fileStorageService.describe("data.bin")).thenReturn(Optional.of(described));
+        when(fileStorageService.downloadUrl(any())).thenReturn(Optional.empty());
+        when(fileStorageService.fetch(described)).thenReturn(new FileInfo(blob, "data.bin", 10, LAST_MODIFIED, ETAG,
+                MediaType.APPLICATION_OCTET_STREAM, "budi"));
+
+        mvc = MockMvcBuilders.standaloneSetup(new FileController(fileStorageService,
+                mock(ImageDerivativeService.class), contentEncodingService)).build();
+    }
+
+    @Test
+    void fullDownloadCarriesValidatorsAndAcceptRanges() throws Exception {
+        mvc.perform(get("/api/files/data.bin"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws Exception {
+        mvc.perform(get("/api/files/data.bin").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().string("2345"));
+
+        mvc.perform(get("/api/files/data.bin").header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void rangeOutsideTheFileIsNotSatisfiable() throws Exception {
+        mvc.perform(get("/api/files/data.bin").header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModified() throws Exception {
+        mvc.perform(get("/api/files/data.bin").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().string(""));
+        verify(fileStorageService, never()).fetch(any());
+    }
+
+    @Test
+    void ifRangeUsesStrongComparison() throws Exception {
+        mvc.perform(get("/api/files/data.bin")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("2345"));
+
+        mvc.perform(get("/api/files/data.bin")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "W/" + ETAG))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+
+        mvc.perform(get("/api/files/data.bin")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"something-else\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void headReturnsHeadersWithoutReadingTheFile() throws Exception {
+        mvc.perform(head("/api/files/data.bin").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().string(""));
+        verify(fileStorageService, never()).fetch(any());
+    }
+
+    @Test
+    void unknownFileIsNotFound() throws Exception {
+        when(fileStorageService.describe("missing.bin")).thenReturn(Optional.empty());
+
+        mvc.perform(get("/api/files/missing.bin")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,124 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.entity.User;
+import com.bni.bni.security.JwtKeyRing;
+import com.bni.bni.sharding.ShardKeys;
+import com.bni.bni.util.JwtUtil;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class JwksControllerTest {
+
+    @TempDir
+    Path keysDir;
+
+    @Test
+    void publishesActiveAndRetiredPublicKeysWithCacheHeaders() throws Exception {
+        writeKeyPair("2024-01");
+        writeKeyPair("2024-02");
+        JwtKeyRing keyRing = keyRing(keysDir.toString());
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new JwksController(keyRing, Duration.ofMinutes(5))).build();
+
+        mvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/jwk-set+json"))
+                .andExpect(header().string("Cache-Control", "max-age=300, public"))
+                .andExpect(jsonPath("$.keys.length()").value(2))
+                .andExpect(jsonPath("$.keys[0].kid").value("2024-01"))
+                .andExpect(jsonPath("$.keys[1].kid").value("2024-02"))
+                .andExpect(jsonPath("$.keys[1].kty").value("EC"))
+                .andExpect(jsonPath("$.keys[1].crv").value("P-256"))
+                .andExpect(jsonPath("$.keys[1].alg").value("ES256"));
+    }
+
+    @Test
+    void jwkCoordinatesMatchThePublicKey() throws Exception {
+        ECPublicKey publicKey = writeKeyPair("2024-01");
+
+        Map<String, Object> jwk = keyRing(keysDir.toString()).getPublicJwks().get(0);
+
+        assertThat(new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("x"))))
+                .isEqualTo(publicKey.getW().getAffineX());
+        assertThat(new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("y"))))
+                .isEqualTo(publicKey.getW().getAffineY());
+        assertThat((String) jwk.get("x")).hasSize(43);
+    }
+
+    @Test
+    void tokenSignedWithRetiredKeyStillVerifies() throws Exception {
+        writeKeyPair("2024-01");
+        JwtKeyRing keyRing = keyRing(keysDir.toString());
+        JwtUtil jwtUtil = new JwtUtil(keyRing, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+        String oldToken = jwtUtil.generateToken(user());
+
+        // Key lama pensiun: hanya kid.pub yang tersisa, key baru menjadi aktif
+        Files.delete(keysDir.resolve("2024-01.key"));
+        writeKeyPair("2024-02");
+        keyRing.reload();
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2024-02");
+        assertThat(keyRing.getPublicJwks()).extracting(jwk -> jwk.get("kid")).containsExactly("2024-01", "2024-02");
+        assertThat(jwtUtil.verifyToken(oldToken)).isPresent();
+        assertThat(jwtUtil.verifyToken(jwtUtil.generateToken(user()))).isPresent();
+    }
+
+    @Test
+    void ephemeralKeyIsPublishedForDevelopment() {
+        JwtKeyRing keyRing = keyRing("");
+        JwtUtil jwtUtil = new JwtUtil(keyRing, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+        assertThat(jwtUtil.verifyToken(jwtUtil.generateToken(user()))).isPresent();
+        assertThat(keyRing.getPublicJwks()).singleElement()
+                .satisfies(jwk -> assertThat(jwk).containsEntry("kid", keyRing.getActiveKid()).containsEntry("kty", "EC"));
+    }
+
+    private static JwtKeyRing keyRing(String keysDir) {
+        return new JwtKeyRing(SignatureAlgorithm.ES256, keysDir, "", "", "PKCS12", "", event -> { });
+    }
+
+    private ECPublicKey writeKeyPair(String kid) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair pair = generator.generateKeyPair();
+        writePem(kid + ".pub", "PUBLIC KEY", pair.getPublic().getEncoded());
+        writePem(kid + ".key", "PRIVATE KEY", pair.getPrivate().getEncoded());
+        return (ECPublicKey) pair.getPublic();
+    }
+
+    private void writePem(String name, String type, byte[] der) throws IOException {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der);
+        Files.writeString(keysDir.resolve(name),
+                "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n");
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi")));
+        user.setUsername("budi");
+        user.setRole("USER");
+        return user;
+    }
+}
@@ -0,0 +1,139 @@
+package com.bni.bni.controller;
+
+import com.bni.bni.dto.ProfileView;
+import com.bni.bni.security.AuthenticatedUser;
+import com.bni.bni.service.ProfileService;
+import com.bni.bni.service.ProfileService.PatchResult;
+import com.bni.bni.service.ProfileService.PatchStatus;
+import com.bni.bni.service.ProfileService.VersionPrecondition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProfileControllerTest {
+
+    private final ProfileService profileService = mock(ProfileService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(new ProfileController(profileService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void profileResponseCarriesUserScopedEtagAndVariesByAuthorization() throws Exception {
+        loginAs(7L);
+        when(profileService.getProfileView(7L)).thenReturn(Optional.of(view(7L, 3L)));
+
+        mvc.perform(get("/api/me/profile"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7-3\""))
+                .andExpect(header().string("Vary", "Authorization"));
+
+        mvc.perform(get("/api/me/profile").header("If-None-Match", "\"7-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Authorization"));
+    }
+
+    @Test
+    void anotherUsersEtagWithTheSameVersionDoesNotMatch() throws Exception {
+        loginAs(8L);
+        when(profileService.getProfileView(8L)).thenReturn(Optional.of(view(8L, 3L)));
+
+        mvc.perform(get("/api/me/profile").header("If-None-Match", "\"7-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"8-3\""));
+    }
+
+    @Test
+    void ifMatchListAcceptsEveryStrongEtagOfTheUser() throws Exception {
+        loginAs(7L);
+        when(profileService.patchProfile(eq(7L), any(), any()))
+                .thenReturn(new PatchResult(PatchStatus.UPDATED, view(7L, 4L)));
+
+        mvc.perform(patch("/api/me/profile")
+                        .header("If-Match", "\"7-2\", W/\"7-5\", \"8-6\", \"7-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"first_name\":\"Budi\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7-4\""));
+
+        ArgumentCaptor<VersionPrecondition> precondition = ArgumentCaptor.forClass(VersionPrecondition.class);
+        verify(profileService).patchProfile(eq(7L), precondition.capture(), any());
+        assertThat(precondition.getValue().anyVersion()).isFalse();
+        assertThat(precondition.getValue().versions()).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void wildcardIfMatchIsPassedAsAnyVersion() {
+        assertThat(ProfileController.parseIfMatch(7L, "*")).isEqualTo(new VersionPrecondition(true, Set.of()));
+        assertThat(ProfileController.parseIfMatch(7L, "W/\"7-3\"")).isEqualTo(new VersionPrecondition(false, Set.of()));
+    }
+
+    @Test
+    void failedPreconditionIsRejectedWith412() throws Exception {
+        loginAs(7L);
+        when(profileService.patchProfile(eq(7L), any(), any()))
+                .thenReturn(new PatchResult(PatchStatus.PRECONDITION_FAILED, null));
+
+        mvc.perform(patch("/api/me/profile")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"first_name\":\"Budi\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void patchWithoutIfMatchHasNoPrecondition() throws Exception {
+        loginAs(7L);
+        when(profileService.patchProfile(eq(7L), isNull(), any()))
+                .thenReturn(new PatchResult(PatchStatus.UPDATED, view(7L, 1L)));
+
+        mvc.perform(patch("/api/me/profile")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"first_name\":\"Budi\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private static void loginAs(long userId) {
+        AuthenticatedUser user = new AuthenticatedUser(userId, "user" + userId, "USER",
+                new Date(), new Date(System.currentTimeMillis() + 3_600_000));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    private static ProfileView view(long userId, long version) {
+        return new ProfileView(userId, "Budi", "Santoso", "Jakarta", null, null, version);
+    }
+}
@@ -0,0 +1,66 @@
+package com.bni.bni.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalibratedPasswordEncoderTest {
+
+    // Budget 1 ns: kalibrasi langsung berhenti di batas bawah (strength 10 / iterasi minimum)
+    private static final Duration TINY_BUDGET = Duration.ofNanos(1);
+
+    private static final String BCRYPT_TAIL = "$abcdefghijklmnopqrstuuBfz4Rg2nZ3ukZtbwPtTXNE7PtAb5xO";
+
+    @Test
+    void bcryptRehashesOnlyWhenMoreThanOneStepAway() {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder("bcrypt", TINY_BUDGET, 10);
+
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$10" + BCRYPT_TAIL)).isFalse();
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$09" + BCRYPT_TAIL)).isFalse();
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$11" + BCRYPT_TAIL)).isFalse();
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$08" + BCRYPT_TAIL)).isTrue();
+    }
+
+    @Test
+    void bcryptHashesFromLargerNodesAreDowngraded() {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder("bcrypt", TINY_BUDGET, 10);
+
+        // Hash strength 12-14 dari node lama yang lebih cepat melewati budget latency di node ini
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$12" + BCRYPT_TAIL)).isTrue();
+        assertThat(encoder.upgradeEncoding("{bcrypt}$2a$14" + BCRYPT_TAIL)).isTrue();
+    }
+
+    @Test
+    void legacyAndForeignHashesAreUpgraded() {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder("bcrypt", TINY_BUDGET, 10);
+
+        assertThat(encoder.upgradeEncoding("$2a$10" + BCRYPT_TAIL)).isTrue();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=19456,t=2,p=1$c2FsdA$aGFzaA")).isTrue();
+        assertThat(encoder.upgradeEncoding(null)).isFalse();
+    }
+
+    @Test
+    void freshHashMatchesAndNeedsNoUpgrade() {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder("bcrypt", TINY_BUDGET, 10);
+
+        String hash = encoder.encode("rahasia");
+
+        assertThat(hash).startsWith("{bcrypt}$2a$10$");
+        assertThat(encoder.matches("rahasia", hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    void argon2RehashesParametersOutsideTolerance() {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder("argon2", TINY_BUDGET, 10);
+
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=19456,t=2,p=1$c2FsdA$aGFzaA")).isFalse();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=19456,t=1,p=1$c2FsdA$aGFzaA")).isFalse();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=19456,t=3,p=1$c2FsdA$aGFzaA")).isFalse();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=19456,t=6,p=1$c2FsdA$aGFzaA")).isTrue();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=4096,t=2,p=1$c2FsdA$aGFzaA")).isTrue();
+        assertThat(encoder.upgradeEncoding("{argon2}$argon2id$v=19$m=65536,t=2,p=1$c2FsdA$aGFzaA")).isTrue();
+    }
+}
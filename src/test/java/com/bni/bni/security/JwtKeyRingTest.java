@@ -0,0 +1,126 @@
+package com.bni.bni.security;
+
+import com.bni.bni.entity.User;
+import com.bni.bni.sharding.ShardKeys;
+import com.bni.bni.util.JwtUtil;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtKeyRingTest {
+
+    @TempDir
+    Path keysDir;
+
+    private final List<Object> events = new ArrayList<>();
+    private JwtKeyRing keyRing;
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        writeSecret("2024-01");
+        keyRing = new JwtKeyRing(SignatureAlgorithm.HS256, keysDir.toString(), "", "", "PKCS12", "", events::add);
+        jwtUtil = new JwtUtil(keyRing, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void tokenCarriesActiveKid() {
+        String token = jwtUtil.generateToken(user());
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2024-01");
+        assertThat(kidOf(token)).isEqualTo("2024-01");
+        assertThat(keyRing.getPublicJwks()).isEmpty();
+    }
+
+    @Test
+    void previousKeyStillVerifiesAfterRotation() throws IOException {
+        String oldToken = jwtUtil.generateToken(user());
+
+        writeSecret("2024-02");
+        keyRing.reload();
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2024-02");
+        assertThat(events).containsExactly(new JwtKeysRotatedEvent("2024-02"));
+        assertThat(jwtUtil.verifyToken(oldToken)).isPresent();
+        assertThat(kidOf(jwtUtil.generateToken(user()))).isEqualTo("2024-02");
+
+        // Reload tanpa perubahan tidak mempublikasikan event lagi
+        keyRing.reload();
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void activeKidFileOverridesNewestKid() throws IOException {
+        writeSecret("2024-02");
+        Files.writeString(keysDir.resolve("active-kid"), "2024-01\n");
+        keyRing.reload();
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2024-01");
+        assertThat(events).containsExactly(new JwtKeysRotatedEvent("2024-01"));
+    }
+
+    @Test
+    void removedKeyAndUnknownKidAreRejected() throws IOException {
+        String oldToken = jwtUtil.generateToken(user());
+        String unknown = Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, "2099-01")
+                .setSubject("budi")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyRing.getActiveKey())
+                .compact();
+        assertThat(jwtUtil.verifyToken(unknown)).isEmpty();
+
+        writeSecret("2024-02");
+        Files.delete(keysDir.resolve("2024-01"));
+        keyRing.reload();
+
+        // Cache claims dikosongkan lewat event, sehingga token dengan key yang dicabut ikut ditolak
+        events.forEach(event -> jwtUtil.onKeysRotated((JwtKeysRotatedEvent) event));
+        assertThat(jwtUtil.verifyToken(oldToken)).isEmpty();
+    }
+
+    @Test
+    void brokenReloadKeepsPreviousKeys() throws IOException {
+        String token = jwtUtil.generateToken(user());
+
+        Files.writeString(keysDir.resolve("2024-02"), "bukan base64!");
+        keyRing.reload();
+
+        assertThat(events).isEmpty();
+        assertThat(keyRing.getActiveKid()).isEqualTo("2024-01");
+        assertThat(jwtUtil.verifyToken(token)).isPresent();
+    }
+
+    private void writeSecret(String kid) throws IOException {
+        byte[] secret = Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded();
+        Files.writeString(keysDir.resolve(kid), Base64.getEncoder().encodeToString(secret));
+    }
+
+    private static String kidOf(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        return header.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1");
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi")));
+        user.setUsername("budi");
+        user.setRole("USER");
+        return user;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bni.bni.service;
+
+import com.bni.bni.entity.User;
+import com.bni.bni.repository.UserRepository;
+import com.bni.bni.sharding.ShardedIdGenerator;
+import com.bni.bni.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepository repo;
+
+    @Mock
+    private PasswordHashingService hashing;
+
+    @Mock
+    private ShardedIdGenerator idGenerator;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @Test
+    void duplicateUsernameIsReportedAsExistingUser() {
+        stubRegistration(violation("uk_users_username", "Key (username)=(budi) already exists."));
+
+        assertThat(authService.register("budi", "budi@example.com", "rahasia")).isEqualTo("User already exists");
+    }
+
+    @Test
+    void legacyUsernameConstraintNameIsRecognisedByDetail() {
+        stubRegistration(violation("uk_r43af9ap4edm43mmtq01oddj6", "Key (username)=(budi) already exists."));
+
+        assertThat(authService.register("budi", "budi@example.com", "rahasia")).isEqualTo("User already exists");
+    }
+
+    @Test
+    void primaryKeyCollisionIsNotReportedAsExistingUser() {
+        DataIntegrityViolationException collision = violation("users_pkey", "Key (id)=(1029) already exists.");
+        stubRegistration(collision);
+
+        assertThatThrownBy(() -> authService.register("budi", "budi@example.com", "rahasia")).isSameAs(collision);
+    }
+
+    @Test
+    void unknownUsernameIsNotLookedUpAgainOnPrimary() {
+        when(repo.findByUsername("siapa")).thenReturn(Optional.empty());
+
+        assertThat(authService.login("siapa", "siapa@example.com", "rahasia")).isNull();
+        verify(repo, times(1)).findByUsername("siapa");
+    }
+
+    @Test
+    void freshlyRegisteredUserMissingFromReplicaIsReadFromPrimary() {
+        when(idGenerator.nextUserId(anyString())).thenReturn(1029L);
+        when(hashing.encode(anyString())).thenReturn("{bcrypt}hash");
+        assertThat(authService.register("budi", "budi@example.com", "rahasia")).isEqualTo("Registered successfully");
+
+        User user = new User();
+        user.setUsername("budi");
+        user.setEmailAddress("budi@example.com");
+        user.setPasswordHash("{bcrypt}hash");
+        // Replica belum menerima insert-nya, primary sudah
+        when(repo.findByUsername("budi")).thenReturn(Optional.empty(), Optional.of(user));
+        when(hashing.matches("rahasia", "{bcrypt}hash")).thenReturn(true);
+        when(jwtUtil.generateToken(user)).thenReturn("token");
+
+        assertThat(authService.login("budi", "budi@example.com", "rahasia")).isEqualTo("token");
+        verify(repo, times(2)).findByUsername("budi");
+    }
+
+    private void stubRegistration(DataIntegrityViolationException failure) {
+        when(idGenerator.nextUserId(anyString())).thenReturn(1029L);
+        when(hashing.encode(anyString())).thenReturn("{bcrypt}hash");
+        when(repo.save(any(User.class))).thenThrow(failure);
+    }
+
+    private static DataIntegrityViolationException violation(String constraint, String detail) {
+        ServerErrorMessage message = new ServerErrorMessage("SERROR\0C23505\0"
+                + "Mduplicate key value violates unique constraint \"" + constraint + "\"\0"
+                + "D" + detail + "\0n" + constraint + "\0");
+        return new DataIntegrityViolationException("could not execute statement", new PSQLException(message));
+    }
+}
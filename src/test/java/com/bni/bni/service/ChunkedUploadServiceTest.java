@@ -0,0 +1,178 @@
+package com.bni.bni.service;
+
+import com.bni.bni.service.ChunkedUploadService.UploadSession;
+import com.bni.bni.service.FileStorageService.StoredFile;
+import com.bni.bni.storage.FileSystemUploadSessionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final AtomicReference<byte[]> storedContent = new AtomicReference<>();
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(fileStorageService.newTempFile()).thenAnswer(invocation ->
+                Files.createDirectories(uploadDir.resolve(".tmp")).resolve(UUID.randomUUID() + ".part"));
+        when(fileStorageService.getMaxUploadSize()).thenReturn(1024L);
+        when(fileStorageService.store(eq("laporan.txt"), any(Path.class), any(), any())).thenAnswer(invocation -> {
+            byte[] content = Files.readAllBytes(invocation.getArgument(1, Path.class));
+            storedContent.set(content);
+            return new StoredFile("laporan.txt", content.length, sha256(content));
+        });
+        service = new ChunkedUploadService(fileStorageService,
+                new FileSystemUploadSessionStore(uploadDir.toString()), new SimpleMeterRegistry(),
+                DataSize.ofBytes(CHUNK_SIZE), DataSize.ofBytes(CHUNK_SIZE), DataSize.ofBytes(64), Duration.ofHours(1));
+    }
+
+    @Test
+    void corruptedResendKeepsAcceptedChunkAndSessionCompletes() throws IOException {
+        byte[] content = "abcdefghij".getBytes();
+        UploadSession session = service.open("laporan.txt", content.length, null, "text/plain", "budi");
+        for (int i = 0; i < session.chunkCount(); i++) {
+            byte[] chunk = chunk(content, i);
+            service.writeChunk(session.uploadId(), i, new ByteArrayInputStream(chunk), sha256(chunk));
+        }
+
+        assertThatThrownBy(() -> service.writeChunk(session.uploadId(), 1,
+                new ByteArrayInputStream("XXXX".getBytes()), sha256(chunk(content, 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Checksum");
+
+        assertThat(service.status(session.uploadId()).receivedChunks()).containsExactly(0, 1, 2);
+        StoredFile stored = service.complete(session.uploadId(), sha256(content));
+        assertThat(stored.hash()).isEqualTo(sha256(content));
+        assertThat(storedContent.get()).isEqualTo(content);
+    }
+
+    @Test
+    void interruptedResendDoesNotTouchAcceptedChunk() throws IOException {
+        byte[] content = "abcdefgh".getBytes();
+        UploadSession session = service.open("laporan.txt", content.length, null, null, null);
+        service.writeChunk(session.uploadId(), 0, new ByteArrayInputStream(chunk(content, 0)), null);
+        service.writeChunk(session.uploadId(), 1, new ByteArrayInputStream(chunk(content, 1)), null);
+
+        assertThatThrownBy(() -> service.writeChunk(session.uploadId(), 0, new BrokenStream("XY".getBytes()), null))
+                .isInstanceOf(IOException.class);
+
+        service.complete(session.uploadId(), null);
+        assertThat(storedContent.get()).isEqualTo(content);
+    }
+
+    @Test
+    void statusReportsMissingChunksForResume() throws IOException {
+        byte[] content = "abcdefghij".getBytes();
+        UploadSession session = service.open("laporan.txt", content.length, null, null, null);
+        service.writeChunk(session.uploadId(), 2, new ByteArrayInputStream(chunk(content, 2)), null);
+        service.writeChunk(session.uploadId(), 0, new ByteArrayInputStream(chunk(content, 0)), null);
+
+        assertThat(service.status(session.uploadId()).receivedChunks()).containsExactly(0, 2);
+        assertThatThrownBy(() -> service.complete(session.uploadId(), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1 chunk belum diterima");
+
+        service.writeChunk(session.uploadId(), 1, new ByteArrayInputStream(chunk(content, 1)), null);
+        service.complete(session.uploadId(), null);
+        assertThat(storedContent.get()).isEqualTo(content);
+    }
+
+    @Test
+    void completeCanBeRetriedAfterIndexFailureOnceDataWasMovedToBlobStore() throws IOException {
+        byte[] content = "abcdefghij".getBytes();
+        UploadSession session = service.open("laporan.txt", content.length, null, null, null);
+        for (int i = 0; i < session.chunkCount(); i++) {
+            service.writeChunk(session.uploadId(), i, new ByteArrayInputStream(chunk(content, i)), null);
+        }
+        // Blob store filesystem me-rename file ke blob, lalu transaksi index gagal
+        when(fileStorageService.store(eq("laporan.txt"), any(Path.class), any(), any())).thenAnswer(invocation -> {
+            Files.move(invocation.getArgument(1, Path.class), uploadDir.resolve("blob"));
+            throw new IllegalStateException("koneksi database putus");
+        }).thenAnswer(invocation -> {
+            byte[] stored = Files.readAllBytes(invocation.getArgument(1, Path.class));
+            storedContent.set(stored);
+            return new StoredFile("laporan.txt", stored.length, sha256(stored));
+        });
+
+        assertThatThrownBy(() -> service.complete(session.uploadId(), sha256(content)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(service.status(session.uploadId()).receivedChunks()).containsExactly(0, 1, 2);
+
+        // Chunk yang dikirim ulang setelah kegagalan tidak boleh menimpa isi blob
+        service.writeChunk(session.uploadId(), 0, new ByteArrayInputStream("ABCD".getBytes()), null);
+        service.complete(session.uploadId(), null);
+        assertThat(storedContent.get()).isEqualTo("ABCDefghij".getBytes());
+        assertThat(uploadDir.resolve("blob")).hasBinaryContent(content);
+    }
+
+    @Test
+    void rejectsChunkWithWrongLength() throws IOException {
+        UploadSession session = service.open("laporan.txt", 8, null, null, null);
+
+        assertThatThrownBy(() -> service.writeChunk(session.uploadId(), 0,
+                new ByteArrayInputStream("abcdef".getBytes()), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.status(session.uploadId()).receivedChunks()).isEmpty();
+    }
+
+    private static byte[] chunk(byte[] content, int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK_SIZE));
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stream yang terputus setelah sebagian isi terkirim, seperti koneksi client yang putus di tengah chunk
+     */
+    private static final class BrokenStream extends InputStream {
+        private final InputStream delegate;
+
+        private BrokenStream(byte[] partial) {
+            this.delegate = new ByteArrayInputStream(partial);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = delegate.read();
+            if (value < 0) {
+                throw new IOException("Connection reset");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bni.bni.service;
+
+import com.bni.bni.service.ContentEncodingService.EncodedFile;
+import com.bni.bni.service.ContentEncodingService.Encoding;
+import com.bni.bni.service.FileStorageService.FileInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ContentEncodingServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ContentEncodingService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new ContentEncodingService(new SimpleMeterRegistry(), tempDir.resolve("cache"),
+                DataSize.ofMegabytes(10), DataSize.ofBytes(1024), DataSize.ofMegabytes(1), 0.1,
+                6, 6, 2, 1.0, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void negotiatesByQualityThenServerPreference() throws IOException {
+        FileInfo csv = compressed(file("laporan.csv", "no,nama,saldo\n1,budi,1000\n".repeat(200).getBytes()));
+
+        assertThat(encodingFor(csv, "gzip, zstd")).contains(Encoding.ZSTD);
+        assertThat(encodingFor(csv, "zstd;q=0.5, gzip")).contains(Encoding.GZIP);
+        assertThat(encodingFor(csv, "x-gzip")).contains(Encoding.GZIP);
+        assertThat(encodingFor(csv, "*;q=0.1, zstd;q=0")).contains(Encoding.GZIP);
+        assertThat(encodingFor(csv, "br, gzip;q=0")).isEmpty();
+        assertThat(encodingFor(csv, "identity")).isEmpty();
+        assertThat(encodingFor(csv, null)).isEmpty();
+    }
+
+    @Test
+    void skipsContentThatDoesNotShrink() throws IOException {
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        FileInfo noise = file("noise.txt", random);
+
+        service.compressLater(noise);
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(5))
+                .until(() -> service.variant(noise, "gzip, zstd").isEmpty());
+    }
+
+    @Test
+    void capsWorkersToShareOfCores() {
+        assertThat(ContentEncodingService.poolSize(2, 0.25, 4)).isEqualTo(1);
+        assertThat(ContentEncodingService.poolSize(8, 0.25, 16)).isEqualTo(4);
+        assertThat(ContentEncodingService.poolSize(2, 0.25, 32)).isEqualTo(2);
+        assertThat(ContentEncodingService.poolSize(2, 0.25, 1)).isEqualTo(1);
+    }
+
+    private FileInfo compressed(FileInfo original) {
+        service.compressLater(original);
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                service.variant(original, "zstd").isPresent() && service.variant(original, "gzip").isPresent());
+        return original;
+    }
+
+    private Optional<Encoding> encodingFor(FileInfo original, String acceptEncoding) {
+        return service.variant(original, acceptEncoding).map(EncodedFile::encoding);
+    }
+
+    private FileInfo file(String name, byte[] content) throws IOException {
+        Path path = Files.write(tempDir.resolve(name), content);
+        return new FileInfo(path, name, content.length, 0L, "\"" + name.hashCode() + "\"",
+                MediaType.TEXT_PLAIN, null);
+    }
+}
@@ -0,0 +1,122 @@
+package com.bni.bni.service;
+
+import com.bni.bni.dto.DirectoryEntry;
+import com.bni.bni.repository.UserRepository;
+import com.bni.bni.service.DirectoryService.DirectoryPage;
+import com.bni.bni.sharding.ShardContext;
+import com.bni.bni.sharding.ShardMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DirectoryServiceTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2024, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    // Baris per shard; created_at sengaja ada yang sama agar id dipakai sebagai pemecah seri
+    private final List<List<DirectoryEntry>> shards = List.of(
+            List.of(entry(1, 0), entry(3, 1), entry(5, 1), entry(7, 3)),
+            List.of(entry(2, 0), entry(4, 1), entry(6, 2)));
+    private DirectoryService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(userRepository.searchDirectory(any(), any(), any(), anyInt())).thenAnswer(invocation ->
+                seek(shards.get(ShardContext.current()), invocation.getArgument(1), invocation.getArgument(2),
+                        invocation.getArgument(3)));
+        service = new DirectoryService(userRepository, ShardMap.load(null, 1).rebalance(2), 50, 3);
+    }
+
+    @Test
+    void cursorWalksEveryShardWithoutGapsOrDuplicates() {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            DirectoryPage page = service.search("bu", cursor, 2);
+            page.entries().forEach(entry -> ids.add(entry.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void nextCursorSeeksFromLastRowOfThePage() {
+        DirectoryPage first = service.search(null, null, 2);
+        assertThat(first.entries()).extracting(DirectoryEntry::id).containsExactly(7L, 6L);
+
+        service.search(null, first.nextCursor(), 2);
+
+        // Setiap shard diminta satu baris lebih untuk mendeteksi halaman berikutnya
+        verify(userRepository, times(2)).searchDirectory(isNull(), isNull(), isNull(), eq(3));
+        verify(userRepository, times(2))
+                .searchDirectory(isNull(), eq(T0.plusMinutes(2)), eq(6L), eq(3));
+    }
+
+    @Test
+    void lastPageHasNoCursorAndLimitIsCapped() {
+        DirectoryPage page = service.search(null, null, 1000);
+
+        assertThat(page.entries()).hasSize(3);
+        assertThat(page.nextCursor()).isNotNull();
+        assertThat(service.search(null, null, null))
+                .satisfies(all -> assertThat(all.entries()).hasSize(7))
+                .satisfies(all -> assertThat(all.nextCursor()).isNull());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        String notACursor = Base64.getUrlEncoder().encodeToString("kemarin|7".getBytes());
+
+        assertThatThrownBy(() -> service.search(null, notACursor, 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor tidak valid");
+        assertThatThrownBy(() -> service.search(null, "%%%", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Meniru query repository: (created_at, id) &lt; seek, ORDER BY created_at DESC, id DESC, LIMIT
+     */
+    private static List<DirectoryEntry> seek(List<DirectoryEntry> rows, OffsetDateTime afterCreatedAt, Long afterId,
+                                             int limit) {
+        Comparator<DirectoryEntry> order = Comparator.comparing(DirectoryEntry::createdAt)
+                .thenComparing(DirectoryEntry::id);
+        DirectoryEntry after = afterId == null ? null : entry(afterId, afterCreatedAt);
+        return rows.stream()
+                .filter(row -> after == null || order.compare(row, after) < 0)
+                .sorted(order.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static DirectoryEntry entry(long id, int minutes) {
+        return entry(id, T0.plusMinutes(minutes));
+    }
+
+    private static DirectoryEntry entry(long id, OffsetDateTime createdAt) {
+        return new DirectoryEntry(id, "budi" + id, "budi" + id + "@bni.co.id", "USER", createdAt, null, null);
+    }
+}
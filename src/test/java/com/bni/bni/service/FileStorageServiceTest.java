@@ -0,0 +1,163 @@
+package com.bni.bni.service;
+
+import com.bni.bni.repository.FileIndexRepository;
+import com.bni.bni.storage.BlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileStorageServiceTest {
+
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileIndexRepository index = mock(FileIndexRepository.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FileStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FileStorageService(uploadDir.toString(), DataSize.ofMegabytes(1), GRACE_PERIOD, 2, 100,
+                Duration.ofMinutes(1), 50, 200, index, blobStore, mock(PlatformTransactionManager.class), registry);
+    }
+
+    @Test
+    void replacingContentAcquiresNewBlobBeforeReleasingOld() throws IOException {
+        when(index.link(eq("laporan.txt"), anyString(), anyLong(), any(), any())).thenReturn(Optional.of("lama"));
+
+        String hash = service.store("laporan.txt", tempFile("isi baru"), null, "budi").hash();
+
+        InOrder order = inOrder(index, blobStore);
+        // GC blob dengan hash yang sama ditunda sebelum keberadaan blob diperiksa
+        order.verify(index).deferCollection(hash);
+        order.verify(blobStore).exists(hash);
+        order.verify(blobStore).put(eq(hash), any(Path.class), eq(8L));
+        order.verify(index).acquireBlob(hash, 8L);
+        order.verify(index).link("laporan.txt", hash, 8L, "text/plain", "budi");
+        order.verify(index).releaseBlob("lama");
+    }
+
+    @Test
+    void identicalContentIsDeduplicatedAndKeepsItsReference() throws IOException {
+        Path source = tempFile("isi sama");
+        when(blobStore.exists(anyString())).thenReturn(true);
+        when(index.link(anyString(), anyString(), anyLong(), any(), any()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(1, String.class)));
+
+        String hash = service.store("laporan.txt", source, null, null).hash();
+
+        verify(blobStore, never()).put(anyString(), any(), anyLong());
+        assertThat(source).doesNotExist();
+        assertThat(registry.get("file.upload.deduplicated").counter().count()).isEqualTo(1);
+        // Upload ulang isi yang sama: +1 lalu -1, ref_count tidak pernah menyentuh 0
+        InOrder order = inOrder(index);
+        order.verify(index).acquireBlob(hash, 8L);
+        order.verify(index).releaseBlob(hash);
+    }
+
+    @Test
+    void garbageCollectionDeletesUnreferencedBlobsInBatches() throws IOException {
+        when(index.lockGarbage(GRACE_PERIOD, 2)).thenReturn(List.of("a", "b"), List.of("c"));
+
+        service.collectGarbage();
+
+        verify(index, times(2)).lockGarbage(GRACE_PERIOD, 2);
+        for (String hash : List.of("a", "b", "c")) {
+            verify(blobStore).delete(hash);
+            verify(index).deleteBlob(hash);
+        }
+        assertThat(registry.get("file.gc.deleted").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void blobThatCannotBeDeletedKeepsItsRowForNextRun() throws IOException {
+        when(index.lockGarbage(any(), anyInt())).thenReturn(List.of("a", "b"));
+        doThrow(new IOException("disk penuh")).when(blobStore).delete("b");
+
+        service.collectGarbage();
+
+        verify(index).deleteBlob("a");
+        verify(index, never()).deleteBlob("b");
+        // Batch tidak penuh terhapus, jadi GC berhenti dan mencoba lagi pada jadwal berikutnya
+        verify(index, times(1)).lockGarbage(any(), anyInt());
+        assertThat(registry.get("file.gc.deleted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void staleTempFilesAreCollectedAfterGracePeriod() throws IOException {
+        when(index.lockGarbage(any(), anyInt())).thenReturn(List.of());
+        Path stale = Files.writeString(service.newTempFile(), "terputus");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(GRACE_PERIOD).minusSeconds(60)));
+        Path active = Files.writeString(service.newTempFile(), "masih berjalan");
+
+        service.collectGarbage();
+
+        assertThat(stale).doesNotExist();
+        assertThat(active).exists();
+    }
+
+    @Test
+    void legacyImportRunsUnderLockAndIsSkippedOnceMigrated() throws IOException {
+        when(index.runExclusively(anyString(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return true;
+        });
+        Path legacy = Files.writeString(uploadDir.resolve("laporan-lama.txt"), "isi lama");
+
+        service.importLegacyFiles();
+
+        verify(blobStore).put(anyString(), eq(legacy), eq(8L));
+        verify(index).link(eq("laporan-lama.txt"), anyString(), eq(8L), eq("text/plain"), any());
+        assertThat(uploadDir.resolve(".legacy-imported")).exists();
+
+        // File yang muncul setelah migrasi selesai tidak lagi diperlakukan sebagai file lama
+        Files.writeString(uploadDir.resolve("lain.txt"), "bukan file lama");
+        service.importLegacyFiles();
+        verify(index, times(1)).link(anyString(), anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    void legacyImportIsLeftToThePodHoldingTheLock() throws IOException {
+        when(index.runExclusively(anyString(), any())).thenReturn(false);
+        Path legacy = Files.writeString(uploadDir.resolve("laporan-lama.txt"), "isi lama");
+
+        service.importLegacyFiles();
+
+        assertThat(legacy).exists();
+        assertThat(uploadDir.resolve(".legacy-imported")).doesNotExist();
+    }
+
+    private Path tempFile(String content) throws IOException {
+        return Files.writeString(service.newTempFile(), content);
+    }
+}
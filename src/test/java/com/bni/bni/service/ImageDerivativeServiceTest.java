@@ -0,0 +1,85 @@
+package com.bni.bni.service;
+
+import com.bni.bni.service.FileStorageService.FileInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageDerivativeServiceTest {
+
+    private static final int MAX_WIDTH = 100;
+
+    @TempDir
+    Path dir;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private ImageDerivativeService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(fileStorageService.fetch(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new ImageDerivativeService(fileStorageService, new SimpleMeterRegistry(), dir.resolve("cache"),
+                DataSize.ofMegabytes(10), MAX_WIDTH, 50_000_000, 0.85f, 1, 4, Duration.ofSeconds(10),
+                Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void formatConversionWithoutWidthIsClampedToMaxWidth() throws IOException {
+        FileInfo original = png("besar.png", 800, 600);
+
+        FileInfo converted = service.derivative(original, null, "jpg");
+        FileInfo explicit = service.derivative(original, MAX_WIDTH, "jpg");
+
+        BufferedImage image = ImageIO.read(converted.path().toFile());
+        assertThat(image.getWidth()).isEqualTo(MAX_WIDTH);
+        assertThat(image.getHeight()).isEqualTo(75);
+        // Tanpa w sama dengan w=max-width, jadi keduanya memakai entry cache yang sama
+        assertThat(converted.etag()).isEqualTo(explicit.etag());
+    }
+
+    @Test
+    void veryTallImageIsBoundedByOutputPixels() throws IOException {
+        FileInfo original = png("panjang.png", 80, 4000);
+
+        BufferedImage image = ImageIO.read(service.derivative(original, null, "png").path().toFile());
+
+        assertThat((long) image.getWidth() * image.getHeight()).isLessThanOrEqualTo((long) MAX_WIDTH * MAX_WIDTH);
+        assertThat(image.getWidth()).isLessThan(80);
+    }
+
+    @Test
+    void smallImageIsNeverUpscaled() throws IOException {
+        FileInfo original = png("kecil.png", 40, 30);
+
+        BufferedImage image = ImageIO.read(service.derivative(original, null, "png").path().toFile());
+
+        assertThat(image.getWidth()).isEqualTo(40);
+        assertThat(image.getHeight()).isEqualTo(30);
+    }
+
+    private FileInfo png(String name, int width, int height) throws IOException {
+        Path path = dir.resolve(name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+        return new FileInfo(path, name, path.toFile().length(), 0, "\"" + name + "\"", MediaType.IMAGE_PNG, null);
+    }
+}
@@ -0,0 +1,94 @@
+package com.bni.bni.service;
+
+import com.bni.bni.controller.ApiExceptionHandler;
+import com.bni.bni.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceTest {
+
+    private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void fullQueueIsRejectedImmediatelyWithRetryAfter() throws Exception {
+        blockingEncoder();
+        service = new PasswordHashingService(encoder, registry, 1, 1, Duration.ofSeconds(5), Duration.ofSeconds(2));
+
+        // Satu request di worker, satu di antrian
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> service.encode("rahasia"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> gauge("password.hashing.active") == 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> service.encode("rahasia"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> gauge("password.hashing.queue.depth") == 1);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> service.matches("rahasia", "hash"))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(2)));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(registry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+        // Setelah worker bebas, request yang antre tetap selesai
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+    }
+
+    @Test
+    void slowHashingIsRejectedAfterTimeout() {
+        blockingEncoder();
+        service = new PasswordHashingService(encoder, registry, 1, 4, Duration.ofMillis(100), Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> service.encode("rahasia"))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void rejectionIsMappedTo429WithRetryAfterHeader() {
+        ResponseEntity<Map<String, Object>> response = new ApiExceptionHandler().handleTooManyRequests(
+                new TooManyRequestsException("Server sedang sibuk, silakan coba lagi", Duration.ofMillis(500)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getBody()).containsEntry("status", 429);
+    }
+
+    private void blockingEncoder() {
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "hash";
+        });
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
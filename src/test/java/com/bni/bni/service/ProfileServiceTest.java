@@ -0,0 +1,121 @@
+package com.bni.bni.service;
+
+import com.bni.bni.dto.ProfileView;
+import com.bni.bni.entity.Profile;
+import com.bni.bni.repository.ProfileRepository;
+import com.bni.bni.repository.UserRepository;
+import com.bni.bni.service.ProfileService.PatchResult;
+import com.bni.bni.service.ProfileService.PatchStatus;
+import com.bni.bni.service.ProfileService.VersionPrecondition;
+import com.bni.bni.sharding.ShardMap;
+import com.bni.bni.sharding.ShardedIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProfileServiceTest {
+
+    private final ProfileRepository profileRepository = mock(ProfileRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private ProfileService profileService;
+
+    @BeforeEach
+    void setUp() {
+        profileService = new ProfileService(profileRepository, userRepository, mock(ShardMap.class),
+                mock(ShardedIdGenerator.class), new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), 500, Duration.ofSeconds(10));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void wildcardIfMatchFailsWhenProfileDoesNotExist() {
+        when(profileRepository.findByUserId(7L)).thenReturn(Optional.empty());
+
+        PatchResult result = profileService.patchProfile(7L, new VersionPrecondition(true, Set.of()),
+                Map.of("first_name", "Budi"));
+
+        assertThat(result.status()).isEqualTo(PatchStatus.PRECONDITION_FAILED);
+        verify(profileRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void wildcardIfMatchSucceedsForExistingProfile() {
+        Profile profile = profile(5L);
+        when(profileRepository.findByUserId(7L)).thenReturn(Optional.of(profile));
+        when(profileRepository.saveAndFlush(profile)).thenReturn(profile);
+
+        PatchResult result = profileService.patchProfile(7L, new VersionPrecondition(true, Set.of()),
+                Map.of("first_name", "Budi"));
+
+        assertThat(result.status()).isEqualTo(PatchStatus.UPDATED);
+        assertThat(result.profile().firstName()).isEqualTo("Budi");
+    }
+
+    @Test
+    void anyListedVersionSatisfiesIfMatch() {
+        Profile profile = profile(5L);
+        when(profileRepository.findByUserId(7L)).thenReturn(Optional.of(profile));
+        when(profileRepository.saveAndFlush(profile)).thenReturn(profile);
+
+        PatchResult matched = profileService.patchProfile(7L, new VersionPrecondition(false, Set.of(4L, 5L)),
+                Map.of("last_name", "Santoso"));
+        PatchResult stale = profileService.patchProfile(7L, new VersionPrecondition(false, Set.of(3L, 4L)),
+                Map.of("last_name", "Santoso"));
+
+        assertThat(matched.status()).isEqualTo(PatchStatus.UPDATED);
+        assertThat(matched.profile().etag()).isEqualTo("\"7-5\"");
+        assertThat(stale.status()).isEqualTo(PatchStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void batchLoadDoesNotCacheProfileUpdatedWhileChunkWasRead() {
+        Profile profile = profile(5L);
+        when(profileRepository.findByUserId(7L)).thenReturn(Optional.of(profile));
+        when(profileRepository.saveAndFlush(profile)).thenReturn(profile);
+        ProfileView stale = new ProfileView(7L, "Lama", null, null, null, null, 4L);
+        ProfileView other = new ProfileView(8L, "Siti", null, null, null, null, 1L);
+        when(profileRepository.findViewsByUserIdIn(any())).thenAnswer(invocation -> {
+            // PATCH untuk user 7 commit saat chunk masih dibaca dari replica
+            profileService.patchProfile(7L, new VersionPrecondition(true, Set.of()), Map.of("first_name", "Baru"));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            return List.of(stale, other);
+        });
+
+        profileService.forEachProfile(List.of(7L, 8L), view -> { });
+
+        when(profileRepository.findViewByUserId(7L)).thenReturn(Optional.of(stale));
+        profileService.getProfileView(7L);
+        verify(profileRepository).findViewByUserId(7L);
+        // User lain dari chunk yang sama tetap di-cache
+        assertThat(profileService.getProfileView(8L)).contains(other);
+        verify(profileRepository, never()).findViewByUserId(8L);
+    }
+
+    private static Profile profile(long version) {
+        Profile profile = new Profile();
+        ReflectionTestUtils.setField(profile, "version", version);
+        return profile;
+    }
+}
@@ -0,0 +1,34 @@
+package com.bni.bni.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardKeysTest {
+
+    @Test
+    void bucketOfUsernameMatchesMigrationExpression() {
+        // Nilai dari ('x' || substr(md5(username), 1, 8))::bit(32)::int & 1023 di PostgreSQL
+        assertThat(ShardKeys.bucketOfUsername("budi")).isEqualTo(318);      // md5 00dfc53e...
+        assertThat(ShardKeys.bucketOfUsername("alice")).isEqualTo(690);     // md5 6384e2b2...
+        assertThat(ShardKeys.bucketOfUsername("siti.rahma")).isEqualTo(382); // md5 c8be497e...
+    }
+
+    @Test
+    void composedIdCarriesItsBucket() {
+        long id = ShardKeys.compose(12345, 690);
+
+        assertThat(id).isEqualTo((12345L << 10) | 690);
+        assertThat(ShardKeys.bucketOfId(id)).isEqualTo(690);
+        assertThat(id >> ShardKeys.BUCKET_BITS).isEqualTo(12345);
+    }
+
+    @Test
+    void userIdAndUsernameRouteToTheSameBucket() {
+        int bucket = ShardKeys.bucketOfUsername("alice");
+
+        assertThat(ShardKeys.bucketOfId(ShardKeys.compose(1, bucket))).isEqualTo(bucket);
+        assertThat(ShardKeys.bucketOfId(ShardKeys.compose(Long.MAX_VALUE >> ShardKeys.BUCKET_BITS, bucket)))
+                .isEqualTo(bucket);
+    }
+}
@@ -0,0 +1,70 @@
+package com.bni.bni.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardMapTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void withoutMapFileEveryBucketStaysOnShardZero() throws IOException {
+        ShardMap map = ShardMap.load(dir.resolve("shard-map.properties"), 4);
+
+        assertThat(map.shardOfUsername("alice")).isZero();
+        assertThat(map.shardOfId(ShardKeys.compose(99, 1023))).isZero();
+    }
+
+    @Test
+    void rebalanceSpreadsBucketsEvenlyAndOnlyMovesWhatItMust() throws IOException {
+        ShardMap two = ShardMap.load(null, 1).rebalance(2);
+        ShardMap three = two.rebalance(3);
+
+        int[] perShard = new int[3];
+        int moved = 0;
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            perShard[three.shardOfBucket(bucket)]++;
+            if (three.shardOfBucket(bucket) != two.shardOfBucket(bucket)) {
+                moved++;
+                assertThat(three.shardOfBucket(bucket)).isEqualTo(2);
+            }
+        }
+        assertThat(perShard).containsExactly(342, 341, 341);
+        assertThat(moved).isEqualTo(341);
+    }
+
+    @Test
+    void usernameAndIdRouteToTheSameShard() throws IOException {
+        ShardMap map = ShardMap.load(null, 1).rebalance(4);
+        int bucket = ShardKeys.bucketOfUsername("siti.rahma");
+
+        assertThat(map.shardOfId(ShardKeys.compose(777, bucket))).isEqualTo(map.shardOfUsername("siti.rahma"));
+    }
+
+    @Test
+    void writtenMapIsLoadedBack() throws IOException {
+        Path file = dir.resolve("shard-map.properties");
+        ShardMap map = ShardMap.load(null, 1).rebalance(3);
+        map.write(file);
+
+        ShardMap loaded = ShardMap.load(file, 3);
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            assertThat(loaded.shardOfBucket(bucket)).isEqualTo(map.shardOfBucket(bucket));
+        }
+    }
+
+    @Test
+    void mapPointingAtUnconfiguredShardIsRejected() throws IOException {
+        Path file = dir.resolve("shard-map.properties");
+        ShardMap.load(null, 1).rebalance(3).write(file);
+
+        assertThatThrownBy(() -> ShardMap.load(file, 2)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.bni.bni.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRoutingAspectTest {
+
+    public static class Repository {
+
+        public Integer byUsername(@ShardKey String username) {
+            return ShardContext.current();
+        }
+
+        public Integer byUserId(@ShardKey Long userId) {
+            return ShardContext.current();
+        }
+
+        public Integer nested(@ShardKey String username, Repository self, long otherUserId) {
+            Integer inner = self.byUserId(otherUserId);
+            assertThat(ShardContext.current()).isNotEqualTo(inner);
+            return ShardContext.current();
+        }
+
+        public Integer unsharded() {
+            return ShardContext.current();
+        }
+
+        public Integer wrongKey(@ShardKey Integer key) {
+            return ShardContext.current();
+        }
+    }
+
+    private final ShardMap shardMap = shardMap();
+    private final Repository repository = proxy(shardMap);
+
+    @Test
+    void usernameAndUserIdRouteToTheOwningShard() {
+        int bucket = ShardKeys.bucketOfUsername("alice");
+        long userId = ShardKeys.compose(5, bucket);
+
+        assertThat(repository.byUsername("alice")).isEqualTo(shardMap.shardOfBucket(bucket));
+        assertThat(repository.byUserId(userId)).isEqualTo(shardMap.shardOfBucket(bucket));
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void nestedCallRestoresTheOuterShard() {
+        int aliceShard = shardMap.shardOfUsername("alice");
+        long otherUser = otherShardUserId(aliceShard);
+
+        assertThat(repository.nested("alice", repository, otherUser)).isEqualTo(aliceShard);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void methodWithoutShardKeyKeepsCurrentContext() {
+        assertThat(ShardContext.call(2, repository::unsharded)).isEqualTo(2);
+        assertThat(repository.unsharded()).isNull();
+    }
+
+    @Test
+    void unsupportedShardKeyTypeIsRejected() {
+        assertThatThrownBy(() -> repository.wrongKey(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long otherShardUserId(int shard) {
+        for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+            if (shardMap.shardOfBucket(bucket) != shard) {
+                return ShardKeys.compose(1, bucket);
+            }
+        }
+        throw new IllegalStateException("Semua bucket di shard yang sama");
+    }
+
+    private static ShardMap shardMap() {
+        try {
+            return ShardMap.load(null, 1).rebalance(4);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Repository proxy(ShardMap shardMap) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Repository());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ShardRoutingAspect(shardMap));
+        return factory.getProxy();
+    }
+}
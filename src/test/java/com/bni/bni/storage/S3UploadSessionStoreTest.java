@@ -0,0 +1,308 @@
+package com.bni.bni.storage;
+
+import com.bni.bni.exception.UploadSessionNotFoundException;
+import com.bni.bni.service.ChunkedUploadService;
+import com.bni.bni.service.ChunkedUploadService.UploadSession;
+import com.bni.bni.service.FileStorageService;
+import com.bni.bni.service.FileStorageService.StoredFile;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sesi upload bertahap di S3 dipakai dua "pod" (masing-masing dengan direktori upload lokal sendiri) terhadap
+ * emulator S3 in-memory, sehingga chunk yang dikirim ke pod berbeda tetap masuk ke sesi yang sama
+ */
+class S3UploadSessionStoreTest {
+
+    private static final String BUCKET = "bni-files";
+    private static final int CHUNK_SIZE = 4;
+
+    @TempDir
+    Path tempDir;
+
+    private FakeS3 s3;
+    private final List<S3BlobStore> blobStores = new ArrayList<>();
+    private final AtomicReference<byte[]> storedContent = new AtomicReference<>();
+
+    @BeforeEach
+    void startS3() throws IOException {
+        s3 = new FakeS3();
+    }
+
+    @AfterEach
+    void stopS3() {
+        blobStores.forEach(S3BlobStore::shutdown);
+        s3.stop();
+    }
+
+    @Test
+    void chunksSentToDifferentPodsCompleteOneFile() throws IOException {
+        ChunkedUploadService podA = pod("a");
+        ChunkedUploadService podB = pod("b");
+        byte[] content = "abcdefghij".getBytes();
+
+        UploadSession session = podA.open("laporan.txt", content.length, null, "text/plain", "budi");
+        podA.writeChunk(session.uploadId(), 0, new ByteArrayInputStream(chunk(content, 0)), null);
+        podB.writeChunk(session.uploadId(), 2, new ByteArrayInputStream(chunk(content, 2)), null);
+        assertThat(podA.status(session.uploadId()).receivedChunks()).containsExactly(0, 2);
+
+        podA.writeChunk(session.uploadId(), 1, new ByteArrayInputStream(chunk(content, 1)), null);
+        podB.complete(session.uploadId(), null);
+
+        assertThat(storedContent.get()).isEqualTo(content);
+        assertThat(s3.keys("uploads/")).isEmpty();
+        assertThatThrownBy(() -> podA.status(session.uploadId()))
+                .isInstanceOf(UploadSessionNotFoundException.class);
+    }
+
+    @Test
+    void corruptedResendKeepsStoredChunk() throws IOException {
+        ChunkedUploadService pod = pod("a");
+        byte[] content = "abcdefgh".getBytes();
+        UploadSession session = pod.open("laporan.txt", content.length, null, null, null);
+        pod.writeChunk(session.uploadId(), 0, new ByteArrayInputStream(chunk(content, 0)), null);
+        pod.writeChunk(session.uploadId(), 1, new ByteArrayInputStream(chunk(content, 1)), null);
+
+        assertThatThrownBy(() -> pod.writeChunk(session.uploadId(), 1,
+                new ByteArrayInputStream("XXXX".getBytes()), "00"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        pod.complete(session.uploadId(), null);
+        assertThat(storedContent.get()).isEqualTo(content);
+    }
+
+    @Test
+    void abortAndExpiryRemoveSessionObjects() throws Exception {
+        ChunkedUploadService pod = pod("a");
+        UploadSession aborted = pod.open("laporan.txt", 8, null, null, null);
+        pod.writeChunk(aborted.uploadId(), 0, new ByteArrayInputStream("abcd".getBytes()), null);
+        pod.abort(aborted.uploadId());
+
+        assertThat(s3.keys("uploads/")).isEmpty();
+        assertThatThrownBy(() -> pod.writeChunk(aborted.uploadId(), 1, new ByteArrayInputStream("efgh".getBytes()), null))
+                .isInstanceOf(UploadSessionNotFoundException.class);
+
+        UploadSession idle = pod.open("laporan.txt", 8, null, null, null);
+        S3UploadSessionStore store = new S3UploadSessionStore(blobStores.get(0), "uploads/");
+        store.expire(Duration.ofHours(1));
+        assertThat(s3.keys("uploads/")).isNotEmpty();
+
+        Thread.sleep(10);
+        store.expire(Duration.ZERO);
+        assertThat(s3.keys("uploads/")).isEmpty();
+        assertThatThrownBy(() -> pod.status(idle.uploadId()))
+                .isInstanceOf(UploadSessionNotFoundException.class);
+    }
+
+    /**
+     * Satu pod: blob store S3 dan sesi upload di bucket bersama, direktori upload lokal sendiri
+     */
+    private ChunkedUploadService pod(String name) throws IOException {
+        Path uploadDir = Files.createDirectories(tempDir.resolve(name));
+        S3BlobStore blobStore = new S3BlobStore(new SimpleMeterRegistry(), BUCKET, "us-east-1", s3.endpoint(), true,
+                "local", "localsecret", "blobs/", DataSize.ofMegabytes(5), 2, false, Duration.ofMinutes(10),
+                uploadDir.resolve("cache"), DataSize.ofMegabytes(10), 0, Duration.ofMinutes(10));
+        blobStores.add(blobStore);
+
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.newTempFile()).thenAnswer(invocation ->
+                Files.createDirectories(uploadDir.resolve(".tmp")).resolve(UUID.randomUUID() + ".part"));
+        when(fileStorageService.getMaxUploadSize()).thenReturn(1024L);
+        when(fileStorageService.store(eq("laporan.txt"), any(Path.class), any(), any())).thenAnswer(invocation -> {
+            byte[] content = Files.readAllBytes(invocation.getArgument(1, Path.class));
+            storedContent.set(content);
+            return new StoredFile("laporan.txt", content.length, "hash");
+        });
+        return new ChunkedUploadService(fileStorageService, new S3UploadSessionStore(blobStore, "uploads/"),
+                new SimpleMeterRegistry(), DataSize.ofBytes(CHUNK_SIZE), DataSize.ofBytes(CHUNK_SIZE),
+                DataSize.ofBytes(64), Duration.ofHours(1));
+    }
+
+    private static byte[] chunk(byte[] content, int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK_SIZE));
+    }
+
+    /**
+     * Emulator S3 in-memory (path-style, tanpa verifikasi signature) untuk operasi yang dipakai sesi upload:
+     * PutObject, GetObject, HeadObject, ListObjectsV2, DeleteObject dan DeleteObjects
+     */
+    private static final class FakeS3 {
+
+        private static final Pattern DELETE_KEY = Pattern.compile("<Key>([^<]+)</Key>");
+
+        private record StoredObject(byte[] content, Instant lastModified) {
+        }
+
+        private final Map<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+        private final HttpServer server;
+
+        private FakeS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        String endpoint() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        List<String> keys(String prefix) {
+            return objects.keySet().stream().filter(key -> key.startsWith(prefix)).toList();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+                String key = path.substring(Math.min(path.length(), BUCKET.length() + 2));
+                Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+                byte[] body = exchange.getRequestBody().readAllBytes();
+
+                switch (exchange.getRequestMethod()) {
+                    case "PUT" -> {
+                        objects.put(key, new StoredObject(decode(exchange, body), Instant.now()));
+                        send(exchange, 200, new byte[0]);
+                    }
+                    case "GET" -> {
+                        if (key.isEmpty()) {
+                            send(exchange, 200, list(query.getOrDefault("prefix", "")));
+                        } else if (objects.containsKey(key)) {
+                            send(exchange, 200, objects.get(key).content());
+                        } else {
+                            send(exchange, 404, noSuchKey(key));
+                        }
+                    }
+                    case "HEAD" -> {
+                        StoredObject object = objects.get(key);
+                        exchange.getResponseHeaders().add("Content-Length",
+                                String.valueOf(object == null ? 0 : object.content().length));
+                        exchange.sendResponseHeaders(object == null ? 404 : 200, -1);
+                    }
+                    case "DELETE" -> {
+                        objects.remove(key);
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                    case "POST" -> {
+                        Matcher matcher = DELETE_KEY.matcher(new String(body, StandardCharsets.UTF_8));
+                        while (matcher.find()) {
+                            objects.remove(matcher.group(1));
+                        }
+                        send(exchange, 200, "<DeleteResult></DeleteResult>".getBytes(StandardCharsets.UTF_8));
+                    }
+                    default -> exchange.sendResponseHeaders(405, -1);
+                }
+            }
+        }
+
+        private byte[] list(String prefix) {
+            StringBuilder xml = new StringBuilder("<ListBucketResult><Name>" + BUCKET + "</Name><IsTruncated>false</IsTruncated>");
+            List<String> keys = keys(prefix);
+            xml.append("<KeyCount>").append(keys.size()).append("</KeyCount>");
+            for (String key : keys) {
+                StoredObject object = objects.get(key);
+                xml.append("<Contents><Key>").append(key).append("</Key><LastModified>")
+                        .append(object.lastModified()).append("</LastModified><Size>")
+                        .append(object.content().length).append("</Size></Contents>");
+            }
+            return xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static byte[] noSuchKey(String key) {
+            return ("<Error><Code>NoSuchKey</Code><Message>Not found</Message><Key>" + key + "</Key></Error>")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    query.put(URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8),
+                            eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+            return query;
+        }
+
+        /**
+         * Body dengan Content-Encoding aws-chunked (streaming signature) diurai menjadi isi aslinya
+         */
+        private static byte[] decode(HttpExchange exchange, byte[] body) throws IOException {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if (encoding == null || !encoding.contains("aws-chunked")) {
+                return body;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            InputStream in = new ByteArrayInputStream(body);
+            while (true) {
+                String header = readLine(in);
+                int length = Integer.parseInt(header.split(";")[0].trim(), 16);
+                if (length == 0) {
+                    return out.toByteArray();
+                }
+                out.write(in.readNBytes(length));
+                readLine(in);
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int value;
+            while ((value = in.read()) >= 0 && value != '\n') {
+                if (value != '\r') {
+                    line.append((char) value);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bni.bni.throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferThrottleFilterTest {
+
+    @Test
+    void multipartUploadIsChargedToUploadRate() throws Exception {
+        // Burst 0 dan laju 10 KB/detik: body 5 KB harus menahan request kira-kira 0,5 detik
+        TransferThrottle throttle = new TransferThrottle(new SimpleMeterRegistry(), 4, DataSize.ofBytes(10_000),
+                DataSize.ofBytes(0), 64, DataSize.ofBytes(0), DataSize.ofBytes(0), Duration.ZERO,
+                Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofMinutes(10));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/files/upload");
+        request.setContentType("multipart/form-data; boundary=batas");
+        request.addPart(new MockPart("file", "laporan.txt", new byte[5_000]));
+
+        long start = System.nanoTime();
+        new TransferThrottleFilter(throttle).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            // Dipanggil dua kali seperti resolver + controller: tetap dibebankan sekali
+            ((HttpServletRequest) req).getParts();
+            ((HttpServletRequest) req).getPart("file");
+        });
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(400)).isLessThan(Duration.ofMillis(900));
+    }
+}
@@ -0,0 +1,105 @@
+package com.bni.bni.throttle;
+
+import com.bni.bni.exception.TooManyRequestsException;
+import com.bni.bni.throttle.TransferThrottle.Direction;
+import com.bni.bni.throttle.TransferThrottle.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransferThrottleTest {
+
+    @Test
+    void userOverLimitIsRejectedAfterMaxWait() {
+        TransferThrottle throttle = throttle(2, 64, DataSize.ofBytes(0), Duration.ofMillis(200));
+        Transfer first = throttle.begin("ip:10.0.0.1");
+        Transfer second = throttle.begin("ip:10.0.0.1");
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> throttle.begin("ip:10.0.0.1"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(e -> assertThat(((TooManyRequestsException) e).getRetryAfter()).isEqualTo(Duration.ofSeconds(5)));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+
+        // Pengguna lain tidak terpengaruh, dan slot kembali setelah transfer ditutup
+        throttle.begin("user:budi").close();
+        first.close();
+        throttle.begin("ip:10.0.0.1").close();
+        second.close();
+    }
+
+    @Test
+    void userSlotWaitsUntilReleased() throws Exception {
+        TransferThrottle throttle = throttle(1, 64, DataSize.ofBytes(0), Duration.ofSeconds(5));
+        Transfer holder = throttle.begin("user:budi");
+
+        CompletableFuture<Transfer> waiting = CompletableFuture.supplyAsync(() -> throttle.begin("user:budi"));
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        holder.close();
+        waiting.get(2, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void globalSlotWaitsUntilReleased() throws Exception {
+        TransferThrottle throttle = throttle(4, 1, DataSize.ofBytes(0), Duration.ofSeconds(5));
+        Transfer holder = throttle.begin("user:budi");
+
+        CompletableFuture<Transfer> waiting = CompletableFuture.supplyAsync(() -> throttle.begin("user:siti"));
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        holder.close();
+        waiting.get(2, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void globalSlotWaitIsBoundedByMaxWait() {
+        TransferThrottle throttle = throttle(4, 1, DataSize.ofBytes(0), Duration.ofMillis(100));
+        try (Transfer ignored = throttle.begin("user:budi")) {
+            assertThatThrownBy(() -> throttle.begin("user:siti"))
+                    .isInstanceOf(TooManyRequestsException.class);
+        }
+        // Slot pengguna yang ditolak di slot global ikut dilepas
+        throttle.begin("user:siti").close();
+    }
+
+    @Test
+    void zeroDownloadRateDisablesDownloadLimit() {
+        TransferThrottle throttle = throttle(4, 64, DataSize.ofBytes(0), Duration.ofSeconds(1));
+        try (Transfer transfer = throttle.begin("user:budi")) {
+            assertThat(transfer.isRateLimited(Direction.DOWNLOAD)).isFalse();
+            assertThat(transfer.isRateLimited(Direction.UPLOAD)).isTrue();
+        }
+    }
+
+    @Test
+    void rateLimitedDownloadWaitsForTokens() throws InterruptedIOException {
+        TransferThrottle throttle = throttle(4, 64, DataSize.ofBytes(10_000), Duration.ofSeconds(1));
+        try (Transfer transfer = throttle.begin("user:budi")) {
+            assertThat(transfer.isRateLimited(Direction.DOWNLOAD)).isTrue();
+            long start = System.nanoTime();
+            transfer.consume(Direction.DOWNLOAD, 5_000);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(400));
+        }
+    }
+
+    /**
+     * Burst 0: bucket kosong sejak awal, sehingga setiap byte langsung dibebankan ke laju
+     */
+    private static TransferThrottle throttle(int userMaxConcurrent, int globalMaxConcurrent, DataSize downloadRate,
+                                             Duration maxWait) {
+        return new TransferThrottle(new SimpleMeterRegistry(), userMaxConcurrent, DataSize.ofMegabytes(20),
+                downloadRate, globalMaxConcurrent, DataSize.ofBytes(0), downloadRate, Duration.ZERO, maxWait,
+                Duration.ofSeconds(5), Duration.ofMinutes(10));
+    }
+}
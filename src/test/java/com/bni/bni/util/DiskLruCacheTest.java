@@ -0,0 +1,94 @@
+package com.bni.bni.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskLruCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenOverTheLimit() throws IOException {
+        DiskLruCache cache = new DiskLruCache(dir, 20, Duration.ZERO);
+        put(cache, "a", 8);
+        put(cache, "b", 8);
+        cache.get("a");
+
+        put(cache, "c", 8);
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.totalBytes()).isEqualTo(16);
+        assertThat(Files.exists(dir.resolve("b"))).isFalse();
+    }
+
+    @Test
+    void evictedFileStaysReadableForReadersThatAlreadyHaveItsPath() throws IOException {
+        DiskLruCache cache = new DiskLruCache(dir, 10, Duration.ofMinutes(1));
+        put(cache, "a", 8);
+        DiskLruCache.Entry served = cache.get("a");
+
+        // Request lain menulis entry baru dan mengevict "a" sebelum file-nya dibuka (misal oleh sendfile)
+        put(cache, "b", 8);
+
+        assertThat(cache.get("a")).isNull();
+        try (FileChannel channel = FileChannel.open(served.path(), StandardOpenOption.READ)) {
+            assertThat(channel.size()).isEqualTo(8);
+        }
+    }
+
+    @Test
+    void evictedFileIsDeletedAfterTheDelay() throws Exception {
+        DiskLruCache cache = new DiskLruCache(dir, 10, Duration.ofMillis(50));
+        put(cache, "a", 8);
+        put(cache, "b", 8);
+        assertThat(Files.exists(dir.resolve("a"))).isTrue();
+
+        Thread.sleep(100);
+        cache.get("b");
+
+        assertThat(Files.exists(dir.resolve("a"))).isFalse();
+        assertThat(Files.exists(dir.resolve("b"))).isTrue();
+    }
+
+    @Test
+    void rewrittenKeyIsNotDeletedByAnEarlierEviction() throws Exception {
+        DiskLruCache cache = new DiskLruCache(dir, 10, Duration.ofMillis(50));
+        put(cache, "a", 8);
+        put(cache, "b", 8);
+        put(cache, "a", 8);
+
+        Thread.sleep(100);
+        cache.get("a");
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(Files.size(dir.resolve("a"))).isEqualTo(8);
+    }
+
+    @Test
+    void existingEntriesAreLoadedOnStartAndLeftoverTempFilesRemoved() throws IOException {
+        Files.write(dir.resolve("old"), new byte[5]);
+        Files.write(dir.resolve("half.1234.tmp"), new byte[3]);
+
+        DiskLruCache cache = new DiskLruCache(dir, 100);
+
+        assertThat(cache.get("old")).isEqualTo(new DiskLruCache.Entry(dir.resolve("old"), 5));
+        assertThat(cache.entryCount()).isEqualTo(1);
+        assertThat(Files.exists(dir.resolve("half.1234.tmp"))).isFalse();
+    }
+
+    private static void put(DiskLruCache cache, String key, int size) throws IOException {
+        cache.put(key, target -> Files.write(target, new byte[size]));
+    }
+}
@@ -0,0 +1,127 @@
+package com.bni.bni.util;
+
+import com.bni.bni.entity.User;
+import com.bni.bni.security.JwtKeyRing;
+import com.bni.bni.security.JwtKeysRotatedEvent;
+import com.bni.bni.sharding.ShardKeys;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private final JwtKeyRing keyRing = new JwtKeyRing(SignatureAlgorithm.HS256, "", "", "", "PKCS12", "",
+            event -> { });
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JwtUtil jwtUtil = new JwtUtil(keyRing, registry, 100, Duration.ofMinutes(10));
+
+    @Test
+    void issuedTokenIsVerifiedWithItsClaims() {
+        User user = user("budi", ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi")));
+
+        String token = jwtUtil.generateToken(user);
+
+        assertThat(jwtUtil.verifyToken(token)).hasValueSatisfying(claims -> {
+            assertThat(claims.getSubject()).isEqualTo("budi");
+            assertThat(claims.get("user_id", Long.class)).isEqualTo(user.getId());
+            assertThat(claims.get("role", String.class)).isEqualTo("USER");
+        });
+    }
+
+    @Test
+    void tokenIssuedBeforeTheShardedIdSchemeIsRejected() {
+        // Id 1029 lama milik "budi" bisa menjadi id baru user lain setelah migrasi V3
+        String legacy = sign(Jwts.builder().setSubject("budi").claim("user_id", 1029L).claim("role", "USER"));
+
+        assertThat(jwtUtil.verifyToken(legacy)).isEmpty();
+    }
+
+    @Test
+    void userIdFromAnotherBucketIsRejected() {
+        int otherBucket = (ShardKeys.bucketOfUsername("budi") + 1) % ShardKeys.BUCKETS;
+        String token = sign(Jwts.builder().setSubject("budi")
+                .claim("user_id", ShardKeys.compose(42, otherBucket))
+                .claim(JwtUtil.USER_ID_SCHEME_CLAIM, JwtUtil.USER_ID_SCHEME)
+                .claim("role", "USER"));
+
+        assertThat(jwtUtil.verifyToken(token)).isEmpty();
+    }
+
+    @Test
+    void repeatedVerificationIsServedFromCache() {
+        String token = jwtUtil.generateToken(user("budi", ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi"))));
+
+        assertThat(jwtUtil.verifyToken(token)).isPresent();
+        assertThat(jwtUtil.verifyToken(token)).isPresent();
+        assertThat(jwtUtil.getUsernameFromToken(token)).isEqualTo("budi");
+
+        assertThat(cacheGets("miss")).isEqualTo(1);
+        assertThat(cacheGets("hit")).isEqualTo(2);
+    }
+
+    @Test
+    void tamperedAndExpiredTokensAreRejectedAndNotCached() {
+        String token = jwtUtil.generateToken(user("budi", ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi"))));
+        String[] parts = token.split("\\.");
+        // Payload milik user lain dengan signature asli
+        String forged = jwtUtil.generateToken(user("siti", ShardKeys.compose(7, ShardKeys.bucketOfUsername("siti"))))
+                .split("\\.")[1];
+        String expired = Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid())
+                .setSubject("budi")
+                .claim("user_id", ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi")))
+                .claim(JwtUtil.USER_ID_SCHEME_CLAIM, JwtUtil.USER_ID_SCHEME)
+                .setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(keyRing.getActiveKey())
+                .compact();
+
+        assertThat(jwtUtil.verifyToken(parts[0] + "." + forged + "." + parts[2])).isEmpty();
+        assertThat(jwtUtil.verifyToken(parts[0] + "." + parts[1] + ".")).isEmpty();
+        assertThat(jwtUtil.verifyToken(expired)).isEmpty();
+        assertThat(jwtUtil.verifyToken("bukan-token")).isEmpty();
+        assertThat(jwtUtil.verifyToken(" ")).isEmpty();
+        assertThat(cacheGets("hit")).isZero();
+    }
+
+    @Test
+    void keyRotationClearsCachedClaims() {
+        String token = jwtUtil.generateToken(user("budi", ShardKeys.compose(42, ShardKeys.bucketOfUsername("budi"))));
+        jwtUtil.verifyToken(token);
+
+        jwtUtil.onKeysRotated(new JwtKeysRotatedEvent(keyRing.getActiveKid()));
+        assertThat(jwtUtil.verifyToken(token)).isPresent();
+
+        // Setelah rotasi token diverifikasi ulang, bukan diambil dari cache
+        assertThat(cacheGets("hit")).isZero();
+        assertThat(cacheGets("miss")).isEqualTo(2);
+    }
+
+    private double cacheGets(String result) {
+        return registry.get("cache.gets").tag("cache", "jwt.verified-claims").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private String sign(JwtBuilder builder) {
+        return builder.setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyRing.getActiveKey())
+                .compact();
+    }
+
+    private static User user(String username, long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole("USER");
+        return user;
+    }
+}